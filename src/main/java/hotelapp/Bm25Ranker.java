@@ -0,0 +1,318 @@
+package hotelapp;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Ranks the reviews matching any word of a query with BM25 and returns the best k.
+ *
+ * The postings of a word are ordered by frequency first, so each list is a sequence of runs of
+ * decreasing frequency, and the BM25 contribution of a whole run is bounded by the score of its
+ * frequency in the shortest review of the run. That length is found once per list and kept with it;
+ * short lists just assume the shortest possible review, one made only of the word. The ranker always scores the next run of the word
+ * with the highest bound, keeping each review's accumulated score, and stops as soon as no
+ * review outside the current top k can reach the k-th score with the bounds still left
+ * (the MaxScore argument over impact ordered lists). Queries on common words then only read the
+ * first runs of their lists. The scores of the k winners are finished by counting the query words
+ * in their text, so the order among them is exact.
+ */
+class Bm25Ranker {
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    // Lists at least this long get the frequency and shortest review length of each run attached, for tighter bounds
+    private static final int RUN_LENGTHS_MIN_POSTINGS = 64;
+
+    private final Map<String, PostingList> wordMap;
+    private final List<Review> reviewsByOrdinal;
+    private final int[] reviewLengths;
+    private final double averageLength;
+    private final int reviewCount;
+
+    /**
+     * Constructor for the Bm25Ranker class.
+     *
+     * @param wordMap          The word index.
+     * @param reviewsByOrdinal The reviews by the ordinals the postings refer to.
+     * @param reviewLengths    The number of indexed words of each review, by ordinal.
+     * @param reviewCount      The number of indexed reviews.
+     * @param totalLength      The number of indexed words of all reviews.
+     */
+    public Bm25Ranker(Map<String, PostingList> wordMap, List<Review> reviewsByOrdinal, int[] reviewLengths,
+                      int reviewCount, long totalLength) {
+        this.wordMap = wordMap;
+        this.reviewsByOrdinal = reviewsByOrdinal;
+        this.reviewLengths = reviewLengths;
+        this.reviewCount = reviewCount;
+        this.averageLength = reviewCount == 0 ? 1 : Math.max(1, totalLength / (double) reviewCount);
+    }
+
+    /**
+     * Finds the k reviews with the highest BM25 score for the words of the query.
+     *
+     * @param query The query words, tokenized like review text.
+     * @param k     The number of reviews to return.
+     * @return The best reviews and their scores, highest score first, then newest first.
+     */
+    public List<Map.Entry<Review, Double>> topReviews(String query, int k) {
+        ReviewTokenizer tokenizer = new ReviewTokenizer();
+        tokenizer.count(query);
+        List<Term> terms = new ArrayList<>();
+        for (int i = 0; i < tokenizer.termCount(); i++) {
+            PostingList postings = wordMap.get(tokenizer.term(i));
+            if (postings != null) {
+                terms.add(new Term(tokenizer.term(i), postings));
+            }
+        }
+        if (terms.isEmpty() || k <= 0) {
+            return new ArrayList<>();
+        }
+
+        Accumulators scores = new Accumulators();
+        while (true) {
+            Term next = null;
+            double remaining = 0;
+            for (Term term : terms) {
+                remaining += term.bound;
+                if (term.bound > 0 && (next == null || term.bound > next.bound)) {
+                    next = term;
+                }
+            }
+            if (next == null || scores.isDecided(k, remaining)) {
+                break;
+            }
+            next.scoreRun(scores);
+        }
+
+        return finish(terms, scores.best(k), tokenizer);
+    }
+
+    /**
+     * Computes the exact scores of the chosen reviews from their text and sorts them.
+     */
+    private List<Map.Entry<Review, Double>> finish(List<Term> terms, int[] chosen, ReviewTokenizer tokenizer) {
+        Map<String, Double> idfs = new HashMap<>();
+        for (Term term : terms) {
+            idfs.put(term.word, term.idf);
+        }
+        List<Map.Entry<Review, Double>> ranked = new ArrayList<>(chosen.length);
+        for (int ordinal : chosen) {
+            Review review = reviewsByOrdinal.get(ordinal);
+            tokenizer.count(review.getReviewText());
+            double score = 0;
+            for (int i = 0; i < tokenizer.termCount(); i++) {
+                Double idf = idfs.get(tokenizer.term(i));
+                if (idf != null) {
+                    score += score(idf, tokenizer.frequency(i), reviewLengths[ordinal]);
+                }
+            }
+            ranked.add(new AbstractMap.SimpleImmutableEntry<>(review, score));
+        }
+        ranked.sort(new Comparator<Map.Entry<Review, Double>>() {
+            @Override
+            public int compare(Map.Entry<Review, Double> e1, Map.Entry<Review, Double> e2) {
+                int scoreComparison = Double.compare(e2.getValue(), e1.getValue());
+                if (scoreComparison != 0) {
+                    return scoreComparison;
+                }
+                return SortedReviews.NEWEST_FIRST.compare(e1.getKey(), e2.getKey());
+            }
+        });
+        return ranked;
+    }
+
+    private double score(double idf, int frequency, int length) {
+        return idf * frequency * (K1 + 1) / (frequency + K1 * (1 - B + B * length / averageLength));
+    }
+
+    /**
+     * A query word and its position in its posting list.
+     */
+    private class Term {
+        private final String word;
+        private final double idf;
+        private final PostingList.Cursor cursor;
+        // Highest bound of the runs from each run on, when the list has its run lengths attached
+        private final double[] remainingRunBounds;
+        private boolean hasPosting;
+        private int run;
+        // Highest contribution any posting not yet scored can make, 0 once the list is done
+        private double bound;
+
+        public Term(String word, PostingList postings) {
+            this.word = word;
+            int df = postings.size();
+            this.idf = Math.log(1 + (reviewCount - df + 0.5) / (df + 0.5));
+            if (df >= RUN_LENGTHS_MIN_POSTINGS) {
+                // The shortest review of a run may be shorter than one of an earlier run, so later runs
+                // can have higher bounds: what is left is bounded by the highest of them
+                int[] runs = runFrequenciesAndMinimumLengths(postings);
+                remainingRunBounds = new double[runs.length / 2];
+                double highest = 0;
+                for (int r = remainingRunBounds.length - 1; r >= 0; r--) {
+                    int frequency = runs[2 * r];
+                    highest = Math.max(highest, score(idf, frequency, Math.max(frequency, runs[2 * r + 1])));
+                    remainingRunBounds[r] = highest;
+                }
+            } else {
+                remainingRunBounds = null;
+            }
+            this.cursor = postings.cursor();
+            hasPosting = cursor.next();
+            updateBound();
+        }
+
+        private void updateBound() {
+            if (!hasPosting) {
+                bound = 0;
+            } else if (remainingRunBounds != null) {
+                bound = remainingRunBounds[run];
+            } else {
+                // A review contains at least frequency words; the bound falls with the frequency of later runs
+                bound = score(idf, cursor.frequency(), cursor.frequency());
+            }
+        }
+
+        /**
+         * Adds the contributions of the postings of the current frequency run.
+         */
+        public void scoreRun(Accumulators scores) {
+            int frequency = cursor.frequency();
+            while (hasPosting && cursor.frequency() == frequency) {
+                int ordinal = cursor.ordinal();
+                scores.add(ordinal, score(idf, frequency, reviewLengths[ordinal]));
+                hasPosting = cursor.next();
+            }
+            run++;
+            updateBound();
+        }
+    }
+
+    /**
+     * Returns the frequency and the shortest review length of each run of the list, as pairs,
+     * finding them on first use. A review only gets longer while the list exists (removing a review
+     * replaces every list it is in), so the lengths stay valid lower bounds.
+     * Concurrent readers may both compute them, with the same result.
+     */
+    private int[] runFrequenciesAndMinimumLengths(PostingList postings) {
+        int[] runs = postings.getRunStatistics();
+        if (runs != null) {
+            return runs;
+        }
+        runs = new int[16];
+        int length = 0;
+        PostingList.Cursor cursor = postings.cursor();
+        while (cursor.next()) {
+            if (length == 0 || runs[length - 2] != cursor.frequency()) {
+                if (length == runs.length) {
+                    runs = Arrays.copyOf(runs, length * 2);
+                }
+                runs[length++] = cursor.frequency();
+                runs[length++] = Integer.MAX_VALUE;
+            }
+            runs[length - 1] = Math.min(runs[length - 1], reviewLengths[cursor.ordinal()]);
+        }
+        runs = Arrays.copyOf(runs, length);
+        postings.setRunStatistics(runs);
+        return runs;
+    }
+
+    /**
+     * Partial scores by review ordinal, in an open addressing table of primitive keys and values.
+     */
+    private static class Accumulators {
+        private int[] keys = new int[64];
+        private double[] values = new double[64];
+        private boolean[] used = new boolean[64];
+        private int size;
+        private double highest;
+
+        public void add(int ordinal, double score) {
+            int mask = keys.length - 1;
+            int hash = ordinal * 0x9E3779B1;
+            int slot = (hash ^ (hash >>> 16)) & mask;
+            while (used[slot] && keys[slot] != ordinal) {
+                slot = (slot + 1) & mask;
+            }
+            if (used[slot]) {
+                values[slot] += score;
+                highest = Math.max(highest, values[slot]);
+                return;
+            }
+            used[slot] = true;
+            keys[slot] = ordinal;
+            values[slot] = score;
+            highest = Math.max(highest, score);
+            if (++size * 2 > keys.length) {
+                grow();
+            }
+        }
+
+        private void grow() {
+            int[] oldKeys = keys;
+            double[] oldValues = values;
+            boolean[] oldUsed = used;
+            keys = new int[oldKeys.length * 2];
+            values = new double[oldKeys.length * 2];
+            used = new boolean[oldKeys.length * 2];
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldUsed[i]) {
+                    add(oldKeys[i], oldValues[i]);
+                }
+            }
+        }
+
+        /**
+         * Whether the top k can no longer change: every review outside it, seen or not, stays at or
+         * below the k-th score even if it gets the remaining bound of every word.
+         *
+         * @param k         The number of reviews to rank.
+         * @param remaining The sum of the bounds of the postings not scored yet.
+         */
+        public boolean isDecided(int k, double remaining) {
+            if (size < k || remaining >= highest) {
+                return false;
+            }
+            int[] top = highestSlots(k + 1);
+            double outside = top.length > k ? values[top[k]] : 0;
+            return outside + remaining < values[top[k - 1]];
+        }
+
+        /**
+         * @return The slots of the up to count highest scores, highest first.
+         */
+        private int[] highestSlots(int count) {
+            int[] top = new int[count];
+            int n = 0;
+            for (int i = 0; i < keys.length; i++) {
+                if (!used[i] || (n == count && values[i] <= values[top[n - 1]])) {
+                    continue;
+                }
+                int position = n == count ? n - 1 : n++;
+                while (position > 0 && values[top[position - 1]] < values[i]) {
+                    top[position] = top[position - 1];
+                    position--;
+                }
+                top[position] = i;
+            }
+            return Arrays.copyOf(top, n);
+        }
+
+        /**
+         * @return The ordinals of the up to k reviews with the highest partial scores.
+         */
+        public int[] best(int k) {
+            int[] top = highestSlots(k);
+            int[] ordinals = new int[top.length];
+            for (int i = 0; i < top.length; i++) {
+                ordinals[i] = keys[top[i]];
+            }
+            return ordinals;
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package hotelapp;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * A sorted dictionary of keys for completing a prefix, each key with an int value and a weight,
+ * such as the hotel it names and the hotel's number of reviews. Immutable once built.
+ *
+ * The keys are kept sorted in one char array, so the keys starting with a prefix are one range found
+ * with two binary searches. A segment tree holds the heaviest key of every power of two range, so the
+ * heaviest keys of the prefix range come out one at a time: the heaviest of the range, then the heaviest
+ * of the parts left and right of it, and so on from a priority queue. Completing a short prefix of many
+ * keys costs O(n log keys) for the n completions, not a pass over the range.
+ */
+class CompletionIndex {
+    private final char[] chars;
+    private final int[] offsets; // key i is chars[offsets[i]] to chars[offsets[i + 1] - 1]
+    private final int[] values;
+    private final int[] weights;
+    private final int leaves;
+    private final int[] heaviest; // segment tree, 1 is the root; the heaviest key position of each node's range
+
+    /**
+     * Constructor for the CompletionIndex class.
+     *
+     * @param keys    The keys, already normalized the way prefixes will be.
+     * @param values  The value of each key; several keys may have the same value.
+     * @param weights The weight of each key.
+     */
+    public CompletionIndex(List<String> keys, int[] values, int[] weights) {
+        // The keys in the given order first, to sort their indexes without comparing Strings
+        final int[] keyOffsets = new int[keys.size() + 1];
+        for (int i = 0; i < keys.size(); i++) {
+            keyOffsets[i + 1] = keyOffsets[i] + keys.get(i).length();
+        }
+        final char[] keyChars = new char[keyOffsets[keys.size()]];
+        for (int i = 0; i < keys.size(); i++) {
+            keys.get(i).getChars(0, keys.get(i).length(), keyChars, keyOffsets[i]);
+        }
+        int[] order = new int[keys.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        new KeySorter() {
+            @Override
+            protected int length(int id) {
+                return keyOffsets[id + 1] - keyOffsets[id];
+            }
+
+            @Override
+            protected char charAt(int id, int index) {
+                return keyChars[keyOffsets[id] + index];
+            }
+        }.sort(order);
+
+        chars = new char[keyChars.length];
+        offsets = new int[order.length + 1];
+        this.values = new int[order.length];
+        this.weights = new int[order.length];
+        for (int position = 0; position < order.length; position++) {
+            int key = order[position];
+            int length = keyOffsets[key + 1] - keyOffsets[key];
+            System.arraycopy(keyChars, keyOffsets[key], chars, offsets[position], length);
+            offsets[position + 1] = offsets[position] + length;
+            this.values[position] = values[key];
+            this.weights[position] = weights[key];
+        }
+
+        int size = 1;
+        while (size < order.length) {
+            size <<= 1;
+        }
+        leaves = size;
+        heaviest = new int[2 * leaves];
+        for (int i = 0; i < leaves; i++) {
+            heaviest[leaves + i] = i < order.length ? i : -1;
+        }
+        for (int node = leaves - 1; node >= 1; node--) {
+            heaviest[node] = heavier(heaviest[2 * node], heaviest[2 * node + 1]);
+        }
+    }
+
+    /**
+     * @return The number of keys.
+     */
+    public int size() {
+        return values.length;
+    }
+
+    /**
+     * @param position The position of a key in sorted order.
+     * @return The key.
+     */
+    public String key(int position) {
+        return new String(chars, offsets[position], offsets[position + 1] - offsets[position]);
+    }
+
+    /**
+     * @param position The position of a key in sorted order.
+     * @return The value of the key.
+     */
+    public int value(int position) {
+        return values[position];
+    }
+
+    /**
+     * @param position The position of a key in sorted order.
+     * @return The weight of the key.
+     */
+    public int weight(int position) {
+        return weights[position];
+    }
+
+    /**
+     * Finds the heaviest keys starting with a prefix, one key per value.
+     *
+     * @param prefix The prefix, normalized like the keys.
+     * @param limit  The maximum number of keys to return.
+     * @return The positions of the keys, heaviest first, then in key order.
+     */
+    public int[] complete(String prefix, int limit) {
+        int from = firstWithPrefixAtLeast(prefix, 0);
+        int to = firstWithPrefixAtLeast(prefix, 1);
+        if (from >= to || limit <= 0) {
+            return new int[0];
+        }
+        List<Integer> positions = new ArrayList<>(Math.min(limit, to - from));
+        // Each entry is a range and its heaviest key: {position, from, to}, with to exclusive
+        PriorityQueue<int[]> ranges = new PriorityQueue<>(new Comparator<int[]>() {
+            @Override
+            public int compare(int[] r1, int[] r2) {
+                return r1[0] == heavier(r1[0], r2[0]) ? -1 : 1;
+            }
+        });
+        ranges.add(new int[] {heaviestIn(from, to), from, to});
+        Set<Integer> completedValues = new HashSet<>();
+        while (positions.size() < limit && !ranges.isEmpty()) {
+            int[] range = ranges.poll();
+            int position = range[0];
+            if (completedValues.add(values[position])) {
+                positions.add(position);
+            }
+            if (range[1] < position) {
+                ranges.add(new int[] {heaviestIn(range[1], position), range[1], position});
+            }
+            if (position + 1 < range[2]) {
+                ranges.add(new int[] {heaviestIn(position + 1, range[2]), position + 1, range[2]});
+            }
+        }
+        int[] completions = new int[positions.size()];
+        for (int i = 0; i < completions.length; i++) {
+            completions[i] = positions.get(i);
+        }
+        return completions;
+    }
+
+    /**
+     * Returns the first position whose key, cut to the length of the prefix, compares to the prefix
+     * at least as given: 0 finds the first key starting with the prefix, 1 the first key after them.
+     */
+    private int firstWithPrefixAtLeast(String prefix, int comparison) {
+        int low = 0;
+        int high = values.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (comparePrefix(mid, prefix) >= comparison) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Compares the key at a position, cut to the length of the prefix, to the prefix.
+     */
+    private int comparePrefix(int position, String prefix) {
+        int start = offsets[position];
+        int length = offsets[position + 1] - start;
+        for (int i = 0; i < prefix.length(); i++) {
+            if (i == length) {
+                return -1;
+            }
+            if (chars[start + i] != prefix.charAt(i)) {
+                return chars[start + i] < prefix.charAt(i) ? -1 : 1;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Returns the position of the heaviest key from position from to position to - 1.
+     */
+    private int heaviestIn(int from, int to) {
+        int result = -1;
+        for (int low = from + leaves, high = to + leaves; low < high; low >>= 1, high >>= 1) {
+            if ((low & 1) == 1) {
+                result = heavier(result, heaviest[low++]);
+            }
+            if ((high & 1) == 1) {
+                result = heavier(result, heaviest[--high]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the heavier of two key positions, the first in key order if they weigh the same; -1 is no key.
+     */
+    private int heavier(int position1, int position2) {
+        if (position1 < 0) {
+            return position2;
+        }
+        if (position2 < 0) {
+            return position1;
+        }
+        if (weights[position1] != weights[position2]) {
+            return weights[position1] > weights[position2] ? position1 : position2;
+        }
+        return Math.min(position1, position2);
+    }
+}
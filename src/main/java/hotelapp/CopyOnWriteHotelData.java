@@ -0,0 +1,320 @@
+package hotelapp;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Hotel data whose readers never lock. The data is kept as a version that is never changed once
+ * published: a writer copies the current version, applies its change to the copy and publishes the
+ * copy through a single volatile reference, so a reader works on whichever version it read at the start
+ * of its call, and readers neither wait for writers nor contend with each other on a shared reader count.
+ * Writers are serialized among themselves. A copy shares all of the version's structures, see
+ * HotelReviewData.copy(), and a write then copies only what it changes: the reviews of the hotels it
+ * touches, the posting lists of the words of those reviews, and the few nodes of the versioned maps and
+ * arrays on the way to them. So a single review costs time in its own size, not in the size of the data.
+ *
+ * The maps and collections returned by the getters belong to a published version and must not be changed.
+ */
+public class CopyOnWriteHotelData implements HotelData {
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private volatile HotelReviewData current;
+    // Whether a build of the suggestions of the current version is scheduled, see scheduleSuggestions()
+    private final AtomicBoolean suggestionsScheduled = new AtomicBoolean();
+
+    /**
+     * Constructor for the CopyOnWriteHotelData class.
+     *
+     * @param data The data of the first version, which is copied; it must not be changed at the same time
+     *             as this data afterwards, since the two share their term dictionary.
+     */
+    public CopyOnWriteHotelData(HotelReviewData data) {
+        this.current = data.copy();
+        current.buildSuggestionsInBackground();
+    }
+
+    /**
+     * A change applied to the copy of the current version.
+     */
+    private interface Update {
+        void apply(HotelReviewData next);
+    }
+
+    /**
+     * Applies a change to a copy of the current version and publishes the copy.
+     * The copy serves the suggestions of the version it was copied from until they are built again for it.
+     */
+    private void update(Update update) {
+        try {
+            writeLock.lock();
+            HotelReviewData next = current.copy();
+            update.apply(next);
+            next.buildSuggestionsInBackground();
+            current = next;
+        } finally {
+            writeLock.unlock();
+        }
+        scheduleSuggestions();
+    }
+
+    /**
+     * Schedules building the suggestions of the current version again on HotelReviewData.SUGGESTIONS_BUILDER,
+     * unless a build is scheduled already, so a burst of writes builds them once for the latest version instead
+     * of once for every version. A published version is not changed any more, so the build takes no lock.
+     */
+    private void scheduleSuggestions() {
+        if (suggestionsScheduled.compareAndSet(false, true)) {
+            HotelReviewData.SUGGESTIONS_BUILDER.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    suggestionsScheduled.set(false);
+                    HotelReviewData version = current;
+                    // Only once someone asked for suggestions, like HotelReviewData schedules its own builds
+                    if (version.hasSuggestions()) {
+                        version.refreshSuggestions();
+                    }
+                }
+            }, HotelReviewData.SUGGESTIONS_REFRESH_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public TreeMap<String, Hotel> getHotelMap() {
+        return current.getHotelMap();
+    }
+
+    @Override
+    public Map<Integer, SortedReviews> getReviewMap() {
+        return current.getReviewMap();
+    }
+
+    @Override
+    public Map<String, PostingList> getWordMap() {
+        return current.getWordMap();
+    }
+
+    @Override
+    public Hotel getHotelById(String hotelId) {
+        return current.getHotelById(hotelId);
+    }
+
+    @Override
+    public SortedReviews getReviewsByHotelId(String hotelId) {
+        return current.getReviewsByHotelId(hotelId);
+    }
+
+    @Override
+    public Collection<Map.Entry<Review, Integer>> getReviewsByWord(String word) {
+        return current.getReviewsByWord(word);
+    }
+
+    @Override
+    public List<Map.Entry<Review, Double>> getTopReviewsByWords(String query, int k) {
+        return current.getTopReviewsByWords(query, k);
+    }
+
+    @Override
+    public List<Map.Entry<Review, Integer>> getReviewsByQuery(String query) {
+        return current.getReviewsByQuery(query);
+    }
+
+    @Override
+    public String findWord(String word) {
+        return current.findWord(word);
+    }
+
+    @Override
+    public void findWord(String word, int offset, int limit, Appendable out) throws IOException {
+        current.findWord(word, offset, limit, out);
+    }
+
+    @Override
+    public List<Review> getReviewPageByWord(String word, int offset, int limit) {
+        return current.getReviewPageByWord(word, offset, limit);
+    }
+
+    @Override
+    public String findQuery(String query) {
+        return current.findQuery(query);
+    }
+
+    @Override
+    public List<Map.Entry<Review, Double>> getReviewsByFuzzyWord(String word, int maxDistance) {
+        return current.getReviewsByFuzzyWord(word, maxDistance);
+    }
+
+    @Override
+    public String findWordFuzzy(String word) {
+        return current.findWordFuzzy(word);
+    }
+
+    @Override
+    public List<Hotel> searchHotelsByName(String keyword) {
+        return current.searchHotelsByName(keyword);
+    }
+
+    @Override
+    public List<Hotel> suggestHotels(String prefix, int limit) {
+        return current.suggestHotels(prefix, limit);
+    }
+
+    @Override
+    public List<Map.Entry<String, Integer>> suggestWords(String prefix, int limit) {
+        return current.suggestWords(prefix, limit);
+    }
+
+    @Override
+    public String findHotelInfo(String targetHotelId) {
+        return current.findHotelInfo(targetHotelId);
+    }
+
+    @Override
+    public String findReviewInfo(int targetHotelId) {
+        return current.findReviewInfo(targetHotelId);
+    }
+
+    @Override
+    public void findReviewInfo(int targetHotelId, int offset, int limit, Appendable out) throws IOException {
+        current.findReviewInfo(targetHotelId, offset, limit, out);
+    }
+
+    @Override
+    public List<Review> getReviewPageByHotelId(int targetHotelId, int offset, int limit) {
+        return current.getReviewPageByHotelId(targetHotelId, offset, limit);
+    }
+
+    @Override
+    public void addHotels(final List<Hotel> hotels) {
+        update(new Update() {
+            @Override
+            public void apply(HotelReviewData next) {
+                next.addHotels(hotels);
+            }
+        });
+    }
+
+    @Override
+    public void addReviews(final List<Review> hotelReview) {
+        update(new Update() {
+            @Override
+            public void apply(HotelReviewData next) {
+                next.addReviews(hotelReview);
+            }
+        });
+    }
+
+    /**
+     * Merges the reviews of another HotelReviewData into a new version.
+     * The other data copies the reviews of the merged hotels before it changes them again.
+     *
+     * @param other The HotelReviewData whose reviews are merged into this one.
+     */
+    @Override
+    public void mergeReviews(final HotelReviewData other) {
+        update(new Update() {
+            @Override
+            public void apply(HotelReviewData next) {
+                next.mergeReviews(other);
+            }
+        });
+    }
+
+    @Override
+    public void buildWordMap() {
+        update(new Update() {
+            @Override
+            public void apply(HotelReviewData next) {
+                next.buildWordMap();
+            }
+        });
+    }
+
+    @Override
+    public void buildWordMap(final ForkJoinPool pool) {
+        update(new Update() {
+            @Override
+            public void apply(HotelReviewData next) {
+                next.buildWordMap(pool);
+            }
+        });
+    }
+
+    @Override
+    public void buildWordMapSequential() {
+        update(new Update() {
+            @Override
+            public void apply(HotelReviewData next) {
+                next.buildWordMapSequential();
+            }
+        });
+    }
+
+    /**
+     * Replaces reviews in a new version, so readers see either all of a file's old content or all of its new content.
+     *
+     * @param oldReviews The reviews to retract.
+     * @param newReviews The reviews to add.
+     */
+    @Override
+    public void replaceReviews(final List<Review> oldReviews, final List<Review> newReviews) {
+        update(new Update() {
+            @Override
+            public void apply(HotelReviewData next) {
+                next.replaceReviews(oldReviews, newReviews);
+            }
+        });
+    }
+
+    @Override
+    public void applyReviewAdded(final Review review) {
+        update(new Update() {
+            @Override
+            public void apply(HotelReviewData next) {
+                next.applyReviewAdded(review);
+            }
+        });
+    }
+
+    @Override
+    public void applyReviewEdited(final Review review) {
+        update(new Update() {
+            @Override
+            public void apply(HotelReviewData next) {
+                next.applyReviewEdited(review);
+            }
+        });
+    }
+
+    @Override
+    public void applyReviewDeleted(final int hotelId, final String reviewId) {
+        update(new Update() {
+            @Override
+            public void apply(HotelReviewData next) {
+                next.applyReviewDeleted(hotelId, reviewId);
+            }
+        });
+    }
+
+    /**
+     * Adds postings of a word in a new version. Restoring a whole index this way publishes a version for
+     * every word; restore into a HotelReviewData and wrap it instead.
+     *
+     * @param word     The word the postings belong to.
+     * @param postings The reviews containing the word and their frequencies.
+     */
+    @Override
+    public void addWordPostings(final String word, final List<Map.Entry<Review, Integer>> postings) {
+        update(new Update() {
+            @Override
+            public void apply(HotelReviewData next) {
+                next.addWordPostings(word, postings);
+            }
+        });
+    }
+}
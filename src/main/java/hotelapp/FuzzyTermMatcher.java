@@ -0,0 +1,234 @@
+package hotelapp;
+
+import java.util.Arrays;
+
+/**
+ * Finds the terms of a TermDictionary within a small edit distance of a word, such as "breakfast"
+ * for "breakfest".
+ *
+ * The term IDs are kept sorted by term, which lays the terms out in the order of a depth-first walk of
+ * their trie: the terms sharing a prefix are next to each other. The matcher walks them computing one row
+ * of the Levenshtein table against the word per character, and reuses the rows of the prefix a term shares
+ * with the previous one. As soon as every cell of a row is above the distance, no term with that prefix can
+ * match, and the whole run of terms with the prefix is skipped with a galloping search. So only the prefixes
+ * within the distance of a prefix of the word are visited, never the whole dictionary.
+ *
+ * The dictionary only grows. Terms added after the last sort are checked one by one, and are sorted with
+ * KeySorter and merged into the order once there are enough of them. Safe to call from concurrent readers, also while
+ * one thread adds to the dictionary; the copies of a HotelReviewData share the matcher with their dictionary, and
+ * the terms a version has no postings for are matched too and left to the caller to skip.
+ */
+class FuzzyTermMatcher {
+    private static final int MIN_UNSORTED_TO_MERGE = 256;
+
+    private final TermDictionary terms;
+    private final KeySorter sorter = new KeySorter() {
+        @Override
+        protected int length(int id) {
+            return terms.length(id);
+        }
+
+        @Override
+        protected char charAt(int id, int index) {
+            return terms.charAt(id, index);
+        }
+    };
+    // The IDs from 0 to sorted.length - 1, sorted by term; never changed once published
+    private volatile int[] sorted;
+
+    /**
+     * Constructor for the FuzzyTermMatcher class.
+     *
+     * @param terms The dictionary to search.
+     */
+    public FuzzyTermMatcher(TermDictionary terms) {
+        this(terms, new int[0]);
+    }
+
+    private FuzzyTermMatcher(TermDictionary terms, int[] sorted) {
+        this.terms = terms;
+        this.sorted = sorted;
+    }
+
+    /**
+     * Finds the terms within an edit distance of a word, counting inserted, deleted and substituted characters.
+     *
+     * @param word        The word.
+     * @param maxDistance The largest distance of a match.
+     * @return The matches, each packing the distance in the high int and the term ID in the low int.
+     */
+    public long[] match(CharSequence word, int maxDistance) {
+        int[] order = sortedOrder();
+        // rows[d] is the row of the first d characters of the current term; a row past the word's
+        // length plus the distance is always above it, so no term is followed further
+        int[][] rows = new int[word.length() + maxDistance + 2][word.length() + 1];
+        for (int j = 0; j <= word.length(); j++) {
+            rows[0][j] = j;
+        }
+        Matches matches = new Matches();
+        walk(order, true, word, maxDistance, rows, matches);
+        int[] unsorted = new int[terms.size() - order.length];
+        for (int i = 0; i < unsorted.length; i++) {
+            unsorted[i] = order.length + i;
+        }
+        walk(unsorted, false, word, maxDistance, rows, matches);
+        return Arrays.copyOf(matches.matches, matches.size);
+    }
+
+    /**
+     * Computes the distance of each term of ids to the word, reusing the rows of the prefix shared with
+     * the previous term. When the ids are sorted, a prefix too far from the word skips all its terms.
+     */
+    private void walk(int[] ids, boolean isSorted, CharSequence word, int maxDistance, int[][] rows, Matches matches) {
+        int previous = -1;
+        int validRows = 0;
+        int previousPrunedAt = -1;
+        int i = 0;
+        while (i < ids.length) {
+            int id = ids[i];
+            int length = terms.length(id);
+            int depth = previous < 0 ? 0 : commonPrefix(previous, id, validRows);
+            // Unsorted terms may share the whole prefix the previous term was pruned at
+            int prunedAt = depth == previousPrunedAt ? depth : -1;
+            while (prunedAt < 0 && depth < length) {
+                int min = nextRow(rows[depth], rows[depth + 1], depth, terms.charAt(id, depth), word, maxDistance);
+                depth++;
+                if (min > maxDistance) {
+                    prunedAt = depth;
+                    break;
+                }
+            }
+            previous = id;
+            validRows = depth;
+            previousPrunedAt = prunedAt;
+            if (prunedAt < 0 && Math.abs(length - word.length()) <= maxDistance
+                    && rows[length][word.length()] <= maxDistance) {
+                matches.add((long) rows[length][word.length()] << 32 | id);
+            }
+            i = prunedAt >= 0 && isSorted ? skipPrefix(ids, i, id, prunedAt) : i + 1;
+        }
+    }
+
+    /**
+     * Computes the Levenshtein row of one more character of the term from the row before it. Only the band
+     * of cells within maxDistance of the diagonal can be within the distance, so only they are computed, and
+     * every cell is capped at maxDistance + 1; the cells just outside the band are set to the cap for the next row.
+     *
+     * @param depth The number of characters of the term before c.
+     * @return The smallest cell of the row.
+     */
+    private static int nextRow(int[] previousRow, int[] row, int depth, char c, CharSequence word, int maxDistance) {
+        int cap = maxDistance + 1;
+        int rowIndex = depth + 1;
+        int from = Math.max(1, rowIndex - maxDistance);
+        int to = Math.min(word.length(), rowIndex + maxDistance);
+        row[0] = Math.min(cap, rowIndex);
+        if (from > 1) {
+            row[from - 1] = cap;
+        }
+        int min = row[0];
+        for (int j = from; j <= to; j++) {
+            int substitution = previousRow[j - 1] + (word.charAt(j - 1) == c ? 0 : 1);
+            row[j] = Math.min(cap, Math.min(substitution, Math.min(row[j - 1], previousRow[j]) + 1));
+            min = Math.min(min, row[j]);
+        }
+        if (to + 1 < row.length) {
+            row[to + 1] = cap;
+        }
+        return min;
+    }
+
+    private int commonPrefix(int id1, int id2, int limit) {
+        int max = Math.min(limit, Math.min(terms.length(id1), terms.length(id2)));
+        int i = 0;
+        while (i < max && terms.charAt(id1, i) == terms.charAt(id2, i)) {
+            i++;
+        }
+        return i;
+    }
+
+    private boolean hasPrefix(int id, int prefixId, int prefixLength) {
+        return terms.length(id) >= prefixLength && commonPrefix(id, prefixId, prefixLength) == prefixLength;
+    }
+
+    /**
+     * Returns the position of the first sorted term after position from that does not start with
+     * the first prefixLength characters of the term at from, galloping and then searching binary.
+     */
+    private int skipPrefix(int[] ids, int from, int prefixId, int prefixLength) {
+        int low = from;
+        int step = 1;
+        int high = from + 1;
+        while (high < ids.length && hasPrefix(ids[high], prefixId, prefixLength)) {
+            low = high;
+            step <<= 1;
+            high = from + step;
+        }
+        high = Math.min(high, ids.length);
+        // ids[low] has the prefix, ids[high] does not or is past the end
+        while (high - low > 1) {
+            int mid = (low + high) >>> 1;
+            if (hasPrefix(ids[mid], prefixId, prefixLength)) {
+                low = mid;
+            } else {
+                high = mid;
+            }
+        }
+        return high;
+    }
+
+    /**
+     * Returns the sorted order, first merging the terms added since the last sort when there are enough.
+     */
+    private int[] sortedOrder() {
+        int[] order = sorted;
+        if (terms.size() - order.length < Math.max(MIN_UNSORTED_TO_MERGE, order.length >> 4)) {
+            return order;
+        }
+        synchronized (this) {
+            order = sorted;
+            if (terms.size() - order.length >= Math.max(MIN_UNSORTED_TO_MERGE, order.length >> 4)) {
+                order = merge(order, terms.size());
+                sorted = order;
+            }
+            return order;
+        }
+    }
+
+    /**
+     * Sorts the IDs from order.length to size - 1 and merges them into order.
+     */
+    private int[] merge(int[] order, int size) {
+        int[] added = new int[size - order.length];
+        for (int i = 0; i < added.length; i++) {
+            added[i] = order.length + i;
+        }
+        sorter.sort(added);
+        int[] merged = new int[size];
+        int i = 0;
+        int j = 0;
+        for (int k = 0; k < size; k++) {
+            if (j == added.length || (i < order.length && sorter.compare(order[i], added[j]) < 0)) {
+                merged[k] = order[i++];
+            } else {
+                merged[k] = added[j++];
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * The packed matches found so far.
+     */
+    private static class Matches {
+        private long[] matches = new long[16];
+        private int size;
+
+        public void add(long match) {
+            if (size == matches.length) {
+                matches = Arrays.copyOf(matches, size * 2);
+            }
+            matches[size++] = match;
+        }
+    }
+}
@@ -89,6 +89,14 @@ public class Hotel {
         return this.hotelId;
     }
 
+    /**
+     * Get the location of the hotel.
+     * @return The location, or null if the hotel has none.
+     */
+    public Location getLocation() {
+        return this.location;
+    }
+
     /**
      * Get the latitude of the hotel's location.
      * @return The latitude.
@@ -0,0 +1,222 @@
+package hotelapp;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * The hotels, their reviews and the word index, as the loaders, the watcher, the command line and the
+ * servlets use them. HotelReviewData implements it for one thread, ThreadSafeHotelData and StripedHotelData
+ * with locks, and CopyOnWriteHotelData with readers that never lock; see HotelReviewData for the details
+ * of each method.
+ */
+public interface HotelData {
+
+    /**
+     * @return The hotels by hotel ID.
+     */
+    TreeMap<String, Hotel> getHotelMap();
+
+    /**
+     * @return The sorted reviews of each hotel by hotel ID.
+     */
+    Map<Integer, SortedReviews> getReviewMap();
+
+    /**
+     * @return The word index as a read-only map from word to postings.
+     */
+    Map<String, PostingList> getWordMap();
+
+    /**
+     * @param hotelId The ID of a hotel.
+     * @return The hotel, or null if there is none with the ID.
+     */
+    Hotel getHotelById(String hotelId);
+
+    /**
+     * @param hotelId The ID of a hotel.
+     * @return The reviews of the hotel, or null if it has none.
+     */
+    SortedReviews getReviewsByHotelId(String hotelId);
+
+    /**
+     * @param word A word.
+     * @return The (review, frequency) postings of the word in posting order, or null if it is not indexed.
+     */
+    Collection<Map.Entry<Review, Integer>> getReviewsByWord(String word);
+
+    /**
+     * @param word        A word, possibly misspelled.
+     * @param maxDistance The largest edit distance of a matching word, from 0 to 2.
+     * @return The reviews containing words close to the word and their scores, best first.
+     */
+    List<Map.Entry<Review, Double>> getReviewsByFuzzyWord(String word, int maxDistance);
+
+    /**
+     * @param query The query words.
+     * @param k     The number of reviews to return.
+     * @return The k reviews ranked best by BM25 and their scores, best first.
+     */
+    List<Map.Entry<Review, Double>> getTopReviewsByWords(String query, int k);
+
+    /**
+     * @param query A boolean query such as "quiet clean OR tidy NOT noisy".
+     * @return The matching reviews and their scores, best first.
+     */
+    List<Map.Entry<Review, Integer>> getReviewsByQuery(String query);
+
+    /**
+     * @param word   A word.
+     * @param offset The number of matching reviews to skip.
+     * @param limit  The maximum number of reviews to return.
+     * @return A page of the reviews containing the word in posting order, or null if it is not indexed.
+     */
+    List<Review> getReviewPageByWord(String word, int offset, int limit);
+
+    /**
+     * @param targetHotelId The ID of a hotel.
+     * @param offset        The number of reviews to skip.
+     * @param limit         The maximum number of reviews to return.
+     * @return A page of the reviews of the hotel, newest first, or null if it has none.
+     */
+    List<Review> getReviewPageByHotelId(int targetHotelId, int offset, int limit);
+
+    /**
+     * @param keyword A part of a hotel name; empty or null finds all hotels.
+     * @return The hotels whose name contains the keyword, ignoring case, by hotel ID.
+     */
+    List<Hotel> searchHotelsByName(String keyword);
+
+    /**
+     * @param prefix The typed beginning of a hotel name; null or blank suggests nothing.
+     * @param limit  The maximum number of hotels to return.
+     * @return The hotels with a name or a word of their name starting with the prefix, most reviewed first.
+     */
+    List<Hotel> suggestHotels(String prefix, int limit);
+
+    /**
+     * @param prefix The typed beginning of a word; null or blank suggests nothing.
+     * @param limit  The maximum number of words to return.
+     * @return The review words starting with the prefix and their numbers of reviews, most reviews first.
+     */
+    List<Map.Entry<String, Integer>> suggestWords(String prefix, int limit);
+
+    /**
+     * @param word A word.
+     * @return The reviews containing the word, formatted.
+     */
+    String findWord(String word);
+
+    /**
+     * Writes a page of the reviews containing a word, formatted.
+     *
+     * @param word   A word.
+     * @param offset The number of matching reviews to skip.
+     * @param limit  The maximum number of reviews to write.
+     * @param out    Receives the formatted reviews.
+     * @throws IOException If writing to out fails.
+     */
+    void findWord(String word, int offset, int limit, Appendable out) throws IOException;
+
+    /**
+     * @param word A word, possibly misspelled.
+     * @return The reviews containing the word or words close to it, formatted.
+     */
+    String findWordFuzzy(String word);
+
+    /**
+     * @param query A boolean query.
+     * @return The matching reviews, formatted.
+     */
+    String findQuery(String query);
+
+    /**
+     * @param targetHotelId The ID of a hotel.
+     * @return The hotel, formatted, or null if there is none with the ID.
+     */
+    String findHotelInfo(String targetHotelId);
+
+    /**
+     * @param targetHotelId The ID of a hotel.
+     * @return The reviews of the hotel, formatted.
+     */
+    String findReviewInfo(int targetHotelId);
+
+    /**
+     * Writes a page of the reviews of a hotel, formatted.
+     *
+     * @param targetHotelId The ID of a hotel.
+     * @param offset        The number of reviews to skip.
+     * @param limit         The maximum number of reviews to write.
+     * @param out           Receives the formatted reviews.
+     * @throws IOException If writing to out fails.
+     */
+    void findReviewInfo(int targetHotelId, int offset, int limit, Appendable out) throws IOException;
+
+    /**
+     * @param hotels The hotels to add.
+     */
+    void addHotels(List<Hotel> hotels);
+
+    /**
+     * @param hotelReview The reviews to add, all of the same hotel.
+     */
+    void addReviews(List<Review> hotelReview);
+
+    /**
+     * @param other The data whose reviews are merged into this one; it copies the reviews it changes afterwards.
+     */
+    void mergeReviews(HotelReviewData other);
+
+    /**
+     * Builds the word index from the reviews, in parallel on the common ForkJoinPool.
+     */
+    void buildWordMap();
+
+    /**
+     * Builds the word index from the reviews, in parallel on the given pool.
+     *
+     * @param pool The pool the index is built on.
+     */
+    void buildWordMap(ForkJoinPool pool);
+
+    /**
+     * Builds the word index from the reviews on the calling thread.
+     */
+    void buildWordMapSequential();
+
+    /**
+     * Adds already computed postings of a word to the index.
+     *
+     * @param word     The word.
+     * @param postings The reviews containing the word and the frequency of the word in each.
+     */
+    void addWordPostings(String word, List<Map.Entry<Review, Integer>> postings);
+
+    /**
+     * Replaces reviews and their postings, so readers see either all of the old reviews or all of the new ones.
+     *
+     * @param oldReviews The reviews to retract, may be empty.
+     * @param newReviews The reviews to add, may be empty.
+     */
+    void replaceReviews(List<Review> oldReviews, List<Review> newReviews);
+
+    /**
+     * @param review A review that was just written.
+     */
+    void applyReviewAdded(Review review);
+
+    /**
+     * @param review The edited version of a stored review.
+     */
+    void applyReviewEdited(Review review);
+
+    /**
+     * @param hotelId  The ID of the hotel of a deleted review.
+     * @param reviewId The ID of the review.
+     */
+    void applyReviewDeleted(int hotelId, String reviewId);
+}
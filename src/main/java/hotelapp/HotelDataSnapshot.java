@@ -0,0 +1,398 @@
+package hotelapp;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Compact binary snapshot of the hotel map, the review map and the word index.
+ * The snapshot is written with a FileChannel and read back through a memory-mapped buffer,
+ * so a restart does not have to walk and parse the JSON input again.
+ *
+ * Layout (all numbers big-endian):
+ * <pre>
+ * int magic, int version, long sourceFingerprint
+ * int hotelCount, hotelCount * (name, hotelId, address, city, state, country, byte hasLocation[, double lat, double lng])
+ * int hotelsWithReviews, per hotel: int hotelId, int reviewCount,
+ *     reviewCount * (reviewId, double rating, title, reviewText, userNickname, datePosted)
+ * int ordinalCount, ordinalCount * int reviewPosition
+ * int termCount, per term ID: term, int postingCount[, int byteCount, byteCount * byte encodedPostings]
+ * </pre>
+ * Strings are stored as an int byte length (-1 for null) followed by UTF-8 bytes.
+ * The review position of an ordinal is the place of its review in the order the review section lists them.
+ * The terms are the term dictionary in term ID order, and each term with postings has its PostingList as it is
+ * encoded, with the ordinals of the ordinal section, so reading installs the index without building it.
+ */
+public class HotelDataSnapshot {
+    private static final int MAGIC = 0x48544c53; // "HTLS"
+    // 2: reviews without a date are kept (sorted last) instead of dropping their hotel
+    // 3: hotels without a location are kept, with a presence byte before the coordinates
+    // 4: the term dictionary and the encoded posting lists instead of decoded postings
+    private static final int VERSION = 4;
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    /**
+     * Loads the data from the snapshot if it is up to date with the source files,
+     * otherwise parses the source files with the given loader, builds the word map
+     * and writes a new snapshot for the next start.
+     *
+     * @param snapshotPath    The path of the snapshot file.
+     * @param hotelsFilePath  The path of the hotels data file (may be null if not provided).
+     * @param reviewsFilePath The path of the root directory for review files (may be null if not provided).
+     * @param target          The empty data to restore the snapshot into, of the kind the loader returns.
+     * @param loader          Parses the source files when the snapshot can not be used.
+     * @return The loaded data, with the word map built.
+     */
+    public static HotelReviewData loadOrParse(String snapshotPath, String hotelsFilePath, String reviewsFilePath,
+                                              HotelReviewData target, Supplier<HotelReviewData> loader) {
+        Path snapshot = Paths.get(snapshotPath);
+        long fingerprint = sourceFingerprint(hotelsFilePath, reviewsFilePath);
+        HotelReviewData data = read(snapshot, fingerprint, target);
+        if (data != null) {
+            return data;
+        }
+        data = loader.get();
+        data.buildWordMap();
+        write(data, snapshot, fingerprint);
+        return data;
+    }
+
+    /**
+     * Computes a fingerprint of the source files from their paths, sizes and modification times.
+     * The fingerprint changes when a file is added, removed, resized or touched.
+     *
+     * @param hotelsFilePath  The path of the hotels data file (may be null).
+     * @param reviewsFilePath The path of the root directory for review files (may be null).
+     * @return The fingerprint of the source files.
+     */
+    public static long sourceFingerprint(String hotelsFilePath, String reviewsFilePath) {
+        long fingerprint = VERSION;
+        try {
+            if (hotelsFilePath != null) {
+                fingerprint = mix(fingerprint ^ fileFingerprint(Paths.get(hotelsFilePath)));
+            }
+            if (reviewsFilePath != null) {
+                long files = 0;
+                long sum = 0;
+                try (Stream<Path> paths = Files.walk(Paths.get(reviewsFilePath))) {
+                    for (Path path : (Iterable<Path>) paths::iterator) {
+                        if (path.toString().endsWith(".json") && Files.isRegularFile(path)) {
+                            // Order independent, the walk order is not specified
+                            sum += fileFingerprint(path);
+                            files++;
+                        }
+                    }
+                }
+                fingerprint = mix(fingerprint ^ mix(sum ^ files));
+            }
+        } catch (IOException e) {
+            System.out.println("Could not read the source files: " + e);
+        }
+        return fingerprint;
+    }
+
+    private static long fileFingerprint(Path path) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        long hash = mix(path.toString().hashCode());
+        hash = mix(hash ^ attributes.size());
+        return mix(hash ^ attributes.lastModifiedTime().toMillis());
+    }
+
+    // splitmix64 finalizer
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Writes the hotels, reviews and word index of the data to a snapshot file.
+     * The file is written next to the target and moved into place once complete.
+     * The data must not change while it is written. The posting lists are written as they are encoded, unless
+     * the data still numbers removed reviews: then the ordinals are compacted in the snapshot and the lists
+     * encoded again with the new ones.
+     *
+     * @param data              The data to write.
+     * @param snapshot          The path of the snapshot file.
+     * @param sourceFingerprint The fingerprint of the source files the data was loaded from.
+     */
+    public static void write(HotelReviewData data, Path snapshot, long sourceFingerprint) {
+        Path tmp = snapshot.resolveSibling(snapshot.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            SnapshotWriter out = new SnapshotWriter(channel);
+            out.putInt(MAGIC);
+            out.putInt(VERSION);
+            out.putLong(sourceFingerprint);
+
+            out.putInt(data.getHotelMap().size());
+            for (Hotel hotel : data.getHotelMap().values()) {
+                out.putString(hotel.getName());
+                out.putString(hotel.getHotelId());
+                out.putString(hotel.getAddress());
+                out.putString(hotel.getCity());
+                out.putString(hotel.getState());
+                out.putString(hotel.getCountry());
+                Hotel.Location location = hotel.getLocation();
+                out.putByte(location == null ? 0 : 1);
+                if (location != null) {
+                    out.putDouble(location.getLat());
+                    out.putDouble(location.getLng());
+                }
+            }
+
+            Map<Review, Integer> positions = new IdentityHashMap<>();
+            out.putInt(data.getReviewMap().size());
+            for (Map.Entry<Integer, SortedReviews> entry : data.getReviewMap().entrySet()) {
+                out.putInt(entry.getKey());
+                out.putInt(entry.getValue().size());
+                for (Review review : entry.getValue()) {
+                    positions.put(review, positions.size());
+                    out.putString(review.getReviewId());
+                    out.putDouble(review.getRatingOverall());
+                    out.putString(review.getTitle());
+                    out.putString(review.getReviewText());
+                    out.putString(review.getUserNickname());
+                    out.putString(review.getDatePosted());
+                }
+            }
+
+            // Ordinals of removed reviews are left out of the snapshot, the ones after them move down
+            List<Review> reviewsByOrdinal = data.reviewsByOrdinal();
+            int[] snapshotOrdinals = new int[reviewsByOrdinal.size()];
+            List<Integer> ordinalPositions = new ArrayList<>(reviewsByOrdinal.size());
+            for (int ordinal = 0; ordinal < reviewsByOrdinal.size(); ordinal++) {
+                Review review = reviewsByOrdinal.get(ordinal);
+                Integer position = positions.get(review);
+                if (position == null || data.indexedOrdinal(review) != ordinal) {
+                    snapshotOrdinals[ordinal] = -1;
+                    continue;
+                }
+                snapshotOrdinals[ordinal] = ordinalPositions.size();
+                ordinalPositions.add(position);
+            }
+            boolean compacted = ordinalPositions.size() < reviewsByOrdinal.size();
+            out.putInt(ordinalPositions.size());
+            for (int position : ordinalPositions) {
+                out.putInt(position);
+            }
+
+            TermDictionary terms = data.termDictionary();
+            int termCount = terms.size();
+            out.putInt(termCount);
+            for (int id = 0; id < termCount; id++) {
+                out.putString(terms.term(id));
+                PostingList postings = data.postings(id);
+                if (postings == null) {
+                    out.putInt(0);
+                    continue;
+                }
+                if (compacted) {
+                    postings = renumber(postings, snapshotOrdinals);
+                }
+                out.putInt(postings.size());
+                out.putInt(postings.encoded().length);
+                out.putBytes(postings.encoded());
+            }
+            out.flush();
+        } catch (IOException e) {
+            System.out.println("Could not write the snapshot: " + e);
+            return;
+        }
+        try {
+            Files.move(tmp, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.out.println("Could not write the snapshot: " + e);
+        }
+    }
+
+    /**
+     * Encodes a posting list again with the ordinals the snapshot gives the reviews, in the same posting order.
+     */
+    private static PostingList renumber(PostingList postings, int[] snapshotOrdinals) {
+        int[] ordinals = new int[postings.size()];
+        int[] frequencies = new int[postings.size()];
+        PostingList.Cursor cursor = postings.cursor();
+        for (int i = 0; cursor.next(); i++) {
+            ordinals[i] = snapshotOrdinals[cursor.ordinal()];
+            frequencies[i] = cursor.frequency();
+        }
+        return PostingList.encode(ordinals, frequencies, ordinals.length);
+    }
+
+    /**
+     * Reads a snapshot file through a memory-mapped buffer into empty data, such as a ThreadSafeHotelData or
+     * a StripedHotelData. The hotels and reviews are added as usual, and the word index is installed in one
+     * step, see HotelReviewData.restoreIndex; the data must not be used by other threads before it is returned.
+     *
+     * @param snapshot          The path of the snapshot file.
+     * @param sourceFingerprint The fingerprint the snapshot must have been written with.
+     * @param data              The empty data to restore into.
+     * @return The restored data, or null if the snapshot is missing, outdated or unreadable.
+     */
+    public static HotelReviewData read(Path snapshot, long sourceFingerprint, HotelReviewData data) {
+        if (!Files.isRegularFile(snapshot)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+            MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (in.getInt() != MAGIC || in.getInt() != VERSION || in.getLong() != sourceFingerprint) {
+                return null;
+            }
+
+            int hotelCount = in.getInt();
+            List<Hotel> hotels = new ArrayList<>(hotelCount);
+            for (int i = 0; i < hotelCount; i++) {
+                String name = getString(in);
+                String hotelId = getString(in);
+                String address = getString(in);
+                String city = getString(in);
+                String state = getString(in);
+                String country = getString(in);
+                Hotel.Location location = in.get() == 0 ? null : new Hotel.Location(in.getDouble(), in.getDouble());
+                hotels.add(new Hotel(name, hotelId, address, city, state, country, location));
+            }
+            data.addHotels(hotels);
+
+            List<Review> reviewsByPosition = new ArrayList<>();
+            int hotelsWithReviews = in.getInt();
+            for (int i = 0; i < hotelsWithReviews; i++) {
+                int hotelId = in.getInt();
+                int reviewCount = in.getInt();
+                List<Review> reviews = new ArrayList<>(reviewCount);
+                for (int j = 0; j < reviewCount; j++) {
+                    String reviewId = getString(in);
+                    double rating = in.getDouble();
+                    String title = getString(in);
+                    String reviewText = getString(in);
+                    String userNickname = getString(in);
+                    String datePosted = getString(in);
+                    reviews.add(new Review(hotelId, reviewId, rating, title, reviewText, userNickname, datePosted));
+                }
+                reviewsByPosition.addAll(reviews);
+                data.addReviews(reviews);
+            }
+
+            int ordinalCount = in.getInt();
+            List<Review> reviewsByOrdinal = new ArrayList<>(ordinalCount);
+            for (int i = 0; i < ordinalCount; i++) {
+                reviewsByOrdinal.add(reviewsByPosition.get(in.getInt()));
+            }
+
+            int termCount = in.getInt();
+            TermDictionary terms = new TermDictionary();
+            PostingList[] postings = new PostingList[termCount];
+            for (int id = 0; id < termCount; id++) {
+                String term = getString(in);
+                if (term == null || terms.add(term) != id) {
+                    throw new IOException("Duplicate term in the snapshot: " + term);
+                }
+                int postingCount = in.getInt();
+                if (postingCount > 0) {
+                    byte[] encoded = new byte[in.getInt()];
+                    in.get(encoded);
+                    postings[id] = PostingList.fromEncoded(encoded, postingCount);
+                }
+            }
+            data.restoreIndex(terms, postings, reviewsByOrdinal);
+            return data;
+        } catch (IOException | BufferUnderflowException | IndexOutOfBoundsException e) {
+            System.out.println("Could not read the snapshot, parsing the source files: " + e);
+            return null;
+        }
+    }
+
+    private static String getString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Buffers primitive values and strings and writes them to a FileChannel in large blocks.
+     */
+    private static class SnapshotWriter {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+        public SnapshotWriter(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        public void putInt(int value) throws IOException {
+            ensure(Integer.BYTES);
+            buffer.putInt(value);
+        }
+
+        public void putByte(int value) throws IOException {
+            ensure(1);
+            buffer.put((byte) value);
+        }
+
+        public void putLong(long value) throws IOException {
+            ensure(Long.BYTES);
+            buffer.putLong(value);
+        }
+
+        public void putDouble(double value) throws IOException {
+            ensure(Double.BYTES);
+            buffer.putDouble(value);
+        }
+
+        public void putString(String value) throws IOException {
+            if (value == null) {
+                putInt(-1);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            putInt(bytes.length);
+            putBytes(bytes);
+        }
+
+        public void putBytes(byte[] bytes) throws IOException {
+            if (bytes.length > buffer.capacity()) {
+                flush();
+                ByteBuffer large = ByteBuffer.wrap(bytes);
+                while (large.hasRemaining()) {
+                    channel.write(large);
+                }
+                return;
+            }
+            ensure(bytes.length);
+            buffer.put(bytes);
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+
+        public void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+}
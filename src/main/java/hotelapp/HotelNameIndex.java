@@ -0,0 +1,237 @@
+package hotelapp;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A trigram index over hotel names, for finding the hotels whose name contains a keyword, ignoring case.
+ * Immutable once built.
+ *
+ * Every run of three characters of a lowercased name is a trigram, and each trigram keeps the ascending
+ * positions of the hotels whose name has it. The trigrams are sorted longs of three 16 bit characters, and
+ * their postings are slices of one int array. A keyword of three or more characters can only be in the names
+ * that have all its trigrams, so the postings of its trigrams are intersected, rarest first, and only the
+ * names left are checked. The names are padded with two characters below any letter, so that every position
+ * of a name starts a trigram: a keyword of one or two characters is in exactly the names with a trigram that
+ * starts with it, the trigrams of one range of the sorted longs.
+ */
+class HotelNameIndex {
+    private static final char PADDING = '\0';
+
+    private final Hotel[] hotels;
+    private final String[] names;
+    private final long[] trigrams;
+    private final int[] offsets; // the postings of trigram i are postings[offsets[i]] to postings[offsets[i + 1] - 1]
+    private final int[] postings;
+
+    /**
+     * Constructor for the HotelNameIndex class.
+     *
+     * @param hotels The hotels, in the order search results are returned in.
+     */
+    public HotelNameIndex(List<Hotel> hotels) {
+        this.hotels = hotels.toArray(new Hotel[0]);
+        names = new String[this.hotels.length];
+        // Number the distinct trigrams as they come, and keep each hotel's trigram numbers in order
+        Map<Long, Integer> numbers = new HashMap<>();
+        List<Long> numbered = new ArrayList<>();
+        int[] counts = new int[256];
+        int[] hotelTrigrams = new int[64];
+        int size = 0;
+        int[] hotelEnds = new int[this.hotels.length];
+        int[] lastHotel = new int[256];
+        for (int i = 0; i < this.hotels.length; i++) {
+            names[i] = this.hotels[i].getName().toLowerCase();
+            String padded = names[i] + PADDING + PADDING;
+            for (int start = 0; start + 3 <= padded.length(); start++) {
+                long trigram = trigram(padded.charAt(start), padded.charAt(start + 1), padded.charAt(start + 2));
+                Integer number = numbers.get(trigram);
+                if (number == null) {
+                    number = numbered.size();
+                    numbers.put(trigram, number);
+                    numbered.add(trigram);
+                    if (number == counts.length) {
+                        counts = Arrays.copyOf(counts, number * 2);
+                        lastHotel = Arrays.copyOf(lastHotel, number * 2);
+                    }
+                    lastHotel[number] = -1;
+                }
+                if (lastHotel[number] == i) {
+                    continue;
+                }
+                lastHotel[number] = i;
+                counts[number]++;
+                if (size == hotelTrigrams.length) {
+                    hotelTrigrams = Arrays.copyOf(hotelTrigrams, size * 2);
+                }
+                hotelTrigrams[size++] = number;
+            }
+            hotelEnds[i] = size;
+        }
+
+        // Sort the trigrams, then lay out the postings in that order
+        trigrams = new long[numbered.size()];
+        for (int number = 0; number < trigrams.length; number++) {
+            trigrams[number] = numbered.get(number);
+        }
+        Arrays.sort(trigrams);
+        offsets = new int[trigrams.length + 1];
+        int[] next = new int[trigrams.length];
+        int[] positions = new int[trigrams.length];
+        for (int number = 0; number < trigrams.length; number++) {
+            positions[number] = Arrays.binarySearch(trigrams, numbered.get(number));
+            offsets[positions[number] + 1] = counts[number];
+        }
+        for (int position = 0; position < trigrams.length; position++) {
+            offsets[position + 1] += offsets[position];
+            next[position] = offsets[position];
+        }
+        postings = new int[size];
+        int from = 0;
+        for (int i = 0; i < this.hotels.length; i++) {
+            for (int j = from; j < hotelEnds[i]; j++) {
+                postings[next[positions[hotelTrigrams[j]]]++] = i;
+            }
+            from = hotelEnds[i];
+        }
+    }
+
+    /**
+     * Finds the hotels whose name contains the keyword, ignoring case.
+     *
+     * @param keyword The keyword; empty or null finds all hotels.
+     * @return The hotels, in the order they were given.
+     */
+    public List<Hotel> search(String keyword) {
+        List<Hotel> matches = new ArrayList<>();
+        if (keyword == null || keyword.isEmpty()) {
+            matches.addAll(Arrays.asList(hotels));
+            return matches;
+        }
+        String lowerKeyword = keyword.toLowerCase();
+        if (lowerKeyword.length() < 3) {
+            for (int i : startingWith(lowerKeyword)) {
+                matches.add(hotels[i]);
+            }
+            return matches;
+        }
+        for (int i : containingTrigrams(lowerKeyword)) {
+            if (names[i].contains(lowerKeyword)) {
+                matches.add(hotels[i]);
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Returns the ascending positions of the hotels with a trigram starting with a keyword of one or two
+     * characters, the union of the postings of a range of trigrams.
+     */
+    private int[] startingWith(String keyword) {
+        long low = keyword.length() == 1 ? trigram(keyword.charAt(0), (char) 0, (char) 0)
+                : trigram(keyword.charAt(0), keyword.charAt(1), (char) 0);
+        long high = keyword.length() == 1 ? trigram(keyword.charAt(0), Character.MAX_VALUE, Character.MAX_VALUE)
+                : trigram(keyword.charAt(0), keyword.charAt(1), Character.MAX_VALUE);
+        boolean[] found = new boolean[hotels.length];
+        int count = 0;
+        for (int position = firstAtLeast(low); position < trigrams.length && trigrams[position] <= high; position++) {
+            for (int j = offsets[position]; j < offsets[position + 1]; j++) {
+                if (!found[postings[j]]) {
+                    found[postings[j]] = true;
+                    count++;
+                }
+            }
+        }
+        int[] matches = new int[count];
+        int size = 0;
+        for (int i = 0; size < count; i++) {
+            if (found[i]) {
+                matches[size++] = i;
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Returns the ascending positions of the hotels having every trigram of a keyword of three or more characters.
+     */
+    private int[] containingTrigrams(String keyword) {
+        List<Integer> lists = new ArrayList<>();
+        for (int start = 0; start + 3 <= keyword.length(); start++) {
+            int position = Arrays.binarySearch(trigrams,
+                    trigram(keyword.charAt(start), keyword.charAt(start + 1), keyword.charAt(start + 2)));
+            if (position < 0) {
+                return new int[0];
+            }
+            lists.add(position);
+        }
+        // Start from the rarest trigram, its postings are the most any other list can leave
+        int rarest = lists.get(0);
+        for (int position : lists) {
+            if (length(position) < length(rarest)) {
+                rarest = position;
+            }
+        }
+        int[] candidates = Arrays.copyOfRange(postings, offsets[rarest], offsets[rarest + 1]);
+        int size = candidates.length;
+        for (int position : lists) {
+            if (position == rarest || size == 0) {
+                continue;
+            }
+            size = retainAll(candidates, size, position);
+        }
+        return Arrays.copyOf(candidates, size);
+    }
+
+    /**
+     * Keeps the candidates that are in the postings of a trigram, each found with a galloping search
+     * from where the previous one was found.
+     *
+     * @return The number of candidates kept, moved to the front.
+     */
+    private int retainAll(int[] candidates, int size, int position) {
+        int kept = 0;
+        int low = offsets[position];
+        int end = offsets[position + 1];
+        for (int c = 0; c < size && low < end; c++) {
+            int candidate = candidates[c];
+            int step = 1;
+            int high = low;
+            while (high < end && postings[high] < candidate) {
+                low = high + 1;
+                high = low + step;
+                step <<= 1;
+            }
+            high = Math.min(high, end);
+            // postings[low - 1] < candidate, postings[high] >= candidate or high is the end
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (postings[mid] < candidate) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            if (low < end && postings[low] == candidate) {
+                candidates[kept++] = candidate;
+            }
+        }
+        return kept;
+    }
+
+    private int length(int position) {
+        return offsets[position + 1] - offsets[position];
+    }
+
+    private int firstAtLeast(long trigram) {
+        int position = Arrays.binarySearch(trigrams, trigram);
+        return position >= 0 ? position : -position - 1;
+    }
+
+    private static long trigram(char c1, char c2, char c3) {
+        return (long) c1 << 32 | (long) c2 << 16 | c3;
+    }
+}
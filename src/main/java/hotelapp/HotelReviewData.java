@@ -1,27 +1,99 @@
 package hotelapp;
 
-import java.time.LocalDate;
+import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class HotelReviewData implements HotelData {
+    // Postings of a word: highest frequency first, then newest first, then by reviewId
+    private static final Comparator<Map.Entry<Review, Integer>> POSTING_ORDER = new Comparator<Map.Entry<Review, Integer>>() {
+        @Override
+        public int compare(Map.Entry<Review, Integer> s1, Map.Entry<Review, Integer> s2) {
+            int valueComparison = s2.getValue().compareTo(s1.getValue());
+            if (valueComparison != 0) {
+                return valueComparison;
+            }
+            return SortedReviews.NEWEST_FIRST.compare(s1.getKey(), s2.getKey());
+        }
+
+    };
+
+    // How long suggestions may miss changes of the data before they are built again
+    static final long SUGGESTIONS_REFRESH_MILLIS = 5000;
+    // Builds the suggestions of data that concurrent threads read and write, see buildSuggestionsInBackground()
+    static final ScheduledExecutorService SUGGESTIONS_BUILDER = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable task) {
+            Thread thread = new Thread(task, "suggestions-builder");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+    // The ordinals of removed reviews are renumbered away once there are this many and more than live ones
+    private static final int MIN_DEAD_ORDINALS_TO_COMPACT = 1024;
 
-public class HotelReviewData {
     private TreeMap<String, Hotel> hotelMap;
-    private Map<Integer, TreeSet<Review>> reviewMap;
-    private Map<String, TreeSet<Map.Entry<Review, Integer>>> wordMap;
+    // Whether the hotelMap is this data's alone; a copy shares it until hotels are added
+    private boolean ownsHotelMap = true;
+    // Finds hotels by part of their name; built again whenever hotels are added
+    private HotelNameIndex hotelNames = new HotelNameIndex(Collections.<Hotel>emptyList());
+    private Map<Integer, SortedReviews> reviewMap;
+    // Marks the SortedReviews this data may change in place; replaced by copy()
+    private Object owner = new Object();
+    // The word index: terms maps each word to a term ID, postingsByTerm holds the postings of each ID,
+    // null for a term without postings, and wordMap views the two as a map from word to postings
+    private TermDictionary terms = new TermDictionary();
+    private VersionedArray<PostingList> postingsByTerm = new VersionedArray<>();
+    private int wordCount;
+    private final Map<String, PostingList> wordMap = new WordMap();
+    // Finds the terms close to a misspelled word; replaced with the dictionary
+    private FuzzyTermMatcher fuzzyTerms = new FuzzyTermMatcher(terms);
+    // The postings store review ordinals: ordinalTable maps the ones below ordinalCount back to their reviews
+    // and knows their lengths, ordinals maps each indexed review to its own
+    private OrdinalTable ordinalTable = new OrdinalTable();
+    private int ordinalCount;
+    private Map<Review, Integer> ordinals = new IdentityHashMap<>();
+    // Number of indexed words of all reviews, for BM25; -1 until first needed after a bulk change
+    private volatile long totalReviewLength = -1;
+    private final ReviewTokenizer tokenizer = new ReviewTokenizer();
+    private final TermCounter termCounts = new TermCounter();
+    // Completions of hotel names and review words, built on first use and again once stale, see suggestions()
+    private volatile Suggestions suggestions;
+    private volatile boolean suggestionsStale;
+    private final Object suggestionsLock = new Object();
+    // Whether stale completions are built again on SUGGESTIONS_BUILDER instead of by a reader, and whether a build is
+    // scheduled there
+    private volatile boolean backgroundSuggestions;
+    private final AtomicBoolean suggestionsScheduled = new AtomicBoolean();
 
     /**
      * Constructor for the HotelReviewData class.
-     * Initializes three HashMap objects: hotelMap, reviewMap, and wordMap,
+     * Initializes the hotelMap, the reviewMap and the word index,
      * which are used to store data related to hotel reviews.
      */
     public HotelReviewData() {
+        this(new HashMap<Integer, SortedReviews>());
+    }
+
+    /**
+     * Constructor for the HotelReviewData class with the map to keep the reviews of each hotel in,
+     * for subclasses whose writers change different hotels at the same time.
+     *
+     * @param reviewMap The empty map of hotel IDs to reviews.
+     */
+    HotelReviewData(Map<Integer, SortedReviews> reviewMap) {
         this.hotelMap = new TreeMap<>(new Comparator<String>() {
             @Override
             public int compare(String hotelId1, String hotelId2) {
                 return hotelId1.compareTo(hotelId2);
             }
         });
-        this.reviewMap = new HashMap<>();
-        this.wordMap = new HashMap<>();
+        this.reviewMap = reviewMap;
     }
 
     /**
@@ -34,14 +106,25 @@ public class HotelReviewData {
     }
 
     /**
-     * Retrieves the map of reviews where the keys are hotel IDs and the values are sorted sets of Review objects.
+     * Retrieves the map of reviews where the keys are hotel IDs and the values are the sorted reviews of each hotel.
      *
      * @return A Map containing review data, organized by hotel IDs.
      */
-    public Map<Integer, TreeSet<Review>> getReviewMap() {
+    public Map<Integer, SortedReviews> getReviewMap() {
         return reviewMap;
     }
 
+    /**
+     * Retrieves the inverted index where the keys are words and the values are the compressed postings
+     * of each word. Use getReviewsByWord to read the postings as (review, frequency) entries.
+     * The map is a read-only view of the index, which is kept by term ID.
+     *
+     * @return A Map containing the word index.
+     */
+    public Map<String, PostingList> getWordMap() {
+        return wordMap;
+    }
+
     /**
      * Retrieves a hotel by its unique identifier.
      *
@@ -60,11 +143,11 @@ public class HotelReviewData {
      * Retrieves the set of reviews associated with a specific hotel ID.
      *
      * @param hotelId The identifier of the hotel for which to retrieve reviews.
-     * @return A set of Review objects related to the provided hotel ID, or null if the ID is null.
+     * @return The sorted Review objects related to the provided hotel ID, or null if the ID is null.
      */
-    public Set<Review> getReviewsByHotelId(String hotelId) {
+    public SortedReviews getReviewsByHotelId(String hotelId) {
         if (hotelId != null) {
-            TreeSet<Review> reviews = reviewMap.get(Integer.parseInt(hotelId));
+            SortedReviews reviews = reviewMap.get(Integer.parseInt(hotelId));
             return reviews;
         } else {
             return null;
@@ -75,105 +158,784 @@ public class HotelReviewData {
      * Retrieves reviews containing a specific word and the frequency of each occurrence.
      *
      * @param word The word to search for in reviews.
-     * @return A set of Map Entries, where each entry consists of a Review and its frequency for the provided word,
-     *         or null if the word is null.
+     * @return The Map Entries in posting order, where each entry consists of a Review and its frequency
+     *         for the provided word, or null if the word is null or not indexed. The postings are decoded
+     *         while iterating.
      */
-    public Set<Map.Entry<Review, Integer>> getReviewsByWord(String word) {
+    public Collection<Map.Entry<Review, Integer>> getReviewsByWord(String word) {
         if (word != null) {
-            TreeSet<Map.Entry<Review, Integer>> reviews = wordMap.get(word);
-            return reviews;
+            PostingList postings = wordMap.get(word);
+            return postings == null ? null : postingEntries(postings);
         }
         else {
             return null;
         }
     }
 
+    /**
+     * Retrieves the reviews containing words within a small edit distance of a word, so that a misspelled
+     * word such as "breakfest" still finds the reviews with "breakfast". The close words are found without
+     * scanning the whole dictionary, see FuzzyTermMatcher. A review scores the frequency of each close word
+     * in it divided by 1 + the word's distance, so an exact match weighs most, and the scores of the words
+     * are summed.
+     *
+     * @param word        The word, tokenized like review text.
+     * @param maxDistance The largest number of characters inserted, deleted or substituted, from 0 to 2.
+     * @return Map Entries of each Review and its score, highest score first, then newest first;
+     *         empty if no indexed word is close enough.
+     */
+    public List<Map.Entry<Review, Double>> getReviewsByFuzzyWord(String word, int maxDistance) {
+        List<Map.Entry<Review, Double>> reviews = new ArrayList<>();
+        String term = word == null ? null : ReviewQuery.normalize(new ReviewTokenizer(), word);
+        if (term == null) {
+            return reviews;
+        }
+        Map<Integer, Double> scores = new HashMap<>();
+        for (long match : fuzzyTerms.match(term, Math.max(0, Math.min(2, maxDistance)))) {
+            PostingList postings = postings((int) match);
+            if (postings == null) {
+                // A term whose reviews were all deleted
+                continue;
+            }
+            double weight = 1.0 / (1 + (int) (match >>> 32));
+            PostingList.Cursor cursor = postings.cursor();
+            while (cursor.next()) {
+                Double score = scores.get(cursor.ordinal());
+                scores.put(cursor.ordinal(), (score == null ? 0 : score) + weight * cursor.frequency());
+            }
+        }
+        for (Map.Entry<Integer, Double> entry : scores.entrySet()) {
+            reviews.add(new AbstractMap.SimpleImmutableEntry<>(ordinalTable.review(entry.getKey()), entry.getValue()));
+        }
+        reviews.sort(new Comparator<Map.Entry<Review, Double>>() {
+            @Override
+            public int compare(Map.Entry<Review, Double> s1, Map.Entry<Review, Double> s2) {
+                int scoreComparison = s2.getValue().compareTo(s1.getValue());
+                if (scoreComparison != 0) {
+                    return scoreComparison;
+                }
+                return SortedReviews.NEWEST_FIRST.compare(s1.getKey(), s2.getKey());
+            }
+        });
+        return reviews;
+    }
+
+    /**
+     * Returns the edit distance a fuzzy search allows for a word of the given length: none for
+     * words of up to two letters, one up to five letters, two for longer words.
+     *
+     * @param word The word.
+     * @return The distance for getReviewsByFuzzyWord.
+     */
+    public static int fuzzyDistanceFor(String word) {
+        if (word.length() <= 2) {
+            return 0;
+        }
+        return word.length() <= 5 ? 1 : 2;
+    }
+
+    /**
+     * Retrieves the k reviews that best match the words of the query, ranked with BM25.
+     * Only the postings needed to decide the top k are read, see Bm25Ranker.
+     *
+     * @param query The query words, for example "quiet clean pool".
+     * @param k     The number of reviews to return.
+     * @return Map Entries of each Review and its BM25 score, highest score first, then newest first.
+     */
+    public List<Map.Entry<Review, Double>> getTopReviewsByWords(String query, int k) {
+        int[] lengths = reviewLengths();
+        return new Bm25Ranker(wordMap, ordinalTable.reviews(ordinalCount), lengths, ordinals.size(), totalReviewLength)
+                .topReviews(query, k);
+    }
+
+    /**
+     * Returns the number of indexed words of each review by ordinal. After a bulk change of the index, the
+     * lengths the ordinal table does not know yet and the total are found by summing the frequencies of all
+     * postings. Safe to call from concurrent readers.
+     */
+    private int[] reviewLengths() {
+        OrdinalTable table = ordinalTable;
+        int[] lengths = table.lengths(ordinalCount);
+        if (lengths != null && totalReviewLength >= 0) {
+            return lengths;
+        }
+        synchronized (table) {
+            int from = table.lengthsSize();
+            int[] missing = new int[Math.max(0, ordinalCount - from)];
+            long total = 0;
+            for (int id = 0; id < postingsByTerm.size(); id++) {
+                PostingList postings = postingsByTerm.get(id);
+                if (postings == null) {
+                    continue;
+                }
+                PostingList.Cursor cursor = postings.cursor();
+                while (cursor.next()) {
+                    total += cursor.frequency();
+                    if (cursor.ordinal() >= from) {
+                        missing[cursor.ordinal() - from] += cursor.frequency();
+                    }
+                }
+            }
+            if (missing.length > 0) {
+                // A review this data removed may still be indexed by a copy sharing the table, count its own words
+                ReviewTokenizer counter = new ReviewTokenizer();
+                for (int i = 0; i < missing.length; i++) {
+                    Review review = table.review(from + i);
+                    Integer ordinal = ordinals.get(review);
+                    if (missing[i] == 0 && (ordinal == null || ordinal != from + i)) {
+                        missing[i] = indexedLength(counter, review);
+                    }
+                }
+                table.setLengths(from, missing);
+            }
+            totalReviewLength = total;
+            return table.lengths(ordinalCount);
+        }
+    }
+
+    /**
+     * Counts the words of a review the index has postings for.
+     */
+    private static int indexedLength(ReviewTokenizer counter, Review review) {
+        counter.count(review.getReviewText());
+        int length = 0;
+        for (int i = 0; i < counter.termCount(); i++) {
+            length += counter.frequency(i);
+        }
+        return length;
+    }
+
+    /**
+     * Views a posting list as (review, frequency) entries, decoded lazily.
+     * The view keeps the ordinal table of the moment it was created, since compactOrdinals
+     * renumbers the ordinals into a new table while the view may still be iterated.
+     *
+     * @param postings The compressed postings.
+     * @return The postings as a collection in posting order.
+     */
+    private Collection<Map.Entry<Review, Integer>> postingEntries(final PostingList postings) {
+        final OrdinalTable table = ordinalTable;
+        return new AbstractCollection<Map.Entry<Review, Integer>>() {
+            @Override
+            public int size() {
+                return postings.size();
+            }
+
+            @Override
+            public Iterator<Map.Entry<Review, Integer>> iterator() {
+                final PostingList.Cursor cursor = postings.cursor();
+                return new Iterator<Map.Entry<Review, Integer>>() {
+                    private boolean advanced;
+                    private boolean hasNext;
+
+                    @Override
+                    public boolean hasNext() {
+                        if (!advanced) {
+                            hasNext = cursor.next();
+                            advanced = true;
+                        }
+                        return hasNext;
+                    }
+
+                    @Override
+                    public Map.Entry<Review, Integer> next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        advanced = false;
+                        return new AbstractMap.SimpleImmutableEntry<>(table.review(cursor.ordinal()), cursor.frequency());
+                    }
+                };
+            }
+        };
+    }
+
     /**
      * Adds a list of hotels to the internal hotelMap.
      *
      * @param hotels A list of Hotel objects to be added to the internal data structure.
      */
     public void addHotels(List<Hotel> hotels) {
+        if (!ownsHotelMap) {
+            hotelMap = new TreeMap<>(hotelMap);
+            ownsHotelMap = true;
+        }
         for (Hotel hotel : hotels) {
             this.hotelMap.put(hotel.getHotelId(), hotel);
         }
+        hotelNames = new HotelNameIndex(new ArrayList<>(hotelMap.values()));
+        suggestionsChanged();
     }
 
     /**
      * Adds the list of hotel reviews with the same hotelId to the reviewMap.
-     * If the reviewMap already contains reviews for the same hotelId, the new reviews are added to the existing set.
-     * If the hotelId is not already in the reviewMap, a new TreeSet of reviews is created and added for that hotelId.
+     * If the reviewMap already contains reviews for the same hotelId, the new reviews are merged into the existing ones.
+     * If the hotelId is not already in the reviewMap, new SortedReviews are created and added for that hotelId.
      *
      * @param hotelReview A list of Review objects to be added to the reviewMap.
      */
     public void addReviews(List<Review> hotelReview) {
         if (!hotelReview.isEmpty()) {
-            int hotelId = hotelReview.get(0).getHotelId();
-            if (reviewMap.containsKey(hotelId)) {
-                TreeSet<Review> existingReviews = reviewMap.get(hotelId);
-                existingReviews.addAll(hotelReview);
-            } else {
-                TreeSet<Review> newReviews = new TreeSet<>(new Comparator<Review>() {
-                    @Override
-                    public int compare(Review r1, Review r2) {
-                        LocalDate date1 = LocalDate.parse(r1.getDatePosted().substring(0, 10));
-                        LocalDate date2 = LocalDate.parse(r2.getDatePosted().substring(0, 10));
-                        int dateComparison = date2.compareTo(date1);
-                        if (dateComparison != 0) {
-                            return dateComparison;
-                        }
-                        return r1.getReviewId().compareTo(r2.getReviewId());
-                    }
+            editableReviews(hotelReview.get(0).getHotelId()).addAll(hotelReview);
+        }
+        suggestionsChanged();
+    }
 
-                });
-                newReviews.addAll(hotelReview);
-                reviewMap.put(hotelId, newReviews);
-            }
+    /**
+     * Merges the reviews of another HotelReviewData into this reviewMap.
+     * For hotels present in both, the two sorted arrays are merged in one pass.
+     *
+     * @param other The HotelReviewData whose reviews are merged into this one.
+     */
+    public void mergeReviews(HotelReviewData other) {
+        for (Map.Entry<Integer, SortedReviews> entry : other.getReviewMap().entrySet()) {
+            mergeHotelReviews(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Merges the reviews of one hotel into the reviewMap, taking over the given SortedReviews
+     * if the hotel has no reviews yet; the data they came from copies them before changing them again.
+     *
+     * @param hotelId The ID of the hotel.
+     * @param reviews The reviews of the hotel.
+     */
+    void mergeHotelReviews(int hotelId, SortedReviews reviews) {
+        if (reviewMap.get(hotelId) == null) {
+            reviews.setOwner(owner);
+            reviewMap.put(hotelId, reviews);
+        } else {
+            editableReviews(hotelId).addAll(reviews);
+        }
+        suggestionsChanged();
+    }
+
+    /**
+     * Returns the reviews of a hotel to change, copying them first if this data shares them with a copy,
+     * and adding them if the hotel has none yet.
+     *
+     * @param hotelId The ID of the hotel.
+     * @return The reviews this data owns.
+     */
+    private SortedReviews editableReviews(int hotelId) {
+        SortedReviews reviews = reviewMap.get(hotelId);
+        if (reviews != null && reviews.isOwnedBy(owner)) {
+            return reviews;
         }
+        reviews = reviews == null ? new SortedReviews() : reviews.copy();
+        reviews.setOwner(owner);
+        reviewMap.put(hotelId, reviews);
+        return reviews;
     }
 
     /**
-     * Builds a word map based on the reviews in the reviewMap.
+     * Returns a copy that can be changed without affecting this data, in time independent of the number of
+     * hotels, reviews and words. The two share everything, and each copies a part only when it first changes it:
+     * the reviews of one hotel, the nodes of the reviewMap, the ordinals and the postings by term ID on the path
+     * to a changed entry (see VersionedHashMap and VersionedArray), and the hotels when hotels are added. The term
+     * dictionary and the ordinal table are only appended to and stay shared. The first copy of data loaded in
+     * bulk moves its reviewMap and ordinals into versioned maps, which takes time in their size once.
+     * This data and the copy must not be changed at the same time, since they add to the same dictionary.
+     *
+     * @return The copy.
+     */
+    HotelReviewData copy() {
+        HotelReviewData copy = new HotelReviewData(fork(reviewMap));
+        copy.hotelMap = hotelMap;
+        copy.ownsHotelMap = false;
+        ownsHotelMap = false;
+        copy.hotelNames = hotelNames;
+        // From now on this data copies the reviews it changes too
+        owner = new Object();
+        copy.terms = terms;
+        copy.fuzzyTerms = fuzzyTerms;
+        copy.postingsByTerm = postingsByTerm.fork();
+        copy.wordCount = wordCount;
+        copy.ordinalTable = ordinalTable;
+        copy.ordinalCount = ordinalCount;
+        copy.ordinals = fork(ordinals);
+        copy.totalReviewLength = totalReviewLength;
+        copy.suggestions = suggestions;
+        copy.suggestionsStale = suggestionsStale;
+        return copy;
+    }
+
+    private static <K, V> VersionedHashMap<K, V> fork(Map<K, V> map) {
+        if (map instanceof VersionedHashMap) {
+            return ((VersionedHashMap<K, V>) map).fork();
+        }
+        return new VersionedHashMap<>(map);
+    }
+
+    /**
+     * Builds a word map based on the reviews in the reviewMap, in parallel on the common ForkJoinPool.
      */
     public void buildWordMap() {
-        for (TreeSet<Review> reviews : reviewMap.values()) {
+        buildWordMap(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Builds a word map based on the reviews in the reviewMap, in parallel on the given pool,
+     * replacing the current one. The hotels are indexed in shards and the postings of the shards
+     * combined by term ID, see ParallelIndexBuilder.
+     *
+     * @param pool The pool the index is built on.
+     */
+    public void buildWordMap(ForkJoinPool pool) {
+        // Number all reviews newest first again, so that within a frequency run ordinal order is posting order
+        ordinalTable = new OrdinalTable();
+        ordinalCount = 0;
+        ordinals = new IdentityHashMap<>();
+        assignOrdinals();
+        terms = new TermDictionary();
+        fuzzyTerms = new FuzzyTermMatcher(terms);
+        PostingList[] built = new ParallelIndexBuilder(pool).build(new ArrayList<>(reviewMap.values()), ordinals, terms);
+        postingsByTerm = new VersionedArray<>();
+        wordCount = 0;
+        for (int id = 0; id < terms.size(); id++) {
+            setPostings(id, built[id]);
+        }
+        totalReviewLength = -1;
+        suggestionsChanged();
+    }
+
+    /**
+     * Builds a word map based on the reviews in the reviewMap, one review at a time on the calling thread.
+     * Kept as the reference the parallel build is checked against.
+     */
+    public void buildWordMapSequential() {
+        assignOrdinals();
+        Map<String, List<Map.Entry<Review, Integer>>> postings = new HashMap<>();
+        for (SortedReviews reviews : reviewMap.values()) {
             for (Review review : reviews) {
-                //Process review text
-                String[] cleanWords = review.processReview(review);
-                // Count the frequency of each word in the review
-                WordCounter wordCounter = new WordCounter();
-                Map<String, Integer> wordFrequencyMap = wordCounter.countWordFrequency(cleanWords);
-                // Update the inverted index with the review and its word frequencies
-                for (Map.Entry<String, Integer> entry : wordFrequencyMap.entrySet()) {
-                    String word = entry.getKey();
-                    int frequency = entry.getValue();
-                    Map.Entry<Review, Integer> reviewFrequency = new AbstractMap.SimpleEntry<>(review, frequency);
-                    if (wordMap.containsKey(word)) {
-                        wordMap.get(word).add(reviewFrequency);
-                    } else {
-                        TreeSet<Map.Entry<Review, Integer>> reviewSet = new TreeSet<>(new Comparator<Map.Entry<Review, Integer>>() {
-                            @Override
-                            public int compare(Map.Entry<Review, Integer> s1, Map.Entry<Review, Integer> s2) {
-                                int valueComparison = s2.getValue().compareTo(s1.getValue());
-                                if (valueComparison != 0) {
-                                    return valueComparison;
-                                }
-                                LocalDate date1 = LocalDate.parse(s1.getKey().getDatePosted().substring(0, 10));
-                                LocalDate date2 = LocalDate.parse(s2.getKey().getDatePosted().substring(0, 10));
-                                int dateComparison = date2.compareTo(date1);
-                                if (dateComparison != 0) {
-                                    return dateComparison;
-                                }
-                                return s1.getKey().getReviewId().compareTo(s2.getKey().getReviewId());
+                tokenizer.count(review.getReviewText());
+                for (int i = 0; i < tokenizer.termCount(); i++) {
+                    String word = tokenizer.term(i);
+                    List<Map.Entry<Review, Integer>> list = postings.get(word);
+                    if (list == null) {
+                        list = new ArrayList<>();
+                        postings.put(word, list);
+                    }
+                    list.add(new AbstractMap.SimpleEntry<>(review, tokenizer.frequency(i)));
+                }
+            }
+        }
+        for (Map.Entry<String, List<Map.Entry<Review, Integer>>> entry : postings.entrySet()) {
+            addWordPostings(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Numbers the reviews of the reviewMap that have no ordinal yet, newest first,
+     * so that the ordinals of a frequency run of a posting list grow in small steps.
+     */
+    private void assignOrdinals() {
+        List<Review> unnumbered = new ArrayList<>();
+        for (SortedReviews reviews : reviewMap.values()) {
+            for (Review review : reviews) {
+                if (!ordinals.containsKey(review)) {
+                    unnumbered.add(review);
+                }
+            }
+        }
+        unnumbered.sort(SortedReviews.NEWEST_FIRST);
+        for (Review review : unnumbered) {
+            newOrdinal(review, -1);
+        }
+    }
+
+    /**
+     * Gives a review the next ordinal of this data.
+     *
+     * @param length The number of indexed words of the review, or -1 if not known yet.
+     */
+    private int newOrdinal(Review review, int length) {
+        int ordinal = ordinalCount;
+        if (!ordinalTable.append(ordinal, review, length)) {
+            // A copy sharing the table has appended past this data's ordinals
+            ordinalTable = ordinalTable.copy(ordinal);
+            ordinalTable.append(ordinal, review, length);
+        }
+        ordinalCount++;
+        ordinals.put(review, ordinal);
+        return ordinal;
+    }
+
+    /**
+     * Adds the postings of a single review to the wordMap.
+     * Each posting list of the review's words gets the posting spliced in; only the postings ahead of it
+     * are decoded, and for a review newer than the others that is just the runs of higher frequency.
+     *
+     * @param review The review to index.
+     */
+    private void indexReview(final Review review) {
+        PostingList.Placement placement = new PostingList.Placement() {
+            @Override
+            public int compare(int existing) {
+                return SortedReviews.NEWEST_FIRST.compare(ordinalTable.review(existing), review);
+            }
+        };
+        // Count the frequency of each word in the review by term ID
+        tokenizer.countTerms(review.getReviewText(), terms, termCounts);
+        int length = 0;
+        for (int i = 0; i < termCounts.size(); i++) {
+            length += termCounts.count(i);
+        }
+        Integer ordinal = ordinals.get(review);
+        if (ordinal == null) {
+            ordinal = newOrdinal(review, length);
+            if (totalReviewLength >= 0) {
+                totalReviewLength += length;
+            }
+        }
+        // Update the inverted index with the review and its word frequencies
+        for (int i = 0; i < termCounts.size(); i++) {
+            int id = termCounts.id(i);
+            PostingList postings = postings(id);
+            if (postings == null) {
+                setPostings(id, PostingList.encode(new int[]{ordinal}, new int[]{termCounts.count(i)}, 1));
+            } else {
+                setPostings(id, postings.withPosting(ordinal, termCounts.count(i), placement));
+            }
+        }
+    }
+
+    /**
+     * Removes the postings of a single review from the wordMap and releases its ordinal.
+     * Words left without any posting are removed from the map. The ordinal table keeps the review
+     * until the ordinals are compacted, for copies that still have it.
+     *
+     * @param review The indexed review instance to remove from the index.
+     */
+    private void unindexReview(Review review) {
+        Integer ordinal = ordinals.remove(review);
+        if (ordinal == null) {
+            return;
+        }
+        tokenizer.countTerms(review.getReviewText(), terms, termCounts);
+        for (int i = 0; i < termCounts.size(); i++) {
+            int id = termCounts.id(i);
+            PostingList postings = postings(id);
+            if (postings != null) {
+                setPostings(id, postings.withoutPosting(ordinal));
+            }
+            if (totalReviewLength >= 0) {
+                totalReviewLength -= termCounts.count(i);
+            }
+        }
+    }
+
+    /**
+     * Replaces one set of reviews with another, updating both the reviewMap and the
+     * postings in the wordMap. Used to apply the new content of a review file after
+     * retracting its old content.
+     *
+     * @param oldReviews The reviews to retract, may be empty.
+     * @param newReviews The reviews to add, may be empty.
+     */
+    public void replaceReviews(List<Review> oldReviews, List<Review> newReviews) {
+        for (Review review : oldReviews) {
+            SortedReviews hotelReviews = reviewMap.get(review.getHotelId()) == null ? null : editableReviews(review.getHotelId());
+            // The index knows the stored instance, which may be a different object equal to the retracted one
+            Review stored = hotelReviews == null ? null : hotelReviews.removeStored(review);
+            if (stored != null) {
+                unindexReview(stored);
+                if (hotelReviews.isEmpty()) {
+                    reviewMap.remove(review.getHotelId());
+                }
+            }
+        }
+        for (Review review : newReviews) {
+            if (editableReviews(review.getHotelId()).add(review)) {
+                indexReview(review);
+            }
+        }
+        int deadOrdinals = ordinalCount - ordinals.size();
+        if (deadOrdinals >= MIN_DEAD_ORDINALS_TO_COMPACT && deadOrdinals > ordinals.size()) {
+            compactOrdinals();
+        }
+        suggestionsChanged();
+    }
+
+    /**
+     * Numbers the indexed reviews again without the ordinals released by removed reviews, keeping their order,
+     * into a new ordinal table, and rewrites every posting list with the new ordinals. The posting order of each
+     * list stays the same, so the lists are only decoded and encoded again, not sorted. Called once removed reviews
+     * hold more ordinals than the indexed ones, so its cost is spread over at least as many removals as there are
+     * reviews left.
+     */
+    private void compactOrdinals() {
+        OrdinalTable table = ordinalTable;
+        int[] lengths = totalReviewLength >= 0 ? table.lengths(ordinalCount) : null;
+        int[] newOrdinals = new int[ordinalCount];
+        OrdinalTable compacted = new OrdinalTable();
+        Map<Review, Integer> compactedOrdinals = new IdentityHashMap<>();
+        for (int ordinal = 0; ordinal < ordinalCount; ordinal++) {
+            Review review = table.review(ordinal);
+            Integer current = ordinals.get(review);
+            if (current == null || current != ordinal) {
+                newOrdinals[ordinal] = -1;
+                continue;
+            }
+            newOrdinals[ordinal] = compactedOrdinals.size();
+            compacted.append(compactedOrdinals.size(), review, lengths == null ? -1 : lengths[ordinal]);
+            compactedOrdinals.put(review, compactedOrdinals.size());
+        }
+        int[] postingOrdinals = new int[16];
+        int[] frequencies = new int[16];
+        for (int id = 0; id < postingsByTerm.size(); id++) {
+            PostingList postings = postings(id);
+            if (postings == null) {
+                continue;
+            }
+            if (postings.size() > postingOrdinals.length) {
+                postingOrdinals = new int[postings.size()];
+                frequencies = new int[postings.size()];
+            }
+            PostingList.Cursor cursor = postings.cursor();
+            for (int i = 0; cursor.next(); i++) {
+                postingOrdinals[i] = newOrdinals[cursor.ordinal()];
+                frequencies[i] = cursor.frequency();
+            }
+            setPostings(id, PostingList.encode(postingOrdinals, frequencies, postings.size()));
+        }
+        ordinalTable = compacted;
+        ordinalCount = compactedOrdinals.size();
+        ordinals = compactedOrdinals;
+    }
+
+    /**
+     * Adds a review that was just written, updating the reviews of its hotel and the posting lists of its words.
+     *
+     * @param review The new review.
+     */
+    public void applyReviewAdded(Review review) {
+        replaceReviews(Collections.<Review>emptyList(), Collections.singletonList(review));
+    }
+
+    /**
+     * Replaces the stored review with the same hotel and review ID by its edited version.
+     * Only the posting lists of the words of the old and the new text change.
+     *
+     * @param review The edited review.
+     */
+    public void applyReviewEdited(Review review) {
+        Review stored = findStoredReview(review.getHotelId(), review.getReviewId());
+        List<Review> oldReviews = stored == null ? Collections.<Review>emptyList() : Collections.singletonList(stored);
+        replaceReviews(oldReviews, Collections.singletonList(review));
+    }
+
+    /**
+     * Removes a deleted review from the reviews of its hotel and from the posting lists of its words.
+     *
+     * @param hotelId  The ID of the hotel of the review.
+     * @param reviewId The ID of the review.
+     */
+    public void applyReviewDeleted(int hotelId, String reviewId) {
+        Review stored = findStoredReview(hotelId, reviewId);
+        if (stored != null) {
+            replaceReviews(Collections.singletonList(stored), Collections.<Review>emptyList());
+        }
+    }
+
+    /**
+     * Finds a review among the reviews of its hotel by ID, see SortedReviews.findById.
+     *
+     * @return The stored review, or null if the hotel has no review with the ID.
+     */
+    private Review findStoredReview(int hotelId, String reviewId) {
+        SortedReviews hotelReviews = reviewMap.get(hotelId);
+        return hotelReviews == null ? null : hotelReviews.findById(reviewId);
+    }
+
+    /**
+     * Adds already computed (review, frequency) postings for a word to the wordMap,
+     * for example when restoring the index from a snapshot. The postings are merged with
+     * the ones the word already has, put in posting order and the list encoded again;
+     * of postings equal in the order the existing one is kept.
+     *
+     * @param word     The word the postings belong to.
+     * @param postings The reviews containing the word and the frequency of the word in each.
+     */
+    public void addWordPostings(String word, List<Map.Entry<Review, Integer>> postings) {
+        insertWordPostings(word, postings);
+        totalReviewLength = -1;
+        suggestionsChanged();
+    }
+
+    private void insertWordPostings(String word, List<Map.Entry<Review, Integer>> postings) {
+        int id = terms.add(word);
+        PostingList existing = postings(id);
+        List<Map.Entry<Review, Integer>> merged = new ArrayList<>((existing == null ? 0 : existing.size()) + postings.size());
+        if (existing != null) {
+            merged.addAll(postingEntries(existing));
+        }
+        merged.addAll(postings);
+        // Stable, so existing postings stay ahead of equal new ones; a sorted list is only checked
+        merged.sort(POSTING_ORDER);
+        int[] postingOrdinals = new int[merged.size()];
+        int[] frequencies = new int[merged.size()];
+        int size = 0;
+        Map.Entry<Review, Integer> previous = null;
+        for (Map.Entry<Review, Integer> posting : merged) {
+            if (previous != null && POSTING_ORDER.compare(previous, posting) == 0) {
+                continue;
+            }
+            previous = posting;
+            postingOrdinals[size] = ordinalOf(posting.getKey());
+            frequencies[size++] = posting.getValue();
+        }
+        setPostings(id, PostingList.encode(postingOrdinals, frequencies, size));
+    }
+
+    /**
+     * @param id A term ID.
+     * @return The postings of the term, or null if it has none.
+     */
+    PostingList postings(int id) {
+        return postingsByTerm.get(id);
+    }
+
+    /**
+     * @return The term dictionary of the word index, for writing it to a snapshot.
+     */
+    TermDictionary termDictionary() {
+        return terms;
+    }
+
+    /**
+     * @return The reviews the postings refer to by ordinal, including removed ones whose ordinals are not
+     *         compacted yet, for writing them to a snapshot.
+     */
+    List<Review> reviewsByOrdinal() {
+        return ordinalTable.reviews(ordinalCount);
+    }
+
+    /**
+     * @param review A review.
+     * @return The ordinal of the review if it is indexed, otherwise -1.
+     */
+    int indexedOrdinal(Review review) {
+        Integer ordinal = ordinals.get(review);
+        return ordinal == null ? -1 : ordinal;
+    }
+
+    /**
+     * Installs a word index read from a snapshot in place of the current one, in one step: the dictionary,
+     * the encoded postings of each term ID and the reviews their ordinals refer to are taken as they are,
+     * so no list is decoded, sorted or encoded again. Takes no lock, so only for data no other thread uses yet.
+     *
+     * @param terms            The term dictionary.
+     * @param postings         The postings of each term ID, null for a term without postings.
+     * @param reviewsByOrdinal The reviews by ordinal, all of them in the reviewMap.
+     */
+    void restoreIndex(TermDictionary terms, PostingList[] postings, List<Review> reviewsByOrdinal) {
+        ordinalTable = new OrdinalTable();
+        ordinalCount = 0;
+        ordinals = new IdentityHashMap<>();
+        for (Review review : reviewsByOrdinal) {
+            newOrdinal(review, -1);
+        }
+        this.terms = terms;
+        fuzzyTerms = new FuzzyTermMatcher(terms);
+        postingsByTerm = new VersionedArray<>();
+        wordCount = 0;
+        for (int id = 0; id < postings.length; id++) {
+            setPostings(id, postings[id]);
+        }
+        totalReviewLength = -1;
+        suggestionsChanged();
+    }
+
+    private void setPostings(int id, PostingList postings) {
+        PostingList previous = postingsByTerm.get(id);
+        if (previous == null && postings == null) {
+            return;
+        }
+        if (previous == null) {
+            wordCount++;
+        } else if (postings == null) {
+            wordCount--;
+        }
+        postingsByTerm.set(id, postings);
+    }
+
+    /**
+     * The word index as a read-only map from word to postings. Looking a word up finds its term ID
+     * in the dictionary without creating a String; iterating skips terms without postings.
+     */
+    private class WordMap extends AbstractMap<String, PostingList> {
+        @Override
+        public PostingList get(Object key) {
+            if (!(key instanceof String)) {
+                return null;
+            }
+            int id = terms.find((String) key);
+            return id < 0 ? null : postings(id);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return get(key) != null;
+        }
+
+        @Override
+        public int size() {
+            return wordCount;
+        }
+
+        @Override
+        public Set<Map.Entry<String, PostingList>> entrySet() {
+            return new AbstractSet<Map.Entry<String, PostingList>>() {
+                @Override
+                public int size() {
+                    return wordCount;
+                }
+
+                @Override
+                public Iterator<Map.Entry<String, PostingList>> iterator() {
+                    return new Iterator<Map.Entry<String, PostingList>>() {
+                        private int next = advance(0);
+
+                        private int advance(int id) {
+                            while (id < terms.size() && postings(id) == null) {
+                                id++;
                             }
+                            return id;
+                        }
 
-                        });
-                        reviewSet.add(reviewFrequency);
-                        wordMap.put(word, reviewSet);
-                    }
+                        @Override
+                        public boolean hasNext() {
+                            return next < terms.size();
+                        }
+
+                        @Override
+                        public Map.Entry<String, PostingList> next() {
+                            if (!hasNext()) {
+                                throw new NoSuchElementException();
+                            }
+                            Map.Entry<String, PostingList> entry =
+                                    new AbstractMap.SimpleImmutableEntry<>(terms.term(next), postings(next));
+                            next = advance(next + 1);
+                            return entry;
+                        }
+                    };
                 }
+            };
+        }
+    }
+
+    private int ordinalOf(Review review) {
+        Integer ordinal = ordinals.get(review);
+        if (ordinal == null) {
+            // Postings restored without a build: number the whole reviewMap once, newest first
+            assignOrdinals();
+            ordinal = ordinals.get(review);
+            if (ordinal == null) {
+                ordinal = newOrdinal(review, -1);
             }
         }
+        return ordinal;
     }
 
     /**
@@ -183,25 +945,340 @@ public class HotelReviewData {
      * @return A formatted string containing information about reviews with the specified word.
      */
     public String findWord(String word) {
-        if (!wordMap.containsKey(word)) {
+        StringBuilder allWordReview = new StringBuilder();
+        try {
+            findWord(word, 0, Integer.MAX_VALUE, allWordReview);
+        } catch (IOException e) {
+            System.out.println(e);
+        }
+        return allWordReview.toString();
+    }
+
+    /**
+     * Finds and returns the reviews containing a word or words close to it, for misspelled words,
+     * allowing the edit distance of fuzzyDistanceFor.
+     *
+     * @param word The word to search for in reviews, possibly misspelled.
+     * @return A formatted string containing information about the reviews, best match first.
+     */
+    public String findWordFuzzy(String word) {
+        List<Map.Entry<Review, Double>> matches = getReviewsByFuzzyWord(word, fuzzyDistanceFor(word));
+        if (matches.isEmpty()) {
             return "Word: " + word + " not found.";
         }
-        TreeSet<Map.Entry<Review, Integer>> wordSet = wordMap.getOrDefault(word, new TreeSet<>(Comparator.comparingInt(Map.Entry::getValue)));
         StringBuilder allWordReview = new StringBuilder();
-        for (Map.Entry<Review, Integer> entry : wordSet) {
-            Review review = entry.getKey();
-            allWordReview.append("hotelId = " + review.getHotelId()).append("\n");
-            allWordReview.append("reviewId = " + review.getReviewId()).append("\n");
-            allWordReview.append("averageRating = " + review.getRatingOverall()).append("\n");
-            allWordReview.append("title = " + review.getTitle()).append("\n");
-            allWordReview.append("reviewText = " + review.getReviewText()).append("\n");
-            allWordReview.append("userNickname = " + review.getUserNickname()).append("\n");
-            allWordReview.append("submissionDate = " + review.getDatePosted()).append("\n");
-            allWordReview.append("********************").append("\n");
+        try {
+            for (Map.Entry<Review, Double> entry : matches) {
+                appendReview(allWordReview, "hotelId = ", entry.getKey());
+            }
+        } catch (IOException e) {
+            System.out.println(e);
         }
         return allWordReview.toString();
     }
 
+    /**
+     * Writes a page of the reviews containing a specific word, in posting order, as they are formatted.
+     * Only the page's reviews are collected before writing, see getReviewPageByWord.
+     *
+     * @param word   The word to search for in reviews.
+     * @param offset The number of matching reviews to skip.
+     * @param limit  The maximum number of reviews to write.
+     * @param out    Receives the formatted reviews.
+     * @throws IOException If writing to out fails.
+     */
+    public void findWord(String word, int offset, int limit, Appendable out) throws IOException {
+        List<Review> page = getReviewPageByWord(word, offset, limit);
+        if (page == null) {
+            out.append("Word: ").append(word).append(" not found.");
+            return;
+        }
+        for (Review review : page) {
+            appendReview(out, "hotelId = ", review);
+        }
+    }
+
+    /**
+     * Retrieves a page of the reviews containing a specific word, in posting order.
+     * Only the postings up to the end of the page are decoded.
+     *
+     * @param word   The word to search for in reviews.
+     * @param offset The number of matching reviews to skip.
+     * @param limit  The maximum number of reviews to return.
+     * @return The reviews of the page, or null if the word is not indexed.
+     */
+    public List<Review> getReviewPageByWord(String word, int offset, int limit) {
+        PostingList postings = wordMap.get(word);
+        if (postings == null) {
+            return null;
+        }
+        int from = Math.max(0, offset);
+        int end = (int) Math.min(postings.size(), (long) from + Math.max(0, limit));
+        List<Review> page = new ArrayList<>(Math.max(0, end - from));
+        PostingList.Cursor cursor = postings.cursor();
+        for (int i = 0; i < end && cursor.next(); i++) {
+            if (i >= from) {
+                page.add(ordinalTable.review(cursor.ordinal()));
+            }
+        }
+        return page;
+    }
+
+    /**
+     * Appends one review in the format of the find commands.
+     *
+     * @param out          Receives the review.
+     * @param hotelIdLabel The label of the first line, the commands differ in its spacing.
+     * @param review       The review to append.
+     * @throws IOException If writing to out fails.
+     */
+    private static void appendReview(Appendable out, String hotelIdLabel, Review review) throws IOException {
+        out.append(hotelIdLabel).append(String.valueOf(review.getHotelId())).append("\n");
+        out.append("reviewId = ").append(review.getReviewId()).append("\n");
+        out.append("averageRating = ").append(String.valueOf(review.getRatingOverall())).append("\n");
+        out.append("title = ").append(review.getTitle()).append("\n");
+        out.append("reviewText = ").append(review.getReviewText()).append("\n");
+        out.append("userNickname = ").append(review.getUserNickname()).append("\n");
+        out.append("submissionDate = ").append(review.getDatePosted()).append("\n");
+        out.append("********************").append("\n");
+    }
+
+    /**
+     * Retrieves the reviews matching a boolean query such as "quiet clean OR tidy NOT noisy", see ReviewQuery.
+     *
+     * @param query The query.
+     * @return Map Entries of each matching Review and its score, the summed frequency of the matched terms,
+     *         highest score first, then newest first.
+     */
+    public List<Map.Entry<Review, Integer>> getReviewsByQuery(String query) {
+        long[] matches = ReviewQuery.parse(query).evaluate(wordMap);
+        List<Map.Entry<Review, Integer>> reviews = new ArrayList<>(matches.length);
+        for (long match : matches) {
+            reviews.add(new AbstractMap.SimpleImmutableEntry<>(ordinalTable.review((int) (match >>> 32)), (int) match));
+        }
+        reviews.sort(POSTING_ORDER);
+        return reviews;
+    }
+
+    /**
+     * Finds and returns all reviews matching a boolean query of several words.
+     *
+     * @param query The query, for example "quiet clean pool" or "pool OR spa NOT noisy".
+     * @return A formatted string containing information about the matching reviews.
+     */
+    public String findQuery(String query) {
+        List<Map.Entry<Review, Integer>> matches = getReviewsByQuery(query);
+        if (matches.isEmpty()) {
+            return "Query: " + query + " not found.";
+        }
+        StringBuilder allQueryReview = new StringBuilder();
+        try {
+            for (Map.Entry<Review, Integer> entry : matches) {
+                appendReview(allQueryReview, "hotelId = ", entry.getKey());
+            }
+        } catch (IOException e) {
+            System.out.println(e);
+        }
+        return allQueryReview.toString();
+    }
+
+    /**
+     * Finds the hotels whose name contains a keyword, ignoring case, with a trigram index of the names
+     * kept in memory, see HotelNameIndex.
+     *
+     * @param keyword The keyword; empty or null finds all hotels.
+     * @return The matching hotels, by hotel ID.
+     */
+    public List<Hotel> searchHotelsByName(String keyword) {
+        return hotelNames.search(keyword);
+    }
+
+    /**
+     * Completes the beginning of a hotel name, for suggesting hotels while the name is typed.
+     * A name is completed from its start and from the start of each of its other words, so "hil"
+     * also suggests "Hampton Inn by Hilton". The hotels are ranked by their number of reviews.
+     * The suggestions are served from a CompletionIndex that is built again at most every few seconds
+     * after the data changes, so they may miss the latest changes for that long.
+     *
+     * @param prefix The typed text, in any case; null or blank suggests nothing.
+     * @param limit  The maximum number of hotels to return.
+     * @return The hotels, most reviewed first, then by name.
+     */
+    public List<Hotel> suggestHotels(String prefix, int limit) {
+        List<Hotel> hotels = new ArrayList<>();
+        String key = completionKey(prefix);
+        if (key == null) {
+            return hotels;
+        }
+        Suggestions current = suggestions();
+        for (int position : current.hotelNames.complete(key, limit)) {
+            hotels.add(current.hotels[current.hotelNames.value(position)]);
+        }
+        return hotels;
+    }
+
+    /**
+     * Completes the beginning of a review word, ranked by the number of reviews containing the word.
+     * Served like suggestHotels.
+     *
+     * @param prefix The typed text, in any case; null or blank suggests nothing.
+     * @param limit  The maximum number of words to return.
+     * @return Map Entries of each word and the number of reviews containing it, most reviews first,
+     *         then alphabetically.
+     */
+    public List<Map.Entry<String, Integer>> suggestWords(String prefix, int limit) {
+        List<Map.Entry<String, Integer>> words = new ArrayList<>();
+        String key = completionKey(prefix);
+        if (key == null) {
+            return words;
+        }
+        Suggestions current = suggestions();
+        for (int position : current.words.complete(key, limit)) {
+            words.add(new AbstractMap.SimpleImmutableEntry<>(current.words.key(position), current.words.weight(position)));
+        }
+        return words;
+    }
+
+    /**
+     * Returns the typed text as the completions are keyed, trimmed and in lower case,
+     * or null if nothing is typed, since an empty prefix would complete to everything.
+     */
+    private static String completionKey(String prefix) {
+        if (prefix == null || prefix.trim().isEmpty()) {
+            return null;
+        }
+        return prefix.trim().toLowerCase();
+    }
+
+    /**
+     * Returns the completions. The first reader builds them; after that stale ones are built again by the reader
+     * that finds them older than SUGGESTIONS_REFRESH_MILLIS, or, with buildSuggestionsInBackground(), on
+     * SUGGESTIONS_BUILDER while readers keep getting the previous ones. Safe to call from concurrent readers.
+     */
+    private Suggestions suggestions() {
+        Suggestions current = suggestions;
+        if (current == null || (!backgroundSuggestions && suggestionsStale && current.age() >= SUGGESTIONS_REFRESH_MILLIS)) {
+            refreshSuggestions();
+            current = suggestions;
+        }
+        return current;
+    }
+
+    /**
+     * Makes changes of the data schedule a build of the completions on SUGGESTIONS_BUILDER, so no reader builds
+     * them once they exist: a reader is served the previous completions until the build is done.
+     * For data that concurrent threads read and write, whose refreshSuggestions takes the read locks of the data.
+     */
+    void buildSuggestionsInBackground() {
+        backgroundSuggestions = true;
+    }
+
+    /**
+     * Marks the completions stale after a change, and schedules building them again if they are built in the
+     * background. Data that has no completions yet schedules nothing, so loading it in bulk builds none.
+     */
+    private void suggestionsChanged() {
+        suggestionsStale = true;
+        Suggestions current = suggestions;
+        if (backgroundSuggestions && current != null && suggestionsScheduled.compareAndSet(false, true)) {
+            SUGGESTIONS_BUILDER.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    // Cleared first, so a change made during the build schedules another one
+                    suggestionsScheduled.set(false);
+                    refreshSuggestions();
+                }
+            }, Math.max(0, SUGGESTIONS_REFRESH_MILLIS - current.age()), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * @return Whether the completions were built, that is whether anyone asked for suggestions.
+     */
+    boolean hasSuggestions() {
+        return suggestions != null;
+    }
+
+    /**
+     * Builds the completions again if there are none or they are stale, and publishes them.
+     * Subclasses that lock the data take the read locks of what the completions are built from.
+     */
+    void refreshSuggestions() {
+        synchronized (suggestionsLock) {
+            if (suggestions == null || suggestionsStale) {
+                suggestionsStale = false;
+                suggestions = buildSuggestions();
+            }
+        }
+    }
+
+    private Suggestions buildSuggestions() {
+        Hotel[] hotels = hotelMap.values().toArray(new Hotel[0]);
+        List<String> names = new ArrayList<>();
+        List<Integer> nameHotels = new ArrayList<>();
+        for (int i = 0; i < hotels.length; i++) {
+            String name = hotels[i].getName().toLowerCase();
+            for (int start = 0; start < name.length(); start++) {
+                if (name.charAt(start) != ' ' && (start == 0 || name.charAt(start - 1) == ' ')) {
+                    names.add(name.substring(start));
+                    nameHotels.add(i);
+                }
+            }
+        }
+        int[] hotelIndexes = new int[names.size()];
+        int[] hotelWeights = new int[names.size()];
+        for (int i = 0; i < hotelIndexes.length; i++) {
+            hotelIndexes[i] = nameHotels.get(i);
+            hotelWeights[i] = reviewCount(Integer.parseInt(hotels[hotelIndexes[i]].getHotelId()));
+        }
+
+        List<String> words = new ArrayList<>(wordCount);
+        int[] wordIndexes = new int[wordCount];
+        int[] wordWeights = new int[wordCount];
+        for (int id = 0; id < terms.size(); id++) {
+            PostingList postings = postings(id);
+            if (postings != null) {
+                wordIndexes[words.size()] = words.size();
+                wordWeights[words.size()] = postings.size();
+                words.add(terms.term(id));
+            }
+        }
+        return new Suggestions(new CompletionIndex(names, hotelIndexes, hotelWeights), hotels,
+                new CompletionIndex(words, wordIndexes, wordWeights));
+    }
+
+    /**
+     * Returns the number of reviews of a hotel, which ranks the hotel among the suggestions.
+     * Subclasses that guard the reviews of each hotel on their own take that lock here.
+     *
+     * @param hotelId The ID of the hotel.
+     * @return The number of reviews of the hotel, 0 if it has none.
+     */
+    int reviewCount(int hotelId) {
+        SortedReviews reviews = reviewMap.get(hotelId);
+        return reviews == null ? 0 : reviews.size();
+    }
+
+    /**
+     * The completions of hotel names, whose values index the hotels, and of review words.
+     */
+    private static class Suggestions {
+        private final CompletionIndex hotelNames;
+        private final Hotel[] hotels;
+        private final CompletionIndex words;
+        private final long builtAt = System.currentTimeMillis();
+
+        public Suggestions(CompletionIndex hotelNames, Hotel[] hotels, CompletionIndex words) {
+            this.hotelNames = hotelNames;
+            this.hotels = hotels;
+            this.words = words;
+        }
+
+        public long age() {
+            return System.currentTimeMillis() - builtAt;
+        }
+    }
+
     /**
      * Finds and returns information about a hotel with a specified ID.
      *
@@ -232,25 +1309,56 @@ public class HotelReviewData {
      */
     public String findReviewInfo(int targetHotelId) {
         StringBuilder allReview = new StringBuilder();
-        if (reviewMap.containsKey(targetHotelId)) {
-            TreeSet<Review> targetReviewList = reviewMap.get(targetHotelId);
-            for (Review review : targetReviewList) {
-                if (review != null) {
-                    allReview.append("hotelId  = ").append(review.getHotelId()).append("\n");
-                    allReview.append("reviewId = ").append(review.getReviewId()).append("\n");
-                    allReview.append("averageRating = ").append(review.getRatingOverall()).append("\n");
-                    allReview.append("title = ").append(review.getTitle()).append("\n");
-                    allReview.append("reviewText = ").append(review.getReviewText()).append("\n");
-                    allReview.append("userNickname = ").append(review.getUserNickname()).append("\n");
-                    allReview.append("submissionDate = ").append(review.getDatePosted()).append("\n");
-                    allReview.append("********************").append("\n");
-                }
-            }
-        } else {
-            System.out.println("Hotel ID " + targetHotelId + " not found in the reviewMap.");
+        try {
+            findReviewInfo(targetHotelId, 0, Integer.MAX_VALUE, allReview);
+        } catch (IOException e) {
+            System.out.println(e);
         }
         return allReview.toString();
     }
 
+    /**
+     * Writes a page of the reviews of a hotel, newest first, as they are formatted.
+     * Only the page's reviews are collected before writing, see getReviewPageByHotelId.
+     *
+     * @param targetHotelId The ID of the hotel for which to write reviews.
+     * @param offset        The number of reviews to skip.
+     * @param limit         The maximum number of reviews to write.
+     * @param out           Receives the formatted reviews.
+     * @throws IOException If writing to out fails.
+     */
+    public void findReviewInfo(int targetHotelId, int offset, int limit, Appendable out) throws IOException {
+        List<Review> page = getReviewPageByHotelId(targetHotelId, offset, limit);
+        if (page == null) {
+            System.out.println("Hotel ID " + targetHotelId + " not found in the reviewMap.");
+            return;
+        }
+        for (Review review : page) {
+            appendReview(out, "hotelId  = ", review);
+        }
+    }
+
+    /**
+     * Retrieves a page of the reviews of a hotel, newest first.
+     *
+     * @param targetHotelId The ID of the hotel for which to retrieve reviews.
+     * @param offset        The number of reviews to skip.
+     * @param limit         The maximum number of reviews to return.
+     * @return The reviews of the page, or null if the hotel has no reviews.
+     */
+    public List<Review> getReviewPageByHotelId(int targetHotelId, int offset, int limit) {
+        SortedReviews reviews = reviewMap.get(targetHotelId);
+        if (reviews == null) {
+            return null;
+        }
+        int from = Math.max(0, offset);
+        int end = (int) Math.min(reviews.size(), (long) from + Math.max(0, limit));
+        List<Review> page = new ArrayList<>(Math.max(0, end - from));
+        for (int i = from; i < end; i++) {
+            page.add(reviews.get(i));
+        }
+        return page;
+    }
+
 
 }
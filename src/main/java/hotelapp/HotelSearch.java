@@ -4,13 +4,10 @@ public class HotelSearch {
     public static void main(String[] args) {
         SearchHelper searchHelper = new SearchHelper();
         searchHelper.processArgs(args);
-        String hotelsFilePath = searchHelper.getArgValue("-hotels");
         String reviewsFilePath = searchHelper.getArgValue("-reviews");
         String outputFilePath = searchHelper.getArgValue("-output");
-        int numOfThead = Integer.parseInt(searchHelper.getArgValue("-threads"));
 
-        MultithreadedDirectoryTraverser traverser = new MultithreadedDirectoryTraverser(numOfThead);
-        ThreadSafeHotelData hotelReviewData = traverser.loadData(hotelsFilePath, reviewsFilePath);
+        HotelData hotelReviewData = searchHelper.loadData();
 
         if (outputFilePath != null) {
             searchHelper.writeFile(hotelReviewData, outputFilePath, reviewsFilePath);
@@ -22,4 +19,3 @@ public class HotelSearch {
 
 }
 
-
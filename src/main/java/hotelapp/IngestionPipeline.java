@@ -0,0 +1,467 @@
+package hotelapp;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Loads review files through four stages connected by bounded queues:
+ * walk the directory tree, read the bytes of each file, parse the bytes into reviews,
+ * and add the reviews to a ThreadSafeHotelData. Every index thread adds to its own partial
+ * review map without locking, and the partial maps are merged once after the last file.
+ *
+ * Every stage has its own number of threads. A stage that can not keep up fills its input queue,
+ * which blocks the stage before it, so at most queueCapacity items wait between two stages
+ * no matter how many files the tree holds. The time each stage spends working, waiting for input
+ * and blocked on a full output queue is recorded, and getStageReport() names the busiest stage.
+ */
+public class IngestionPipeline {
+    private static final Path END_OF_PATHS = Paths.get("");
+    private static final FileContent END_OF_CONTENT = new FileContent(null, null);
+    private static final FileReviews END_OF_REVIEWS = new FileReviews(null, null);
+
+    private final ThreadSafeHotelData threadSafeHotelData = new ThreadSafeHotelData();
+    // Partial review maps, one per index thread
+    private final Queue<HotelReviewData> partials = new ConcurrentLinkedQueue<>();
+    private final ThreadLocal<HotelReviewData> partialIndex = ThreadLocal.withInitial(() -> {
+        HotelReviewData partial = new HotelReviewData();
+        partials.add(partial);
+        return partial;
+    });
+    private final int readThreads;
+    private final int parseThreads;
+    private final int indexThreads;
+    private final int queueCapacity;
+    private final List<Stage<?, ?>> stages = new ArrayList<>();
+    private final LongAdder walkFiles = new LongAdder();
+    private final LongAdder walkBusyNanos = new LongAdder();
+    private final LongAdder walkOutputWaitNanos = new LongAdder();
+    private long elapsedNanos;
+    // Reviews parsed from each file, only filled after trackReviewFiles() is called
+    private Map<Path, List<Review>> reviewFiles;
+
+    /**
+     * Constructor for the IngestionPipeline class.
+     *
+     * @param readThreads   The number of threads reading file contents.
+     * @param parseThreads  The number of threads parsing file contents into reviews.
+     * @param indexThreads  The number of threads adding reviews to partial review maps.
+     * @param queueCapacity The capacity of each queue between two stages.
+     */
+    public IngestionPipeline(int readThreads, int parseThreads, int indexThreads, int queueCapacity) {
+        this.readThreads = readThreads;
+        this.parseThreads = parseThreads;
+        this.indexThreads = indexThreads;
+        this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * Creates a pipeline from the value of the -stages argument, "read,parse,index" thread counts
+     * such as "2,4,1". When the argument is missing, parsing gets parseThreads threads
+     * and reading and indexing one each. A stage without threads would never pass its input on,
+     * so an argument that is not three counts of at least 1 is reported and the default is used.
+     *
+     * @param stages       The value of the -stages argument, may be null.
+     * @param parseThreads The number of parse threads used when stages is null or invalid.
+     * @return The pipeline.
+     */
+    public static IngestionPipeline create(String stages, int parseThreads) {
+        int queueCapacity = 1024;
+        int[] counts = stages == null ? null : parseStages(stages);
+        if (counts == null) {
+            if (stages != null) {
+                System.out.println("Please configure: -stages <read>,<parse>,<index> with each thread count at least 1.");
+            }
+            return new IngestionPipeline(1, Math.max(1, parseThreads), 1, queueCapacity);
+        }
+        return new IngestionPipeline(counts[0], counts[1], counts[2], queueCapacity);
+    }
+
+    /**
+     * Parses the value of the -stages argument.
+     *
+     * @param stages The value of the -stages argument.
+     * @return The read, parse and index thread counts, or null unless there are exactly three counts of at least 1.
+     */
+    private static int[] parseStages(String stages) {
+        String[] parts = stages.split(",", -1);
+        if (parts.length != 3) {
+            return null;
+        }
+        int[] counts = new int[3];
+        for (int i = 0; i < 3; i++) {
+            try {
+                counts[i] = Integer.parseInt(parts[i].trim());
+            } catch (NumberFormatException e) {
+                return null;
+            }
+            if (counts[i] < 1) {
+                return null;
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Content of a review file, passed from the read stage to the parse stage.
+     */
+    private static class FileContent {
+        private final Path path;
+        private final byte[] bytes;
+
+        public FileContent(Path path, byte[] bytes) {
+            this.path = path;
+            this.bytes = bytes;
+        }
+    }
+
+    /**
+     * Reviews of a review file, passed from the parse stage to the index stage.
+     */
+    private static class FileReviews {
+        private final Path path;
+        private final List<Review> reviews;
+
+        public FileReviews(Path path, List<Review> reviews) {
+            this.path = path;
+            this.reviews = reviews;
+        }
+    }
+
+    /**
+     * A stage of the pipeline: its threads take items from the input queue, process them and put
+     * the results on the output queue. The last thread of a stage to finish puts one end marker
+     * per thread of the next stage on the output queue.
+     *
+     * @param <I> The type of the input items.
+     * @param <O> The type of the output items.
+     */
+    private static class Stage<I, O> {
+        private final String name;
+        private final int threads;
+        private final BlockingQueue<I> in;
+        private final I endOfInput;
+        private final BlockingQueue<O> out;
+        private final O endOfOutput;
+        private final int nextStageThreads;
+        private final Function<I, O> process;
+        private final AtomicInteger running;
+        private final List<Thread> workers = new ArrayList<>();
+        private final LongAdder items = new LongAdder();
+        private final LongAdder busyNanos = new LongAdder();
+        private final LongAdder inputWaitNanos = new LongAdder();
+        private final LongAdder outputWaitNanos = new LongAdder();
+
+        /**
+         * Constructor for the Stage class.
+         *
+         * @param name             The name of the stage in the report.
+         * @param threads          The number of threads of the stage.
+         * @param in               The input queue.
+         * @param endOfInput       The marker ending the input.
+         * @param out              The output queue, null for the last stage.
+         * @param endOfOutput      The marker ending the output.
+         * @param nextStageThreads The number of threads of the next stage.
+         * @param process          Turns an input item into an output item, or null to emit nothing.
+         */
+        public Stage(String name, int threads, BlockingQueue<I> in, I endOfInput,
+                     BlockingQueue<O> out, O endOfOutput, int nextStageThreads, Function<I, O> process) {
+            this.name = name;
+            this.threads = threads;
+            this.in = in;
+            this.endOfInput = endOfInput;
+            this.out = out;
+            this.endOfOutput = endOfOutput;
+            this.nextStageThreads = nextStageThreads;
+            this.process = process;
+            this.running = new AtomicInteger(threads);
+        }
+
+        /**
+         * Starts the threads of the stage.
+         */
+        public void start() {
+            for (int i = 0; i < threads; i++) {
+                Thread worker = new Thread(this::work, name + "-" + i);
+                workers.add(worker);
+                worker.start();
+            }
+        }
+
+        /**
+         * Waits until all threads of the stage are done.
+         *
+         * @throws InterruptedException If interrupted while waiting.
+         */
+        public void join() throws InterruptedException {
+            for (Thread worker : workers) {
+                worker.join();
+            }
+        }
+
+        private void work() {
+            try {
+                while (true) {
+                    long start = System.nanoTime();
+                    I item = in.take();
+                    long taken = System.nanoTime();
+                    inputWaitNanos.add(taken - start);
+                    if (item == endOfInput) {
+                        break;
+                    }
+                    O result = null;
+                    try {
+                        result = process.apply(item);
+                    } catch (RuntimeException e) {
+                        System.out.println(name + " failed: " + e);
+                    }
+                    long processed = System.nanoTime();
+                    busyNanos.add(processed - taken);
+                    items.increment();
+                    emit(result);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                finish();
+            }
+        }
+
+        /**
+         * Puts a result on the output queue, recording how long the stage was blocked.
+         *
+         * @param result The result, ignored if null or if this is the last stage.
+         * @throws InterruptedException If interrupted while blocked.
+         */
+        private void emit(O result) throws InterruptedException {
+            if (result == null || out == null) {
+                return;
+            }
+            long start = System.nanoTime();
+            out.put(result);
+            outputWaitNanos.add(System.nanoTime() - start);
+        }
+
+        /**
+         * Called once by every thread of the stage when it is done; the last one ends the next stage's input.
+         */
+        private void finish() {
+            if (running.decrementAndGet() == 0 && out != null) {
+                try {
+                    for (int i = 0; i < nextStageThreads; i++) {
+                        out.put(endOfOutput);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    /**
+     * Makes loadData remember which reviews were parsed from which file, so a
+     * ReviewDirectoryWatcher can later retract the old content of a modified file.
+     * Must be called before loadData.
+     */
+    public void trackReviewFiles() {
+        reviewFiles = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Returns the reviews parsed from each file, keyed by absolute normalized path.
+     *
+     * @return The reviews of each file, or null if trackReviewFiles() was not called.
+     */
+    public Map<Path, List<Review>> getReviewFiles() {
+        return reviewFiles;
+    }
+
+    /**
+     * Load hotel and review data from specified files and directories.
+     *
+     * @param hotelsFilePath  The path of the hotels data file (may be null if not provided).
+     * @param reviewsFilePath The path of the root directory for review files (may be null if not provided).
+     * @return The populated ThreadSafeHotelData instance containing the loaded data.
+     */
+    public ThreadSafeHotelData loadData(String hotelsFilePath, String reviewsFilePath) {
+        if (hotelsFilePath != null) {
+            threadSafeHotelData.addHotels(JsonProcessor.parseHotelFile(hotelsFilePath));
+        }
+        if (reviewsFilePath != null) {
+            long start = System.nanoTime();
+            processReviewDirectory(Paths.get(reviewsFilePath));
+            elapsedNanos = System.nanoTime() - start;
+            System.out.print(getStageReport());
+        }
+        return threadSafeHotelData;
+    }
+
+    /**
+     * Runs all stages over the review directory and waits until every file is indexed.
+     * The directory walk runs on the calling thread.
+     *
+     * @param dir The root directory of the review files.
+     */
+    private void processReviewDirectory(Path dir) {
+        BlockingQueue<Path> paths = new ArrayBlockingQueue<>(queueCapacity);
+        BlockingQueue<FileContent> contents = new ArrayBlockingQueue<>(queueCapacity);
+        BlockingQueue<FileReviews> parsed = new ArrayBlockingQueue<>(queueCapacity);
+
+        stages.clear();
+        stages.add(new Stage<>("read", readThreads, paths, END_OF_PATHS,
+                contents, END_OF_CONTENT, parseThreads, this::readFile));
+        stages.add(new Stage<>("parse", parseThreads, contents, END_OF_CONTENT,
+                parsed, END_OF_REVIEWS, indexThreads, this::parseFile));
+        stages.add(new Stage<FileReviews, Void>("index", indexThreads, parsed, END_OF_REVIEWS,
+                null, null, 0, this::indexFile));
+        for (Stage<?, ?> stage : stages) {
+            stage.start();
+        }
+
+        walkFiles.reset();
+        walkBusyNanos.reset();
+        walkOutputWaitNanos.reset();
+        long start = System.nanoTime();
+        try {
+            walkDirectory(dir, paths);
+        } finally {
+            walkBusyNanos.add(System.nanoTime() - start - walkOutputWaitNanos.sum());
+        }
+        try {
+            for (int i = 0; i < readThreads; i++) {
+                paths.put(END_OF_PATHS);
+            }
+            for (Stage<?, ?> stage : stages) {
+                stage.join();
+            }
+        } catch (InterruptedException e) {
+            System.out.println(e);
+            Thread.currentThread().interrupt();
+        }
+        mergePartialIndexes();
+    }
+
+    /**
+     * Merges the partial review maps of the index threads into threadSafeHotelData.
+     * There is one per index thread, so they are merged in turn rather than as a tree.
+     */
+    private void mergePartialIndexes() {
+        List<HotelReviewData> parts = new ArrayList<>(partials);
+        partials.clear();
+        for (HotelReviewData part : parts) {
+            threadSafeHotelData.mergeReviews(part);
+        }
+    }
+
+    /**
+     * Walks a directory tree and puts every review file on the queue, blocking while the queue is full.
+     *
+     * @param dir   The directory to walk.
+     * @param paths The queue of the read stage.
+     */
+    private void walkDirectory(Path dir, BlockingQueue<Path> paths) {
+        try (DirectoryStream<Path> filesList = Files.newDirectoryStream(dir)) {
+            for (Path path : filesList) {
+                if (Files.isDirectory(path)) {
+                    walkDirectory(path, paths);
+                } else if (path.toString().endsWith(".json")) {
+                    long start = System.nanoTime();
+                    paths.put(path);
+                    walkOutputWaitNanos.add(System.nanoTime() - start);
+                    walkFiles.increment();
+                }
+            }
+        } catch (IOException e) {
+            System.out.println(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Read stage: reads the whole content of a review file.
+     *
+     * @param path The review file.
+     * @return The content of the file, or null if it can not be read.
+     */
+    private FileContent readFile(Path path) {
+        try {
+            return new FileContent(path, Files.readAllBytes(path));
+        } catch (IOException e) {
+            System.out.println("Could not read the file: " + e);
+            return null;
+        }
+    }
+
+    /**
+     * Parse stage: parses the content of a review file into reviews.
+     *
+     * @param content The content of the file.
+     * @return The reviews of the file, or null if the content is not a well-formed review file.
+     */
+    private FileReviews parseFile(FileContent content) {
+        try {
+            return new FileReviews(content.path, JsonProcessor.parseReviewFileContent(content.bytes));
+        } catch (IOException e) {
+            System.out.println("Skipping review file " + content.path + ": " + e);
+            return null;
+        }
+    }
+
+    /**
+     * Index stage: adds the reviews of a file to the partial review map of the calling thread.
+     *
+     * @param fileReviews The reviews of a file.
+     * @return Always null, the index stage has no output.
+     */
+    private Void indexFile(FileReviews fileReviews) {
+        if (reviewFiles != null) {
+            reviewFiles.put(fileReviews.path.toAbsolutePath().normalize(), fileReviews.reviews);
+        }
+        partialIndex.get().addReviews(fileReviews.reviews);
+        return null;
+    }
+
+    /**
+     * Returns a table with the items, working time and waiting times of every stage of the last load,
+     * followed by the stage whose threads were busy for the largest share of the elapsed time.
+     *
+     * @return The report.
+     */
+    public String getStageReport() {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("%-6s %8s %8s %10s %12s %12s %8s%n",
+                "stage", "threads", "items", "busy ms", "input wait", "output wait", "busy %"));
+        double walkShare = elapsedNanos == 0 ? 0 : 100.0 * walkBusyNanos.sum() / elapsedNanos;
+        report.append(String.format("%-6s %8d %8d %10.1f %12.1f %12.1f %7.1f%%%n",
+                "walk", 1, walkFiles.sum(), walkBusyNanos.sum() / 1e6, 0.0, walkOutputWaitNanos.sum() / 1e6, walkShare));
+        String slowest = "walk";
+        double slowestShare = walkShare;
+        for (Stage<?, ?> stage : stages) {
+            double busyMillis = stage.busyNanos.sum() / 1e6;
+            double share = elapsedNanos == 0 ? 0 : 100.0 * stage.busyNanos.sum() / ((double) elapsedNanos * stage.threads);
+            report.append(String.format("%-6s %8d %8d %10.1f %12.1f %12.1f %7.1f%%%n",
+                    stage.name, stage.threads, stage.items.sum(), busyMillis,
+                    stage.inputWaitNanos.sum() / 1e6, stage.outputWaitNanos.sum() / 1e6, share));
+            if (share > slowestShare) {
+                slowestShare = share;
+                slowest = stage.name;
+            }
+        }
+        report.append("Slowest stage: ").append(slowest).append("\n");
+        return report.toString();
+    }
+}
@@ -0,0 +1,149 @@
+package hotelapp;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+
+/**
+ * Command line report that loads the review directory with an increasing number of threads,
+ * once with the shared write lock, once with per-worker partial review maps and once with
+ * per-hotel lock stripes, and prints the throughput of each run so the scaling of the modes can be compared.
+ * After each load the word index is built, and the report also shows the time that took
+ * and the peak heap of the load and index build together (the sum of the peaks of the heap pools).
+ * Together with SyntheticCorpusGenerator this gives a repeatable capacity-planning run at any size.
+ *
+ * Usage: IngestionScalingReport -reviews &lt;dir&gt; [-threads &lt;max threads&gt;]
+ */
+public class IngestionScalingReport {
+    private static final int RUNS = 3;
+    private static final String[] MODES = {"locked", "partial", "striped"};
+
+    public static void main(String[] args) {
+        SearchHelper searchHelper = new SearchHelper();
+        searchHelper.processArgs(args);
+        String reviewsFilePath = searchHelper.getArgValue("-reviews");
+        if (reviewsFilePath == null) {
+            System.out.println("Please configure: IngestionScalingReport -reviews <reviews_dir> [-threads <max_threads>]");
+            return;
+        }
+        // -threads defaults to 1, which would not show any scaling, so fall back to the core count
+        int maxThreads = Integer.parseInt(searchHelper.getArgValue("-threads"));
+        if (maxThreads <= 1) {
+            maxThreads = Runtime.getRuntime().availableProcessors();
+        }
+
+        // Warm up the parser and the JIT before measuring
+        for (int i = 0; i < RUNS; i++) {
+            for (String mode : MODES) {
+                load(reviewsFilePath, maxThreads, mode);
+            }
+        }
+
+        System.out.printf("%-8s %-8s %8s %10s %10s %12s %14s %8s %10s %10s%n",
+                "threads", "mode", "files", "reviews", "millis", "files/sec", "reviews/sec", "speedup",
+                "index ms", "peak MB");
+        double[] bases = new double[MODES.length];
+        for (int threads = 1; threads <= maxThreads; threads = nextThreadCount(threads, maxThreads)) {
+            for (int m = 0; m < MODES.length; m++) {
+                Result result = best(reviewsFilePath, threads, MODES[m]);
+                if (threads == 1) {
+                    bases[m] = result.filesPerSecond();
+                }
+                print(threads, MODES[m], result, bases[m]);
+            }
+        }
+    }
+
+    /**
+     * Returns the next thread count to measure: doubling, but always ending with maxThreads.
+     */
+    private static int nextThreadCount(int threads, int maxThreads) {
+        if (threads == maxThreads) {
+            return maxThreads + 1;
+        }
+        return Math.min(threads * 2, maxThreads);
+    }
+
+    /**
+     * Runs the load RUNS times and keeps the fastest run.
+     */
+    private static Result best(String reviewsFilePath, int threads, String mode) {
+        Result best = null;
+        for (int i = 0; i < RUNS; i++) {
+            Result result = load(reviewsFilePath, threads, mode);
+            if (best == null || result.nanos < best.nanos) {
+                best = result;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Loads all review files once, builds the word index and measures the elapsed times
+     * and the peak heap usage.
+     */
+    private static Result load(String reviewsFilePath, int threads, String mode) {
+        // Start from a collected heap so the peaks of the runs are comparable
+        System.gc();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+        MultithreadedDirectoryTraverser traverser = new MultithreadedDirectoryTraverser(threads, "partial".equals(mode));
+        if ("striped".equals(mode)) {
+            traverser.useStripedLocking();
+        }
+        long start = System.nanoTime();
+        HotelReviewData data = traverser.loadData(null, reviewsFilePath);
+        long nanos = System.nanoTime() - start;
+        start = System.nanoTime();
+        data.buildWordMap();
+        long indexNanos = System.nanoTime() - start;
+        long peakHeap = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peakHeap += pool.getPeakUsage().getUsed();
+            }
+        }
+        long reviews = 0;
+        for (SortedReviews hotelReviews : data.getReviewMap().values()) {
+            reviews += hotelReviews.size();
+        }
+        return new Result(traverser.getFileCount(), reviews, nanos, indexNanos, peakHeap);
+    }
+
+    private static void print(int threads, String mode, Result result, double baseFilesPerSecond) {
+        System.out.printf("%-8d %-8s %8d %10d %10.1f %12.1f %14.1f %7.2fx %10.1f %10.1f%n",
+                threads, mode, result.files, result.reviews, result.nanos / 1e6,
+                result.filesPerSecond(), result.reviewsPerSecond(), result.filesPerSecond() / baseFilesPerSecond,
+                result.indexNanos / 1e6, result.peakHeap / (1024.0 * 1024.0));
+    }
+
+    /**
+     * Measurements of a single load.
+     */
+    private static class Result {
+        private final int files;
+        private final long reviews;
+        private final long nanos;
+        private final long indexNanos;
+        private final long peakHeap;
+
+        public Result(int files, long reviews, long nanos, long indexNanos, long peakHeap) {
+            this.files = files;
+            this.reviews = reviews;
+            this.nanos = nanos;
+            this.indexNanos = indexNanos;
+            this.peakHeap = peakHeap;
+        }
+
+        public double filesPerSecond() {
+            return files / (nanos / 1e9);
+        }
+
+        public double reviewsPerSecond() {
+            return reviews / (nanos / 1e9);
+        }
+    }
+}
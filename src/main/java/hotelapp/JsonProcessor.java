@@ -1,19 +1,47 @@
 package hotelapp;
 
 import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
+import com.google.gson.TypeAdapter;
 import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.google.gson.stream.MalformedJsonException;
 
+import java.io.CharArrayReader;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.Reader;
 import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.List;
 
 
 public class JsonProcessor {
+    private static final ReviewAdapter REVIEW_ADAPTER = new ReviewAdapter();
+    // Shared by all parses; Review and Hotel go through the hand-written adapters instead of reflection
+    private static final Gson GSON = new GsonBuilder()
+            .registerTypeAdapter(Review.class, REVIEW_ADAPTER)
+            .registerTypeAdapter(Hotel.class, new HotelAdapter())
+            .create();
+    private static final Type HOTEL_LIST_TYPE = new TypeToken<ArrayList<Hotel>>(){}.getType();
+    private static final Type REVIEW_LIST_TYPE = new TypeToken<ArrayList<Review>>(){}.getType();
+    // Each worker thread keeps its own read buffers, so streaming parses do not allocate per file
+    private static final ThreadLocal<ReviewFileBuffer> REVIEW_FILE_BUFFER = ThreadLocal.withInitial(ReviewFileBuffer::new);
+
     /**
      * Parses a JSON file containing hotel data and returns a list of Hotel objects.
      *
@@ -22,13 +50,11 @@ public class JsonProcessor {
      */
     public static List<Hotel> parseHotelFile(String filePath) {
         List<Hotel> hotels = new ArrayList<>();
-        Gson gson = new Gson();
         try (FileReader fr = new FileReader(filePath)) {
             JsonParser parser = new JsonParser();
             JsonObject jo = (JsonObject) parser.parse(fr);
             JsonArray jsonArr = jo.getAsJsonArray("sr");
-            Type hotelType = new TypeToken<ArrayList<Hotel>>(){}.getType();
-            hotels = gson.fromJson(jsonArr, hotelType);
+            hotels = GSON.fromJson(jsonArr, HOTEL_LIST_TYPE);
         } catch (IOException e) {
             System.out.println("Could not read the file: " + e);
         }
@@ -44,17 +70,372 @@ public class JsonProcessor {
      */
     public static List<Review> parseSingleReviewFile(String filePath) {
         List<Review> reviews = new ArrayList<>();
-        Gson gson = new Gson();
         try (FileReader fr = new FileReader(filePath)) {
             JsonParser parser = new JsonParser();
             JsonObject jo = (JsonObject) parser.parse(fr);
             JsonArray reviewArray = jo.getAsJsonObject("reviewDetails").getAsJsonObject("reviewCollection").getAsJsonArray("review");
-            Type reviewType = new TypeToken<ArrayList<Review>>(){}.getType();
-            reviews = gson.fromJson(reviewArray, reviewType);
+            reviews = GSON.fromJson(reviewArray, REVIEW_LIST_TYPE);
         } catch (IOException e) {
             System.out.println("Could not read the file: " + e);
         }
         return reviews;
     }
 
-}
\ No newline at end of file
+    /**
+     * Parses a single JSON review file without building a JSON tree.
+     * Only reviewDetails.reviewCollection.review is read; every other subtree
+     * (reviewSummaryCollection and so on) is skipped by the reader.
+     *
+     * @param filePath The path to the JSON file to be parsed.
+     * @return A List of Review objects representing the review data from the JSON file.
+     * @throws IOException If the file can not be read or is not a well-formed review file;
+     *                     no reviews of a file are returned unless all of them could be parsed.
+     */
+    public static List<Review> parseSingleReviewFileStreaming(String filePath) throws IOException {
+        return parseSingleReviewFileStreaming(filePath, REVIEW_FILE_BUFFER.get());
+    }
+
+    /**
+     * Parses a single JSON review file without building a JSON tree, reading it through the given buffer.
+     * Used when the calling thread is short-lived, so a per-thread buffer would not be reused.
+     *
+     * @param filePath The path to the JSON file to be parsed.
+     * @param buffer   The buffer to read the file with; must not be used by another thread at the same time.
+     * @return A List of Review objects representing the review data from the JSON file.
+     * @throws IOException If the file can not be read or is not a well-formed review file.
+     */
+    static List<Review> parseSingleReviewFileStreaming(String filePath, ReviewFileBuffer buffer) throws IOException {
+        return parseReviews(buffer.read(Paths.get(filePath)));
+    }
+
+    /**
+     * Parses the content of a JSON review file that was already read into memory,
+     * decoding it with the calling thread's buffer.
+     *
+     * @param content The UTF-8 bytes of the review file.
+     * @return A List of Review objects representing the review data from the content.
+     * @throws IOException If the content is not a well-formed review file.
+     */
+    public static List<Review> parseReviewFileContent(byte[] content) throws IOException {
+        return parseReviews(REVIEW_FILE_BUFFER.get().decode(ByteBuffer.wrap(content)));
+    }
+
+    /**
+     * Streams the reviews out of a review file, skipping every subtree other than
+     * reviewDetails.reviewCollection.review.
+     *
+     * @param content A reader over the content of the review file.
+     * @return The parsed reviews.
+     * @throws IOException If the content can not be read or is malformed; the reviews read before the error are dropped.
+     */
+    private static List<Review> parseReviews(Reader content) throws IOException {
+        List<Review> reviews = new ArrayList<>();
+        try (JsonReader reader = new JsonReader(content)) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if ("reviewDetails".equals(reader.nextName())) {
+                    readReviewDetails(reader, reviews);
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+        } catch (IllegalStateException | NumberFormatException e) {
+            // JsonReader reports an unexpected token or number as unchecked, fail the file like any malformed JSON
+            throw new MalformedJsonException(e.getMessage(), e);
+        }
+        return reviews;
+    }
+
+    /**
+     * Reads the reviewDetails object and collects the reviews of its reviewCollection.
+     *
+     * @param reader  The reader positioned at the start of reviewDetails.
+     * @param reviews The list the parsed reviews are added to.
+     * @throws IOException If the JSON can not be read.
+     */
+    private static void readReviewDetails(JsonReader reader, List<Review> reviews) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if ("reviewCollection".equals(reader.nextName())) {
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    if ("review".equals(reader.nextName())) {
+                        readReviewArray(reader, reviews);
+                    } else {
+                        reader.skipValue();
+                    }
+                }
+                reader.endObject();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
+
+    /**
+     * Reads the review array, deserializing each element directly into a Review.
+     *
+     * @param reader  The reader positioned at the start of the review array.
+     * @param reviews The list the parsed reviews are added to.
+     * @throws IOException If the JSON can not be read.
+     */
+    private static void readReviewArray(JsonReader reader, List<Review> reviews) throws IOException {
+        reader.beginArray();
+        while (reader.hasNext()) {
+            reviews.add(REVIEW_ADAPTER.read(reader));
+        }
+        reader.endArray();
+    }
+
+    /**
+     * Reads a string value the way Gson's default String adapter does: null stays null
+     * and numbers and booleans are returned as their text.
+     */
+    private static String nextString(JsonReader reader) throws IOException {
+        JsonToken token = reader.peek();
+        if (token == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        if (token == JsonToken.BOOLEAN) {
+            return Boolean.toString(reader.nextBoolean());
+        }
+        return reader.nextString();
+    }
+
+    /**
+     * Streaming adapter for Review. Reads only the fields a Review keeps, skips the others,
+     * and builds the Review through its constructor. Numeric fields accept numbers or numeric strings
+     * ("hotelId": "287112"); a missing or null field keeps its default, as with reflective Gson.
+     */
+    static class ReviewAdapter extends TypeAdapter<Review> {
+        @Override
+        public Review read(JsonReader reader) throws IOException {
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+                return null;
+            }
+            int hotelId = 0;
+            String reviewId = null;
+            double ratingOverall = 0;
+            String title = null;
+            String reviewText = null;
+            String userNickname = null;
+            String datePosted = null;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if (reader.peek() == JsonToken.NULL) {
+                    reader.nextNull();
+                    continue;
+                }
+                switch (name) {
+                    case "hotelId":
+                        hotelId = reader.nextInt();
+                        break;
+                    case "reviewId":
+                        reviewId = nextString(reader);
+                        break;
+                    case "ratingOverall":
+                        ratingOverall = reader.nextDouble();
+                        break;
+                    case "title":
+                        title = nextString(reader);
+                        break;
+                    case "reviewText":
+                        reviewText = nextString(reader);
+                        break;
+                    case "userNickname":
+                        userNickname = nextString(reader);
+                        break;
+                    case "reviewSubmissionTime":
+                        datePosted = nextString(reader);
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
+            reader.endObject();
+            return new Review(hotelId, reviewId, ratingOverall, title, reviewText, userNickname, datePosted);
+        }
+
+        @Override
+        public void write(JsonWriter writer, Review review) throws IOException {
+            if (review == null) {
+                writer.nullValue();
+                return;
+            }
+            writer.beginObject();
+            writer.name("hotelId").value(review.getHotelId());
+            writer.name("reviewId").value(review.getReviewId());
+            writer.name("ratingOverall").value(review.getRatingOverall());
+            writer.name("title").value(review.getTitle());
+            writer.name("reviewText").value(review.getReviewText());
+            writer.name("userNickname").value(review.getUserNickname());
+            writer.name("reviewSubmissionTime").value(review.getDatePosted());
+            writer.endObject();
+        }
+    }
+
+    /**
+     * Streaming adapter for Hotel, reading the short Expedia field names (f, id, ll, ad, ci, pr, c)
+     * and the nested ll object, whose lat and lng strings are parsed straight into doubles.
+     */
+    static class HotelAdapter extends TypeAdapter<Hotel> {
+        @Override
+        public Hotel read(JsonReader reader) throws IOException {
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+                return null;
+            }
+            String name = null;
+            String hotelId = null;
+            String address = null;
+            String city = null;
+            String state = null;
+            String country = null;
+            Hotel.Location location = null;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String field = reader.nextName();
+                if (reader.peek() == JsonToken.NULL) {
+                    reader.nextNull();
+                    continue;
+                }
+                switch (field) {
+                    case "f":
+                        name = nextString(reader);
+                        break;
+                    case "id":
+                        hotelId = nextString(reader);
+                        break;
+                    case "ll":
+                        location = readLocation(reader);
+                        break;
+                    case "ad":
+                        address = nextString(reader);
+                        break;
+                    case "ci":
+                        city = nextString(reader);
+                        break;
+                    case "pr":
+                        state = nextString(reader);
+                        break;
+                    case "c":
+                        country = nextString(reader);
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
+            reader.endObject();
+            return new Hotel(name, hotelId, address, city, state, country, location);
+        }
+
+        private static Hotel.Location readLocation(JsonReader reader) throws IOException {
+            double lat = 0;
+            double lng = 0;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String field = reader.nextName();
+                if (reader.peek() == JsonToken.NULL) {
+                    reader.nextNull();
+                } else if ("lat".equals(field)) {
+                    lat = reader.nextDouble();
+                } else if ("lng".equals(field)) {
+                    lng = reader.nextDouble();
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+            return new Hotel.Location(lat, lng);
+        }
+
+        @Override
+        public void write(JsonWriter writer, Hotel hotel) throws IOException {
+            if (hotel == null) {
+                writer.nullValue();
+                return;
+            }
+            writer.beginObject();
+            writer.name("f").value(hotel.getName());
+            writer.name("id").value(hotel.getHotelId());
+            if (hotel.getLocation() == null) {
+                // read gives a hotel without a location for a null or missing ll
+                writer.name("ll").nullValue();
+            } else {
+                writer.name("ll").beginObject();
+                writer.name("lat").value(hotel.getLatitude());
+                writer.name("lng").value(hotel.getLongitude());
+                writer.endObject();
+            }
+            writer.name("ad").value(hotel.getAddress());
+            writer.name("ci").value(hotel.getCity());
+            writer.name("pr").value(hotel.getState());
+            writer.name("c").value(hotel.getCountry());
+            writer.endObject();
+        }
+    }
+
+    /**
+     * Reusable buffers used to read a whole review file through a FileChannel
+     * and decode it without allocating new buffers for every file.
+     */
+    static class ReviewFileBuffer {
+        private static final int INITIAL_CAPACITY = 64 * 1024;
+        private ByteBuffer bytes = ByteBuffer.allocateDirect(INITIAL_CAPACITY);
+        private CharBuffer chars = CharBuffer.allocate(INITIAL_CAPACITY);
+        private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+        /**
+         * Reads and decodes the given file into the reusable buffers.
+         *
+         * @param path The file to read.
+         * @return A reader over the decoded characters of the file.
+         * @throws IOException If the file can not be read.
+         */
+        public Reader read(Path path) throws IOException {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                long size = channel.size();
+                if (size > Integer.MAX_VALUE) {
+                    throw new IOException("File too large: " + path);
+                }
+                if (size > bytes.capacity()) {
+                    bytes = ByteBuffer.allocateDirect((int) size);
+                }
+                bytes.clear();
+                bytes.limit((int) size);
+                while (bytes.hasRemaining() && channel.read(bytes) != -1) {
+                    // keep reading until the file is fully buffered
+                }
+            }
+            bytes.flip();
+            return decode(bytes);
+        }
+
+        /**
+         * Decodes UTF-8 bytes into the reusable char buffer.
+         *
+         * @param in The bytes to decode.
+         * @return A reader over the decoded characters.
+         */
+        public Reader decode(ByteBuffer in) {
+            int maxChars = (int) Math.ceil(in.remaining() * (double) decoder.maxCharsPerByte());
+            if (maxChars > chars.capacity()) {
+                chars = CharBuffer.allocate(maxChars);
+            }
+            chars.clear();
+            decoder.reset();
+            decoder.decode(in, chars, true);
+            decoder.flush(chars);
+            chars.flip();
+            return new CharArrayReader(chars.array(), 0, chars.limit());
+        }
+    }
+
+}
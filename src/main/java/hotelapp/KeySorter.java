@@ -0,0 +1,99 @@
+package hotelapp;
+
+/**
+ * Sorts the int IDs of string keys by key, for keys kept as characters in arrays rather than as Strings.
+ * Uses the multikey quicksort of Bentley and Sedgewick: three-way partitioning on the character at one
+ * depth at a time, so the characters of a common prefix are not compared again and again.
+ * Subclasses give access to the characters of each key.
+ */
+abstract class KeySorter {
+    private static final int INSERTION_SORT_SIZE = 16;
+
+    /**
+     * @param id The ID of a key.
+     * @return The number of characters of the key.
+     */
+    protected abstract int length(int id);
+
+    /**
+     * @param id    The ID of a key.
+     * @param index The position of a character of the key.
+     * @return The character.
+     */
+    protected abstract char charAt(int id, int index);
+
+    /**
+     * Sorts IDs by their keys.
+     *
+     * @param ids The IDs; equal keys end up next to each other in no particular order.
+     */
+    public void sort(int[] ids) {
+        sort(ids, 0, ids.length, 0);
+    }
+
+    /**
+     * Compares the keys of two IDs, character by character.
+     *
+     * @param id1 The ID of the first key.
+     * @param id2 The ID of the second key.
+     * @return A negative number, zero or a positive number as the first key is less than, equal to or greater than the second.
+     */
+    public int compare(int id1, int id2) {
+        int length = Math.min(length(id1), length(id2));
+        int i = 0;
+        while (i < length && charAt(id1, i) == charAt(id2, i)) {
+            i++;
+        }
+        return Integer.compare(charOrEnd(id1, i), charOrEnd(id2, i));
+    }
+
+    /**
+     * Sorts ids[from..to) whose keys share their first depth characters.
+     */
+    private void sort(int[] ids, int from, int to, int depth) {
+        while (to - from > INSERTION_SORT_SIZE) {
+            int pivot = charOrEnd(ids[(from + to) >>> 1], depth);
+            int less = from;
+            int greater = to - 1;
+            int i = from;
+            while (i <= greater) {
+                int c = charOrEnd(ids[i], depth);
+                if (c < pivot) {
+                    swap(ids, less++, i++);
+                } else if (c > pivot) {
+                    swap(ids, i, greater--);
+                } else {
+                    i++;
+                }
+            }
+            sort(ids, from, less, depth);
+            sort(ids, greater + 1, to, depth);
+            if (pivot < 0) {
+                // The keys of the equal part all end at depth, so they are equal
+                return;
+            }
+            from = less;
+            to = greater + 1;
+            depth++;
+        }
+        for (int i = from + 1; i < to; i++) {
+            int id = ids[i];
+            int j = i - 1;
+            while (j >= from && compare(ids[j], id) > 0) {
+                ids[j + 1] = ids[j];
+                j--;
+            }
+            ids[j + 1] = id;
+        }
+    }
+
+    private int charOrEnd(int id, int depth) {
+        return depth < length(id) ? charAt(id, depth) : -1;
+    }
+
+    private static void swap(int[] ids, int i, int j) {
+        int id = ids[i];
+        ids[i] = ids[j];
+        ids[j] = id;
+    }
+}
@@ -3,25 +3,52 @@ package hotelapp;
 import server.DatabaseHandler;
 
 import java.io.IOException;
+import java.lang.reflect.Method;
 import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.Phaser;
+import java.util.concurrent.RecursiveTask;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * MultithreadedDirectoryTraverser is a class for efficiently traversing directories,
  * parsing JSON review files, and loading hotel and review data in a multithreaded manner.
  */
 public class MultithreadedDirectoryTraverser {
-    private ThreadSafeHotelData threadSafeHotelData = new ThreadSafeHotelData();
+    private HotelReviewData threadSafeHotelData = new ThreadSafeHotelData();
     private ExecutorService executor;
 //    private Logger logger = LogManager.getLogger();
     private Phaser phaser = new Phaser();
+    private final boolean partialIndexes;
+    // Partial review maps, one per worker thread, only used when partialIndexes is set
+    private final Queue<HotelReviewData> partials = new ConcurrentLinkedQueue<>();
+    private final ThreadLocal<HotelReviewData> partialIndex = ThreadLocal.withInitial(() -> {
+        HotelReviewData partial = new HotelReviewData();
+        partials.add(partial);
+        return partial;
+    });
+    private final AtomicInteger fileCount = new AtomicInteger();
+    // Reviews parsed from each file, only filled after trackReviewFiles() is called
+    private Map<Path, List<Review>> reviewFiles;
+    // Worker slots bounding the number of files processed at once, only used with virtual threads
+    private final BlockingQueue<WorkerSlot> slots;
+
+    /** Default number of review files processed at once with virtual threads. */
+    public static final int DEFAULT_MAX_OPEN_FILES = 256;
 
     /**
      * Constructor to create an instance of MultithreadedDirectoryTraverser with a specified number of threads.
@@ -29,7 +56,105 @@ public class MultithreadedDirectoryTraverser {
      * @param numOfThread The number of threads in the fixed thread pool.
      */
     public MultithreadedDirectoryTraverser(Integer numOfThread) {
+        this(numOfThread, false);
+    }
+
+    /**
+     * Constructor to create an instance of MultithreadedDirectoryTraverser with a specified number of threads.
+     * When partialIndexes is true, every worker thread fills its own reviewMap without locking,
+     * and the partial maps are merged once after all files are parsed.
+     *
+     * @param numOfThread    The number of threads in the fixed thread pool.
+     * @param partialIndexes Whether workers fill per-thread partial review maps.
+     */
+    public MultithreadedDirectoryTraverser(Integer numOfThread, boolean partialIndexes) {
         executor = Executors.newFixedThreadPool(numOfThread);
+        this.partialIndexes = partialIndexes;
+        this.slots = null;
+    }
+
+    /**
+     * Private constructor for the virtual-thread mode, where every file gets its own thread
+     * and at most maxOpenFiles files are processed at once.
+     *
+     * @param executor       The thread-per-task executor.
+     * @param maxOpenFiles   The maximum number of files processed at once.
+     * @param partialIndexes Whether workers fill partial review maps.
+     */
+    private MultithreadedDirectoryTraverser(ExecutorService executor, int maxOpenFiles, boolean partialIndexes) {
+        this.executor = executor;
+        this.partialIndexes = partialIndexes;
+        this.slots = new ArrayBlockingQueue<>(maxOpenFiles);
+        for (int i = 0; i < maxOpenFiles; i++) {
+            slots.add(new WorkerSlot());
+        }
+    }
+
+    /**
+     * Creates a traverser for the value of the -threads argument: either a number of threads
+     * for a fixed thread pool, or "virtual" for one virtual thread per file.
+     *
+     * @param threads        The value of the -threads argument.
+     * @param partialIndexes Whether workers fill partial review maps.
+     * @return The traverser.
+     */
+    public static MultithreadedDirectoryTraverser create(String threads, boolean partialIndexes) {
+        if ("virtual".equals(threads)) {
+            return withVirtualThreads(DEFAULT_MAX_OPEN_FILES, partialIndexes);
+        }
+        return new MultithreadedDirectoryTraverser(Integer.parseInt(threads), partialIndexes);
+    }
+
+    /**
+     * Creates a traverser that runs every review file on its own virtual thread,
+     * processing at most maxOpenFiles files at once so file descriptors are not exhausted.
+     * On a JVM without virtual threads, a cached thread pool is used instead; the bound on
+     * open files then also bounds the number of threads.
+     *
+     * @param maxOpenFiles   The maximum number of files processed at once.
+     * @param partialIndexes Whether workers fill partial review maps.
+     * @return The traverser.
+     */
+    public static MultithreadedDirectoryTraverser withVirtualThreads(int maxOpenFiles, boolean partialIndexes) {
+        return new MultithreadedDirectoryTraverser(newVirtualThreadExecutor(), maxOpenFiles, partialIndexes);
+    }
+
+    /**
+     * Returns Executors.newVirtualThreadPerTaskExecutor() when the running JVM has it.
+     * It is looked up reflectively because the project is compiled for Java 17.
+     *
+     * @return A thread-per-task executor.
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            System.out.println("Virtual threads are not available, using a cached thread pool.");
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    /**
+     * State owned by one in-flight file in the virtual-thread mode. Virtual threads are not reused,
+     * so the read buffer and the partial review map live in the slot instead of in a ThreadLocal.
+     */
+    private class WorkerSlot {
+        private final JsonProcessor.ReviewFileBuffer buffer = new JsonProcessor.ReviewFileBuffer();
+        private HotelReviewData partial;
+
+        /**
+         * Returns the partial review map of this slot, creating it on first use.
+         *
+         * @return The partial review map.
+         */
+        public HotelReviewData getPartial() {
+            if (partial == null) {
+                partial = new HotelReviewData();
+                partials.add(partial);
+            }
+            return partial;
+        }
     }
 
     /**
@@ -37,6 +162,7 @@ public class MultithreadedDirectoryTraverser {
      */
     private class Worker implements Runnable {
         private String filePath;
+        private WorkerSlot slot;
 
         /**
          * Constructor for the Worker class.
@@ -47,20 +173,88 @@ public class MultithreadedDirectoryTraverser {
             this.filePath = filePath;
         }
 
+        /**
+         * Constructor for a Worker running in a slot of the virtual-thread mode.
+         *
+         * @param filePath The path of the JSON review file to be processed.
+         * @param slot     The slot whose buffer and partial review map the worker uses.
+         */
+        public Worker(String filePath, WorkerSlot slot) {
+            this.filePath = filePath;
+            this.slot = slot;
+        }
+
         @Override
         public void run() {
             try {
-                List<Review> reviews = JsonProcessor.parseSingleReviewFile(filePath);
-                threadSafeHotelData.addReviews(reviews);
+                List<Review> reviews;
+                try {
+                    if (slot != null) {
+                        reviews = JsonProcessor.parseSingleReviewFileStreaming(filePath, slot.buffer);
+                    } else {
+                        reviews = JsonProcessor.parseSingleReviewFileStreaming(filePath);
+                    }
+                } catch (IOException e) {
+                    System.out.println("Skipping review file " + filePath + ": " + e);
+                    return;
+                }
+                if (reviewFiles != null) {
+                    reviewFiles.put(Paths.get(filePath).toAbsolutePath().normalize(), reviews);
+                }
+                if (partialIndexes) {
+                    HotelReviewData partial = slot != null ? slot.getPartial() : partialIndex.get();
+                    partial.addReviews(reviews);
+                } else {
+                    threadSafeHotelData.addReviews(reviews);
+                }
 //                DatabaseHandler databaseHandler = DatabaseHandler.getInstance();
 //                databaseHandler.addAllReviewsToTable(reviews);
 //                logger.debug("Worker working on " + filePath + " finished work");
             } finally {
+                if (slot != null) {
+                    slots.add(slot);
+                }
                 phaser.arriveAndDeregister();
             }
         }
     }
 
+    /**
+     * Fork/join task that merges a range of partial review maps pairwise, as a binary tree.
+     */
+    private static class MergeTask extends RecursiveTask<HotelReviewData> {
+        private final List<HotelReviewData> parts;
+        private final int from;
+        private final int to;
+
+        /**
+         * Constructor for the MergeTask class.
+         *
+         * @param parts The partial review maps.
+         * @param from  The first index of the range, inclusive.
+         * @param to    The last index of the range, exclusive.
+         */
+        public MergeTask(List<HotelReviewData> parts, int from, int to) {
+            this.parts = parts;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected HotelReviewData compute() {
+            if (to - from == 1) {
+                return parts.get(from);
+            }
+            int mid = (from + to) >>> 1;
+            MergeTask left = new MergeTask(parts, from, mid);
+            left.fork();
+            HotelReviewData right = new MergeTask(parts, mid, to).compute();
+            HotelReviewData merged = left.join();
+            merged.mergeReviews(right);
+            return merged;
+        }
+    }
+
     /**
      * Process a directory for JSON review files, including subdirectories.
      *
@@ -72,36 +266,100 @@ public class MultithreadedDirectoryTraverser {
                     if (Files.isDirectory(path)) {
                         processReviewDirectory(path);
                     } else if (path.toString().endsWith(".json")) {
-                            executor.submit(new Worker(path.toString()));
+                            Worker worker;
+                            if (slots != null) {
+                                // Blocks the directory walk until a file finishes
+                                worker = new Worker(path.toString(), slots.take());
+                            } else {
+                                worker = new Worker(path.toString());
+                            }
                             phaser.register();
+                            fileCount.incrementAndGet();
+                            executor.submit(worker);
                     }
                 }
             } catch (IOException e) {
                 System.out.println(e);
+            } catch (InterruptedException e) {
+                System.out.println(e);
+                Thread.currentThread().interrupt();
             }
     }
 
+    /**
+     * Merges the per-thread partial review maps into threadSafeHotelData with a fork/join tree merge.
+     */
+    private void mergePartialIndexes() {
+        List<HotelReviewData> parts = new ArrayList<>(partials);
+        partials.clear();
+        if (parts.isEmpty()) {
+            return;
+        }
+        HotelReviewData merged = ForkJoinPool.commonPool().invoke(new MergeTask(parts, 0, parts.size()));
+        threadSafeHotelData.mergeReviews(merged);
+    }
+
+    /**
+     * Makes the workers add reviews to a StripedHotelData, which locks only the stripe of the
+     * hotel being added to, so files of different hotels are added in parallel.
+     * Must be called before loadData.
+     */
+    public void useStripedLocking() {
+        threadSafeHotelData = new StripedHotelData();
+    }
+
+    /**
+     * Makes loadData remember which reviews were parsed from which file, so a
+     * ReviewDirectoryWatcher can later retract the old content of a modified file.
+     * Must be called before loadData.
+     */
+    public void trackReviewFiles() {
+        reviewFiles = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Returns the reviews parsed from each file, keyed by absolute normalized path.
+     *
+     * @return The reviews of each file, or null if trackReviewFiles() was not called.
+     */
+    public Map<Path, List<Review>> getReviewFiles() {
+        return reviewFiles;
+    }
+
+    /**
+     * Returns the number of review files submitted for processing so far.
+     *
+     * @return The number of review files.
+     */
+    public int getFileCount() {
+        return fileCount.get();
+    }
+
     /**
      * Load hotel and review data from specified files and directories.
      *
      * @param hotelsFilePath  The path of the hotels data file (may be null if not provided).
      * @param reviewsFilePath The path of the root directory for review files (may be null if not provided).
-     * @return The populated ThreadSafeHotelData instance containing the loaded data.
+     * @return The populated data, a ThreadSafeHotelData, or a StripedHotelData after useStripedLocking.
      */
-    public ThreadSafeHotelData loadData(String hotelsFilePath, String reviewsFilePath) {
+    public HotelReviewData loadData(String hotelsFilePath, String reviewsFilePath) {
         if (!(hotelsFilePath == null)) {
             threadSafeHotelData.addHotels(JsonProcessor.parseHotelFile(hotelsFilePath));
 
         }
         if (!(reviewsFilePath == null)) {
+            phaser.register();
             processReviewDirectory(Paths.get(reviewsFilePath));
-            phaser.awaitAdvance(phaser.getPhase());
+            phaser.arriveAndAwaitAdvance();
             executor.shutdown();
             try {
                 executor.awaitTermination(1, TimeUnit.SECONDS);
             } catch (InterruptedException e) {
                 System.out.println(e);
             }
+            if (partialIndexes) {
+                mergePartialIndexes();
+            }
         }
         return threadSafeHotelData;
     }
@@ -0,0 +1,145 @@
+package hotelapp;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The reviews the postings refer to by ordinal, and the number of indexed words of each, shared by a
+ * HotelReviewData and its copies. Ordinals are only ever appended: a removed review keeps its entry until the
+ * index numbers its reviews again into a new table. So the entries below the ordinal count of a version never
+ * change, a copy shares the table instead of copying it, and a version appends in place as long as no other
+ * version has appended past its count; one that another has appended past copies its entries first.
+ *
+ * The lengths are known for the ordinals below lengthsSize(): appending a review with a known length extends
+ * them while they are complete, and after a bulk change setLengths() fills them in. Readers need no lock, each
+ * reads only the entries below its own count; appending and filling in lengths lock the table.
+ */
+class OrdinalTable {
+    private volatile Review[] reviews;
+    private volatile int[] lengths;
+    private volatile int size;
+    private volatile int lengthsSize;
+
+    /**
+     * Constructor for the OrdinalTable class.
+     */
+    public OrdinalTable() {
+        this(new Review[256], new int[256], 0, 0);
+    }
+
+    private OrdinalTable(Review[] reviews, int[] lengths, int size, int lengthsSize) {
+        this.reviews = reviews;
+        this.lengths = lengths;
+        this.size = size;
+        this.lengthsSize = lengthsSize;
+    }
+
+    /**
+     * @param ordinal An ordinal below the count of the version reading it.
+     * @return The review of the ordinal, also if it was removed since.
+     */
+    public Review review(int ordinal) {
+        return reviews[ordinal];
+    }
+
+    /**
+     * @param count The number of ordinals of a version.
+     * @return The first count entries as a read-only list.
+     */
+    public List<Review> reviews(final int count) {
+        final Review[] entries = reviews;
+        return new AbstractList<Review>() {
+            @Override
+            public Review get(int ordinal) {
+                if (ordinal >= count) {
+                    throw new IndexOutOfBoundsException("Ordinal: " + ordinal + ", count: " + count);
+                }
+                return entries[ordinal];
+            }
+
+            @Override
+            public int size() {
+                return count;
+            }
+        };
+    }
+
+    /**
+     * @return The number of leading ordinals whose lengths are known.
+     */
+    public int lengthsSize() {
+        return lengthsSize;
+    }
+
+    /**
+     * @param count The number of ordinals of a version.
+     * @return The number of indexed words by ordinal, or null if not all of the first count are known.
+     */
+    public int[] lengths(int count) {
+        return lengthsSize >= count ? lengths : null;
+    }
+
+    /**
+     * Appends a review, if no other version has appended the ordinal already.
+     *
+     * @param ordinal The next ordinal of the version appending.
+     * @param review  The review.
+     * @param length  The number of indexed words of the review, or -1 if not known.
+     * @return Whether the review was appended; if not, the version copies the table and appends to the copy.
+     */
+    public synchronized boolean append(int ordinal, Review review, int length) {
+        if (ordinal != size) {
+            return false;
+        }
+        Review[] entries = reviews;
+        if (ordinal == entries.length) {
+            entries = Arrays.copyOf(entries, ordinal * 2);
+        }
+        entries[ordinal] = review;
+        reviews = entries;
+        if (length >= 0 && lengthsSize == ordinal) {
+            int[] known = lengths;
+            if (ordinal == known.length) {
+                known = Arrays.copyOf(known, ordinal * 2);
+            }
+            known[ordinal] = length;
+            lengths = known;
+            lengthsSize = ordinal + 1;
+        }
+        size = ordinal + 1;
+        return true;
+    }
+
+    /**
+     * Sets the lengths following the known ones.
+     *
+     * @param from    The current lengthsSize().
+     * @param missing The lengths of the ordinals from there on.
+     */
+    public synchronized void setLengths(int from, int[] missing) {
+        if (from != lengthsSize) {
+            return;
+        }
+        int[] known = lengths;
+        if (from + missing.length > known.length) {
+            known = Arrays.copyOf(known, Math.max(known.length * 2, from + missing.length));
+        }
+        System.arraycopy(missing, 0, known, from, missing.length);
+        lengths = known;
+        lengthsSize = from + missing.length;
+    }
+
+    /**
+     * @param count The number of ordinals of a version that another version has appended past.
+     * @return A table of its own with the first count entries.
+     */
+    public synchronized OrdinalTable copy(int count) {
+        int known = Math.min(lengthsSize, count);
+        Review[] entries = new Review[Math.max(256, count * 2)];
+        System.arraycopy(reviews, 0, entries, 0, count);
+        int[] knownLengths = new int[entries.length];
+        System.arraycopy(lengths, 0, knownLengths, 0, known);
+        return new OrdinalTable(entries, knownLengths, count, known);
+    }
+}
@@ -0,0 +1,232 @@
+package hotelapp;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Builds the postings of the word index on a ForkJoinPool.
+ * The hotels are split into contiguous shards of about the same number of reviews; each shard
+ * counts the words of its reviews by term ID of its own dictionary and appends a posting to the list
+ * of each term, as a long packing the frequency and the review ordinal, so no posting is an object.
+ * The shard terms are then given their IDs in the shared dictionary, and the terms are split into
+ * chunks that concatenate, sort and encode the lists of each term from all shards.
+ * A review belongs to one hotel, so the shards never share a posting.
+ *
+ * Posting order is highest frequency first, then newest first: the reviews must be numbered newest
+ * first, so that sorting the packed postings sorts by frequency, descending, then by ordinal.
+ */
+class ParallelIndexBuilder {
+    private static final int SHARDS_PER_THREAD = 4;
+    private static final int TERMS_PER_ENCODE_TASK = 4096;
+
+    private final ForkJoinPool pool;
+
+    /**
+     * Constructor for the ParallelIndexBuilder class.
+     *
+     * @param pool The pool the shards and encoding run on.
+     */
+    public ParallelIndexBuilder(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Indexes the given reviews.
+     *
+     * @param hotels   The reviews of each hotel.
+     * @param ordinals The ordinal of every review, numbered newest first.
+     * @param terms    The dictionary the words get their term IDs from; new words are added.
+     * @return The postings of each term ID, null for an ID without postings.
+     */
+    public PostingList[] build(List<SortedReviews> hotels, Map<Review, Integer> ordinals, TermDictionary terms) {
+        long total = 0;
+        for (SortedReviews reviews : hotels) {
+            total += reviews.size();
+        }
+        int shardCount = Math.max(1, Math.min(hotels.size(), pool.getParallelism() * SHARDS_PER_THREAD));
+        long target = Math.max(1, (total + shardCount - 1) / shardCount);
+
+        List<ShardTask> shards = new ArrayList<>();
+        int from = 0;
+        long reviewsInShard = 0;
+        for (int i = 0; i < hotels.size(); i++) {
+            reviewsInShard += hotels.get(i).size();
+            if (reviewsInShard >= target || i == hotels.size() - 1) {
+                shards.add(new ShardTask(hotels.subList(from, i + 1), ordinals));
+                from = i + 1;
+                reviewsInShard = 0;
+            }
+        }
+        for (ShardTask shard : shards) {
+            pool.execute(shard);
+        }
+
+        // Chain the lists of each term across the shards: head[term] is the first node, nodeNext the next one
+        int[] head = new int[64];
+        Arrays.fill(head, -1);
+        List<long[]> nodeLists = new ArrayList<>();
+        int[] nodeSizes = new int[64];
+        int[] nodeNext = new int[64];
+        for (ShardTask task : shards) {
+            Shard shard = task.join();
+            for (int local = 0; local < shard.terms.size(); local++) {
+                int id = terms.add(shard.terms.term(local));
+                if (id >= head.length) {
+                    int oldLength = head.length;
+                    head = Arrays.copyOf(head, Math.max(id + 1, oldLength * 2));
+                    Arrays.fill(head, oldLength, head.length, -1);
+                }
+                int node = nodeLists.size();
+                if (node == nodeNext.length) {
+                    nodeNext = Arrays.copyOf(nodeNext, node * 2);
+                    nodeSizes = Arrays.copyOf(nodeSizes, node * 2);
+                }
+                nodeLists.add(shard.lists[local]);
+                nodeSizes[node] = shard.sizes[local];
+                nodeNext[node] = head[id];
+                head[id] = node;
+            }
+        }
+
+        PostingList[] postings = new PostingList[Math.max(16, terms.size())];
+        List<EncodeTask> encodes = new ArrayList<>();
+        for (int start = 0; start < terms.size(); start += TERMS_PER_ENCODE_TASK) {
+            EncodeTask encode = new EncodeTask(start, Math.min(terms.size(), start + TERMS_PER_ENCODE_TASK),
+                    head, nodeNext, nodeLists, nodeSizes, postings);
+            pool.execute(encode);
+            encodes.add(encode);
+        }
+        for (EncodeTask encode : encodes) {
+            encode.join();
+        }
+        return postings;
+    }
+
+    /**
+     * Packs a posting so that ascending order of the longs is posting order.
+     */
+    private static long pack(int ordinal, int frequency) {
+        return (long) (Integer.MAX_VALUE - frequency) << 32 | ordinal;
+    }
+
+    /**
+     * The words of a shard: its own dictionary and the packed postings of each of its term IDs.
+     */
+    private static class Shard {
+        private final TermDictionary terms = new TermDictionary();
+        private long[][] lists = new long[256][];
+        private int[] sizes = new int[256];
+
+        public void add(int id, long posting) {
+            if (id >= lists.length) {
+                lists = Arrays.copyOf(lists, Math.max(id + 1, lists.length * 2));
+                sizes = Arrays.copyOf(sizes, lists.length);
+            }
+            long[] list = lists[id];
+            if (list == null) {
+                list = new long[4];
+                lists[id] = list;
+            } else if (sizes[id] == list.length) {
+                list = Arrays.copyOf(list, list.length * 2);
+                lists[id] = list;
+            }
+            list[sizes[id]++] = posting;
+        }
+    }
+
+    /**
+     * Counts the words of the reviews of a range of hotels into packed postings by shard term ID.
+     */
+    private static class ShardTask extends RecursiveTask<Shard> {
+        private final List<SortedReviews> hotels;
+        private final Map<Review, Integer> ordinals;
+
+        public ShardTask(List<SortedReviews> hotels, Map<Review, Integer> ordinals) {
+            this.hotels = hotels;
+            this.ordinals = ordinals;
+        }
+
+        @Override
+        protected Shard compute() {
+            ReviewTokenizer tokenizer = new ReviewTokenizer();
+            TermCounter counts = new TermCounter();
+            Shard shard = new Shard();
+            for (SortedReviews reviews : hotels) {
+                for (Review review : reviews) {
+                    int ordinal = ordinals.get(review);
+                    tokenizer.countTerms(review.getReviewText(), shard.terms, counts);
+                    for (int i = 0; i < counts.size(); i++) {
+                        shard.add(counts.id(i), pack(ordinal, counts.count(i)));
+                    }
+                }
+            }
+            return shard;
+        }
+    }
+
+    /**
+     * Sorts and encodes the postings of a range of term IDs, from the lists of all shards.
+     */
+    private static class EncodeTask extends RecursiveTask<Void> {
+        private final int from;
+        private final int to;
+        private final int[] head;
+        private final int[] nodeNext;
+        private final List<long[]> nodeLists;
+        private final int[] nodeSizes;
+        private final PostingList[] postings;
+
+        public EncodeTask(int from, int to, int[] head, int[] nodeNext, List<long[]> nodeLists,
+                          int[] nodeSizes, PostingList[] postings) {
+            this.from = from;
+            this.to = to;
+            this.head = head;
+            this.nodeNext = nodeNext;
+            this.nodeLists = nodeLists;
+            this.nodeSizes = nodeSizes;
+            this.postings = postings;
+        }
+
+        @Override
+        protected Void compute() {
+            int[] ordinals = new int[16];
+            int[] frequencies = new int[16];
+            for (int id = from; id < to; id++) {
+                if (id >= head.length || head[id] < 0) {
+                    continue;
+                }
+                int size = 0;
+                for (int node = head[id]; node >= 0; node = nodeNext[node]) {
+                    size += nodeSizes[node];
+                }
+                long[] packed;
+                int node = head[id];
+                if (nodeNext[node] < 0) {
+                    packed = nodeLists.get(node);
+                } else {
+                    packed = new long[size];
+                    int length = 0;
+                    for (; node >= 0; node = nodeNext[node]) {
+                        System.arraycopy(nodeLists.get(node), 0, packed, length, nodeSizes[node]);
+                        length += nodeSizes[node];
+                    }
+                }
+                Arrays.sort(packed, 0, size);
+                if (size > ordinals.length) {
+                    ordinals = new int[size];
+                    frequencies = new int[size];
+                }
+                for (int i = 0; i < size; i++) {
+                    ordinals[i] = (int) packed[i];
+                    frequencies[i] = Integer.MAX_VALUE - (int) (packed[i] >>> 32);
+                }
+                postings[id] = PostingList.encode(ordinals, frequencies, size);
+            }
+            return null;
+        }
+    }
+}
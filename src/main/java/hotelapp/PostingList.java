@@ -0,0 +1,386 @@
+package hotelapp;
+
+import java.util.Arrays;
+
+/**
+ * The postings of one word in compressed form, in one byte array. Postings are ordered by frequency first,
+ * so a list is a few runs of equal frequency; each run is stored as a header of its length and frequency,
+ * followed by the review ordinals of the run, each as the zigzag variable-byte encoded difference to the
+ * previous ordinal. Reviews are numbered newest first when the index is built, so within a run the
+ * differences are mostly small and positive and take one byte.
+ *
+ * The postings of a PostingList are immutable; a changed list is encoded again. Cursors decode it lazily.
+ */
+public class PostingList {
+    // Lists this long keep their ordinal order once byOrdinal() decoded it; shorter ones decode it each time
+    private static final int MIN_SIZE_TO_KEEP_ORDINAL_ORDER = 1024;
+
+    private final byte[] bytes;
+    private final int size;
+    // The packed postings in ordinal order, kept by byOrdinal() for a long list
+    private volatile long[] ordinalOrder;
+    // Frequency and shortest review length of each run, attached by Bm25Ranker the first time it ranks the list
+    private volatile int[] runStatistics;
+
+    private PostingList(byte[] bytes, int size) {
+        this.bytes = bytes;
+        this.size = size;
+    }
+
+    /**
+     * Encodes postings given in posting order.
+     *
+     * @param ordinals    The review ordinals.
+     * @param frequencies The frequency of the word in each review.
+     * @param size        The number of postings.
+     * @return The encoded list.
+     */
+    public static PostingList encode(int[] ordinals, int[] frequencies, int size) {
+        Encoder out = new Encoder(size + (size >> 2) + 16);
+        int previous = 0;
+        int runStart = 0;
+        while (runStart < size) {
+            int runEnd = runStart + 1;
+            while (runEnd < size && frequencies[runEnd] == frequencies[runStart]) {
+                runEnd++;
+            }
+            out.putVarint(runEnd - runStart);
+            out.putVarint(frequencies[runStart]);
+            for (int i = runStart; i < runEnd; i++) {
+                out.putDelta(ordinals[i] - previous);
+                previous = ordinals[i];
+            }
+            runStart = runEnd;
+        }
+        return new PostingList(out.toArray(), size);
+    }
+
+    /**
+     * @return The number of postings.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return A cursor positioned before the first posting.
+     */
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * Returns the postings ordered by review ordinal instead of posting order, for intersecting lists.
+     * Each posting is packed into a long as ordinal &lt;&lt; 32 | frequency, so sorting the longs sorts by ordinal.
+     * The runs of a list built in bulk are each ascending, which the sort merges in linear time.
+     * A list of at least MIN_SIZE_TO_KEEP_ORDINAL_ORDER postings keeps the result, 8 bytes a posting,
+     * so later queries search it without decoding the list again; the list is immutable, so it stays valid.
+     *
+     * @return The packed postings in ascending ordinal order; must not be changed.
+     */
+    public long[] byOrdinal() {
+        long[] postings = ordinalOrder;
+        if (postings != null) {
+            return postings;
+        }
+        postings = new long[size];
+        Cursor cursor = cursor();
+        for (int i = 0; cursor.next(); i++) {
+            postings[i] = (long) cursor.ordinal() << 32 | cursor.frequency();
+        }
+        Arrays.sort(postings);
+        if (size >= MIN_SIZE_TO_KEEP_ORDINAL_ORDER) {
+            ordinalOrder = postings;
+        }
+        return postings;
+    }
+
+    /**
+     * Compares the review of an existing posting with the review of a posting being added,
+     * for postings of the same frequency.
+     */
+    public interface Placement {
+        /**
+         * @param ordinal The review ordinal of an existing posting.
+         * @return Less than 0 if the existing posting comes first, 0 if it is the same review, greater than 0 otherwise.
+         */
+        int compare(int ordinal);
+    }
+
+    /**
+     * Returns the list with one more posting. Only the postings up to the insertion point are decoded:
+     * the bytes before it are copied, the posting after it gets its difference encoded again, and the
+     * rest is copied as it is. A new review is the newest, so it goes to the start of its frequency run.
+     *
+     * @param ordinal   The review ordinal of the new posting.
+     * @param frequency The frequency of the word in the review.
+     * @param placement Orders the new posting among the postings of the same frequency.
+     * @return The new list, or this list if it already has a posting of the same frequency for the review.
+     */
+    public PostingList withPosting(int ordinal, int frequency, Placement placement) {
+        Decoder in = new Decoder();
+        int previous = 0;
+        while (in.offset < bytes.length) {
+            int runStart = in.offset;
+            int count = in.readVarint();
+            int runFrequency = in.readVarint();
+            if (runFrequency < frequency) {
+                // A run of its own, before this one
+                Encoder out = new Encoder(bytes.length + 16);
+                out.putBytes(bytes, 0, runStart);
+                out.putVarint(1);
+                out.putVarint(frequency);
+                out.putDelta(ordinal - previous);
+                putRest(out, runStart, true, previous, ordinal);
+                return new PostingList(out.toArray(), size + 1);
+            }
+            int postingsStart = in.offset;
+            for (int i = 0; i < count; i++) {
+                int postingStart = in.offset;
+                int existing = previous + in.readDelta();
+                if (runFrequency == frequency) {
+                    int comparison = placement.compare(existing);
+                    if (comparison == 0) {
+                        return this;
+                    }
+                    if (comparison > 0) {
+                        return inserted(runStart, count, frequency, postingsStart, postingStart, false, previous, ordinal);
+                    }
+                }
+                previous = existing;
+            }
+            if (runFrequency == frequency) {
+                return inserted(runStart, count, frequency, postingsStart, in.offset, true, previous, ordinal);
+            }
+        }
+        Encoder out = new Encoder(bytes.length + 16);
+        out.putBytes(bytes, 0, bytes.length);
+        out.putVarint(1);
+        out.putVarint(frequency);
+        out.putDelta(ordinal - previous);
+        return new PostingList(out.toArray(), size + 1);
+    }
+
+    private PostingList inserted(int runStart, int count, int frequency, int postingsStart, int at, boolean atHeader,
+                                 int previous, int ordinal) {
+        Encoder out = new Encoder(bytes.length + 16);
+        out.putBytes(bytes, 0, runStart);
+        out.putVarint(count + 1);
+        out.putVarint(frequency);
+        out.putBytes(bytes, postingsStart, at - postingsStart);
+        out.putDelta(ordinal - previous);
+        putRest(out, at, atHeader, previous, ordinal);
+        return new PostingList(out.toArray(), size + 1);
+    }
+
+    /**
+     * Returns the list without the posting of a review, decoding only the postings up to it.
+     *
+     * @param ordinal The review ordinal of the posting to remove.
+     * @return The new list, this list if it has no posting for the review, or null if the list becomes empty.
+     */
+    public PostingList withoutPosting(int ordinal) {
+        Decoder in = new Decoder();
+        int previous = 0;
+        while (in.offset < bytes.length) {
+            int runStart = in.offset;
+            int count = in.readVarint();
+            int runFrequency = in.readVarint();
+            int postingsStart = in.offset;
+            for (int i = 0; i < count; i++) {
+                int postingStart = in.offset;
+                int existing = previous + in.readDelta();
+                if (existing == ordinal) {
+                    if (size == 1) {
+                        return null;
+                    }
+                    Encoder out = new Encoder(bytes.length);
+                    out.putBytes(bytes, 0, runStart);
+                    if (count > 1) {
+                        out.putVarint(count - 1);
+                        out.putVarint(runFrequency);
+                        out.putBytes(bytes, postingsStart, postingStart - postingsStart);
+                    }
+                    putRest(out, in.offset, i == count - 1, existing, previous);
+                    return new PostingList(out.toArray(), size - 1);
+                }
+                previous = existing;
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Copies the bytes from the given offset to the end, encoding the difference of the next posting
+     * again because the ordinal before it changed.
+     *
+     * @param atHeader    Whether a run header comes before the next posting.
+     * @param oldPrevious The ordinal the next posting's difference is encoded against.
+     * @param newPrevious The ordinal it must be encoded against now.
+     */
+    private void putRest(Encoder out, int from, boolean atHeader, int oldPrevious, int newPrevious) {
+        if (from >= bytes.length) {
+            return;
+        }
+        Decoder in = new Decoder();
+        in.offset = from;
+        if (atHeader) {
+            out.putVarint(in.readVarint());
+            out.putVarint(in.readVarint());
+        }
+        int next = oldPrevious + in.readDelta();
+        out.putDelta(next - newPrevious);
+        out.putBytes(bytes, in.offset, bytes.length - in.offset);
+    }
+
+    int[] getRunStatistics() {
+        return runStatistics;
+    }
+
+    void setRunStatistics(int[] runStatistics) {
+        this.runStatistics = runStatistics;
+    }
+
+    /**
+     * @return The number of bytes of the encoded list.
+     */
+    public int encodedBytes() {
+        return bytes.length;
+    }
+
+    /**
+     * @return The encoded list itself, for writing it to a snapshot; must not be changed.
+     */
+    byte[] encoded() {
+        return bytes;
+    }
+
+    /**
+     * Takes a list encoded by another PostingList as it is, for restoring it from a snapshot.
+     *
+     * @param bytes The encoded list, see encoded().
+     * @param size  The number of postings.
+     * @return The list.
+     */
+    static PostingList fromEncoded(byte[] bytes, int size) {
+        return new PostingList(bytes, size);
+    }
+
+    /**
+     * Decodes the postings one at a time, in posting order.
+     */
+    public class Cursor {
+        private int offset;
+        private int remainingInRun;
+        private int frequency;
+        private int ordinal;
+
+        /**
+         * Moves to the next posting.
+         *
+         * @return false if there are no more postings.
+         */
+        public boolean next() {
+            if (remainingInRun == 0) {
+                if (offset >= bytes.length) {
+                    return false;
+                }
+                remainingInRun = readVarint();
+                frequency = readVarint();
+            }
+            remainingInRun--;
+            int zigzag = readVarint();
+            ordinal += (zigzag >>> 1) ^ -(zigzag & 1);
+            return true;
+        }
+
+        /**
+         * @return The review ordinal of the current posting.
+         */
+        public int ordinal() {
+            return ordinal;
+        }
+
+        /**
+         * @return The frequency of the word in the review of the current posting.
+         */
+        public int frequency() {
+            return frequency;
+        }
+
+        private int readVarint() {
+            int value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = bytes[offset++];
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            return value;
+        }
+    }
+
+    /**
+     * Reads the varints of the list from an offset.
+     */
+    private class Decoder {
+        private int offset;
+
+        public int readVarint() {
+            int value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = bytes[offset++];
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            return value;
+        }
+
+        public int readDelta() {
+            int zigzag = readVarint();
+            return (zigzag >>> 1) ^ -(zigzag & 1);
+        }
+    }
+
+    /**
+     * Growing byte buffer the lists are encoded into.
+     */
+    private static class Encoder {
+        private byte[] bytes;
+        private int length;
+
+        public Encoder(int capacity) {
+            this.bytes = new byte[capacity];
+        }
+
+        public void putVarint(int value) {
+            if (length + 5 > bytes.length) {
+                bytes = Arrays.copyOf(bytes, bytes.length * 2);
+            }
+            while ((value & ~0x7F) != 0) {
+                bytes[length++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[length++] = (byte) value;
+        }
+
+        public void putDelta(int delta) {
+            putVarint((delta << 1) ^ (delta >> 31));
+        }
+
+        public void putBytes(byte[] source, int from, int count) {
+            if (length + count > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + count));
+            }
+            System.arraycopy(source, from, bytes, length, count);
+            length += count;
+        }
+
+        public byte[] toArray() {
+            return Arrays.copyOf(bytes, length);
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package hotelapp;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Command line report that measures read throughput with an increasing number of reader threads,
+ * once on ThreadSafeHotelData with its read-write lock and once on CopyOnWriteHotelData with lock-free
+ * readers. Readers look up a page of the reviews of a word or of a hotel, short calls where the cost of
+ * the lock shows. A writer replaces a review at a fixed interval during each run, and the report also
+ * prints how many writes got through and their mean latency, which shows writers waiting behind readers.
+ *
+ * Usage: ReadScalingReport -reviews &lt;dir&gt; [-threads &lt;max reader threads&gt;]
+ */
+public class ReadScalingReport {
+    private static final int RUN_MILLIS = 2000;
+    private static final int WRITE_INTERVAL_MILLIS = 10;
+    private static final int PAGE_SIZE = 10;
+    private static final int DEFAULT_MAX_THREADS = 64;
+
+    public static void main(String[] args) {
+        SearchHelper searchHelper = new SearchHelper();
+        searchHelper.processArgs(args);
+        String reviewsFilePath = searchHelper.getArgValue("-reviews");
+        if (reviewsFilePath == null) {
+            System.out.println("Please configure: ReadScalingReport -reviews <reviews_dir> [-threads <max_threads>]");
+            return;
+        }
+        int maxThreads = Integer.parseInt(searchHelper.getArgValue("-threads"));
+        if (maxThreads <= 1) {
+            maxThreads = DEFAULT_MAX_THREADS;
+        }
+
+        HotelReviewData locked = new MultithreadedDirectoryTraverser(Runtime.getRuntime().availableProcessors())
+                .loadData(null, reviewsFilePath);
+        locked.buildWordMap();
+        CopyOnWriteHotelData copyOnWrite = new CopyOnWriteHotelData(locked);
+        List<String> words = new ArrayList<>(locked.getWordMap().keySet());
+        List<Integer> hotelIds = new ArrayList<>(locked.getReviewMap().keySet());
+        if (words.isEmpty()) {
+            System.out.println("No reviews found in " + reviewsFilePath);
+            return;
+        }
+
+        // Warm up the JIT before measuring
+        run(locked, words, hotelIds, maxThreads);
+        run(copyOnWrite, words, hotelIds, maxThreads);
+
+        System.out.printf("%-8s %-12s %14s %8s %8s %14s%n",
+                "threads", "mode", "reads/sec", "speedup", "writes", "write mean us");
+        double lockedBase = 0;
+        double copyOnWriteBase = 0;
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            Result lockedResult = run(locked, words, hotelIds, threads);
+            Result copyOnWriteResult = run(copyOnWrite, words, hotelIds, threads);
+            if (threads == 1) {
+                lockedBase = lockedResult.readsPerSecond();
+                copyOnWriteBase = copyOnWriteResult.readsPerSecond();
+            }
+            print(threads, "locked", lockedResult, lockedBase);
+            print(threads, "copyonwrite", copyOnWriteResult, copyOnWriteBase);
+        }
+    }
+
+    /**
+     * Runs the readers and the writer for RUN_MILLIS and counts what they did.
+     */
+    private static Result run(final HotelData data, final List<String> words, final List<Integer> hotelIds,
+                              int threads) {
+        final long end = System.nanoTime() + RUN_MILLIS * 1_000_000L;
+        final long[] reads = new long[threads];
+        List<Thread> readers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            final int reader = t;
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    Random random = new Random(reader);
+                    long count = 0;
+                    while (System.nanoTime() < end) {
+                        if (random.nextBoolean()) {
+                            data.getReviewPageByWord(words.get(random.nextInt(words.size())), 0, PAGE_SIZE);
+                        } else {
+                            data.getReviewPageByHotelId(hotelIds.get(random.nextInt(hotelIds.size())), 0, PAGE_SIZE);
+                        }
+                        count++;
+                    }
+                    reads[reader] = count;
+                }
+            });
+            readers.add(thread);
+        }
+
+        final long[] writes = new long[2];
+        Thread writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                Random random = new Random();
+                while (System.nanoTime() < end) {
+                    Map<Integer, SortedReviews> reviewMap = data.getReviewMap();
+                    SortedReviews hotelReviews = reviewMap.get(hotelIds.get(random.nextInt(hotelIds.size())));
+                    if (hotelReviews != null && !hotelReviews.isEmpty()) {
+                        List<Review> review = new ArrayList<>(1);
+                        review.add(hotelReviews.get(random.nextInt(hotelReviews.size())));
+                        long start = System.nanoTime();
+                        data.replaceReviews(review, review);
+                        writes[1] += System.nanoTime() - start;
+                        writes[0]++;
+                    }
+                    try {
+                        Thread.sleep(WRITE_INTERVAL_MILLIS);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            }
+        });
+
+        for (Thread thread : readers) {
+            thread.start();
+        }
+        writer.start();
+        try {
+            for (Thread thread : readers) {
+                thread.join();
+            }
+            writer.join();
+        } catch (InterruptedException e) {
+            System.out.println(e);
+        }
+        long total = 0;
+        for (long count : reads) {
+            total += count;
+        }
+        return new Result(total, writes[0], writes[1]);
+    }
+
+    private static void print(int threads, String mode, Result result, double baseReadsPerSecond) {
+        System.out.printf("%-8d %-12s %14.1f %7.2fx %8d %14.1f%n",
+                threads, mode, result.readsPerSecond(), result.readsPerSecond() / baseReadsPerSecond,
+                result.writes, result.writeMeanMicros());
+    }
+
+    /**
+     * Measurements of a single run.
+     */
+    private static class Result {
+        private final long reads;
+        private final long writes;
+        private final long writeNanos;
+
+        public Result(long reads, long writes, long writeNanos) {
+            this.reads = reads;
+            this.writes = writes;
+            this.writeNanos = writeNanos;
+        }
+
+        public double readsPerSecond() {
+            return reads / (RUN_MILLIS / 1000.0);
+        }
+
+        public double writeMeanMicros() {
+            return writes == 0 ? 0 : writeNanos / 1000.0 / writes;
+        }
+    }
+}
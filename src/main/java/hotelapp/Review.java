@@ -1,18 +1,41 @@
 package hotelapp;
 
-import com.google.gson.annotations.SerializedName;
-
-import java.util.Arrays;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
 
+/**
+ * A hotel review, stored compactly since there are millions of them:
+ * a numeric review id is kept as a long, a submission time in the usual "yyyy-MM-ddTHH:mm:ssZ" form
+ * as an epoch day and second of day, and nicknames are interned, so reviews by the same user share one.
+ * The id and date getters rebuild the original strings, so callers see the same values.
+ * The title and text stay Strings: they are read every time a review is indexed or ranked,
+ * and a Latin-1 String already takes a byte per character.
+ */
 public class Review implements Comparable<Review>{
+    /** Epoch day of a review without a submission time. */
+    public static final int NO_DATE = Integer.MIN_VALUE;
+    private static final long NOT_NUMERIC = -1;
+    // Numeric ids have at most 18 digits
+    private static final long[] POWERS_OF_TEN = new long[18];
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
     private final int hotelId;
-    private final String reviewId;
+    private final long numericReviewId; // NOT_NUMERIC when the id is kept in reviewId
+    private final String reviewId; // null when the id is numeric
     private final double ratingOverall;
     private final String title;
     private final String reviewText;
-    private final String userNickname;
-    @SerializedName(value = "reviewSubmissionTime")
-    private final String datePosted;
+    private final String userNickname; // interned, nicknames repeat across reviews
+    private final int epochDay;
+    private final int secondOfDay; // -1 when the submission time is kept in datePosted
+    private final String datePosted; // only kept when it is not in the "yyyy-MM-ddTHH:mm:ssZ" form
 
     /**
      * Constructor to create a Review object.
@@ -25,13 +48,106 @@ public class Review implements Comparable<Review>{
      * @param datePosted The date and time when the review was posted.
      */
     public Review(int hotelId, String reviewId, int ratingOverall, String title, String reviewText, String userNickname, String datePosted) {
+        this(hotelId, reviewId, (double) ratingOverall, title, reviewText, userNickname, datePosted);
+    }
+
+    /**
+     * Constructor to create a Review object with a fractional overall rating.
+     * @param hotelId The unique identifier of the hotel associated with the review.
+     * @param reviewId The unique identifier of the review.
+     * @param ratingOverall The overall rating of the review.
+     * @param title The title of the review.
+     * @param reviewText The text of the review.
+     * @param userNickname The nickname of the user who posted the review.
+     * @param datePosted The date and time when the review was posted.
+     */
+    public Review(int hotelId, String reviewId, double ratingOverall, String title, String reviewText, String userNickname, String datePosted) {
         this.hotelId = hotelId;
-        this.reviewId = reviewId;
+        this.numericReviewId = parseNumericId(reviewId);
+        this.reviewId = numericReviewId == NOT_NUMERIC ? reviewId : null;
         this.ratingOverall = ratingOverall;
         this.title = title;
         this.reviewText = reviewText;
-        this.userNickname = userNickname;
-        this.datePosted = datePosted;
+        // The JVM's string table drops a nickname once no review holds it
+        this.userNickname = userNickname == null ? null : userNickname.intern();
+
+        int day = NO_DATE;
+        int second = -1;
+        if (datePosted != null && isTimestamp(datePosted)) {
+            try {
+                day = (int) LocalDate.of(digits(datePosted, 0, 4), digits(datePosted, 5, 7), digits(datePosted, 8, 10)).toEpochDay();
+                int hour = digits(datePosted, 11, 13);
+                int minute = digits(datePosted, 14, 16);
+                int sec = digits(datePosted, 17, 19);
+                if (hour < 24 && minute < 60 && sec < 60) {
+                    second = hour * 3600 + minute * 60 + sec;
+                }
+            } catch (DateTimeException e) {
+                day = NO_DATE;
+            }
+        }
+        if (second < 0 && datePosted != null && datePosted.length() >= 10) {
+            // Other forms still sort by their date if it starts with one
+            day = parseEpochDay(datePosted);
+        }
+        this.epochDay = day;
+        this.secondOfDay = second;
+        this.datePosted = second < 0 ? datePosted : null;
+    }
+
+    /**
+     * Returns the review id as a long if it is a plain decimal number that converts back to the same string.
+     */
+    private static long parseNumericId(String reviewId) {
+        if (reviewId == null || reviewId.isEmpty() || reviewId.length() > 18
+                || (reviewId.charAt(0) == '0' && reviewId.length() > 1)) {
+            return NOT_NUMERIC;
+        }
+        long id = 0;
+        for (int i = 0; i < reviewId.length(); i++) {
+            char c = reviewId.charAt(i);
+            if (c < '0' || c > '9') {
+                return NOT_NUMERIC;
+            }
+            id = id * 10 + (c - '0');
+        }
+        return id;
+    }
+
+    /**
+     * Checks for the "yyyy-MM-ddTHH:mm:ssZ" form of the review files.
+     */
+    private static boolean isTimestamp(String s) {
+        if (s.length() != 20 || s.charAt(4) != '-' || s.charAt(7) != '-' || s.charAt(10) != 'T'
+                || s.charAt(13) != ':' || s.charAt(16) != ':' || s.charAt(19) != 'Z') {
+            return false;
+        }
+        for (int i = 0; i < 19; i++) {
+            if (i != 4 && i != 7 && i != 10 && i != 13 && i != 16 && (s.charAt(i) < '0' || s.charAt(i) > '9')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int digits(String s, int from, int to) {
+        int value = 0;
+        for (int i = from; i < to; i++) {
+            value = value * 10 + (s.charAt(i) - '0');
+        }
+        return value;
+    }
+
+    /**
+     * Parses the leading "yyyy-MM-dd" of a date string.
+     * @return The epoch day, or NO_DATE if the string does not start with a date.
+     */
+    private static int parseEpochDay(String s) {
+        try {
+            return (int) LocalDate.parse(s.substring(0, 10)).toEpochDay();
+        } catch (DateTimeException e) {
+            return NO_DATE;
+        }
     }
 
     /**
@@ -47,7 +163,7 @@ public class Review implements Comparable<Review>{
      * @return The review ID.
      */
     public String getReviewId() {
-        return reviewId;
+        return reviewId != null ? reviewId : Long.toString(numericReviewId);
     }
 
     /**
@@ -87,35 +203,129 @@ public class Review implements Comparable<Review>{
      * @return The date and time of posting.
      */
     public String getDatePosted() {
-        return datePosted;
+        if (secondOfDay < 0) {
+            return datePosted;
+        }
+        LocalDate date = LocalDate.ofEpochDay(epochDay);
+        char[] chars = new char[20];
+        putDigits(chars, 0, 4, date.getYear());
+        chars[4] = '-';
+        putDigits(chars, 5, 7, date.getMonthValue());
+        chars[7] = '-';
+        putDigits(chars, 8, 10, date.getDayOfMonth());
+        chars[10] = 'T';
+        putDigits(chars, 11, 13, secondOfDay / 3600);
+        chars[13] = ':';
+        putDigits(chars, 14, 16, secondOfDay / 60 % 60);
+        chars[16] = ':';
+        putDigits(chars, 17, 19, secondOfDay % 60);
+        chars[19] = 'Z';
+        return new String(chars);
+    }
+
+    private static void putDigits(char[] chars, int from, int to, int value) {
+        for (int i = to - 1; i >= from; i--) {
+            chars[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+
+    /**
+     * Get the day the review was posted, as days since 1970-01-01.
+     * @return The epoch day, or NO_DATE if the review has no submission date.
+     */
+    public int getEpochDay() {
+        return epochDay;
     }
 
+    /**
+     * Orders reviews by review id, as the id strings compare, without building the strings of numeric ids.
+     */
     @Override
     public int compareTo(Review r) {
-        return this.getReviewId().compareTo(r.getReviewId());
+        if (this.reviewId != null && r.reviewId != null) {
+            return this.reviewId.compareTo(r.reviewId);
+        }
+        if (this.reviewId == null && r.reviewId == null) {
+            return compareNumericIds(this.numericReviewId, r.numericReviewId);
+        }
+        if (this.reviewId == null) {
+            return -compareToNumericId(r.reviewId, this.numericReviewId);
+        }
+        return compareToNumericId(this.reviewId, r.numericReviewId);
+    }
+
+    /**
+     * Compares the review id with an id string, as the id strings compare, without building the string of a numeric id.
+     *
+     * @param reviewId The id to compare with.
+     * @return A negative number, zero or a positive number as this review's id is less than, equal to or greater than it.
+     */
+    int compareIdTo(String reviewId) {
+        if (this.reviewId != null) {
+            return this.reviewId.compareTo(reviewId);
+        }
+        return -compareToNumericId(reviewId, numericReviewId);
+    }
+
+    /**
+     * Compares two numeric ids as their decimal strings compare: ids of the same number of digits by value,
+     * otherwise the longer id cut to the digits of the shorter one, and the shorter first if they are equal.
+     */
+    private static int compareNumericIds(long id1, long id2) {
+        int digits1 = digitCount(id1);
+        int digits2 = digitCount(id2);
+        if (digits1 == digits2) {
+            return Long.compare(id1, id2);
+        }
+        if (digits1 < digits2) {
+            int comparison = Long.compare(id1, id2 / POWERS_OF_TEN[digits2 - digits1]);
+            return comparison != 0 ? comparison : -1;
+        }
+        int comparison = Long.compare(id1 / POWERS_OF_TEN[digits1 - digits2], id2);
+        return comparison != 0 ? comparison : 1;
+    }
+
+    /**
+     * Compares an id string to the decimal string of a numeric id, a digit at a time.
+     */
+    private static int compareToNumericId(String id, long numericId) {
+        int digits = digitCount(numericId);
+        int length = Math.min(id.length(), digits);
+        for (int i = 0; i < length; i++) {
+            char digit = (char) ('0' + numericId / POWERS_OF_TEN[digits - 1 - i] % 10);
+            if (id.charAt(i) != digit) {
+                return id.charAt(i) - digit;
+            }
+        }
+        return id.length() - digits;
+    }
+
+    private static int digitCount(long numericId) {
+        int digits = 1;
+        while (digits < POWERS_OF_TEN.length && numericId >= POWERS_OF_TEN[digits]) {
+            digits++;
+        }
+        return digits;
     }
 
     /**
      * Process the review text to remove common words and special characters.
      * @param review The review to process.
-     * @return An array of cleaned words from the review text.
+     * @return An array of cleaned words from the review text; a single empty string if there are none.
      */
     public String[] processReview(Review review) {
-        String[] commonWords = {"a", "the", "is", "are", "were", "and"};
-        String reviewText = review.getReviewText();
-        String[] words = reviewText.split("\\s+");
-        StringBuilder cleanedReview = new StringBuilder();
-
-        for (String word : words) {
-            word = word.toLowerCase();
-            word = word.replaceAll("[^a-zA-Z]", "");
-
-            if (!Arrays.asList(commonWords).contains(word) && !word.isEmpty()) {
-                cleanedReview.append(word).append(" ");
+        final List<String> words = new ArrayList<>();
+        new ReviewTokenizer().tokenize(review.getReviewText(), new ReviewTokenizer.TokenHandler() {
+            @Override
+            public void token(char[] chars, int length) {
+                words.add(new String(chars, 0, length));
             }
+        });
+        if (words.isEmpty()) {
+            return new String[] {""};
         }
-        return cleanedReview.toString().trim().split("\\s+");
+        return words.toArray(new String[0]);
     }
 
 }
-
@@ -0,0 +1,225 @@
+package hotelapp;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+/**
+ * Watches the review directory tree and applies created, modified and deleted review files
+ * to the HotelData as deltas, instead of reloading and re-indexing everything.
+ * For a modified or deleted file, the reviews previously read from it are retracted
+ * from the reviewMap and the wordMap before its new content is added.
+ *
+ * A file that is still being written may be read while incomplete; its content is
+ * replaced again by the modify event that follows. Writers that create the file under
+ * a temporary name and rename it into place avoid this.
+ */
+public class ReviewDirectoryWatcher implements Runnable {
+    private final HotelData data;
+    private final Path reviewsDir;
+    private final Map<Path, List<Review>> reviewFiles;
+    // Number of tracked files holding each review, the same review can appear in several files
+    private final Map<String, Integer> reviewRefCounts = new HashMap<>();
+    private final Map<WatchKey, Path> watchedDirs = new HashMap<>();
+    private WatchService watchService;
+
+    /**
+     * Constructor for the ReviewDirectoryWatcher class.
+     *
+     * @param data        The data the changes are applied to.
+     * @param reviewsDir  The root directory of the review files.
+     * @param reviewFiles The reviews already loaded from each file, keyed by absolute normalized path,
+     *                    as returned by MultithreadedDirectoryTraverser.getReviewFiles(); may be null.
+     */
+    public ReviewDirectoryWatcher(HotelData data, Path reviewsDir, Map<Path, List<Review>> reviewFiles) {
+        this.data = data;
+        this.reviewsDir = reviewsDir.toAbsolutePath().normalize();
+        this.reviewFiles = reviewFiles != null ? reviewFiles : new ConcurrentHashMap<>();
+        for (List<Review> reviews : this.reviewFiles.values()) {
+            for (Review review : reviews) {
+                reviewRefCounts.merge(reviewKey(review), 1, Integer::sum);
+            }
+        }
+    }
+
+    /**
+     * Returns the key identifying a review across files: the same values the reviewMap orders by.
+     *
+     * @param review The review.
+     * @return The key of the review.
+     */
+    private static String reviewKey(Review review) {
+        return review.getHotelId() + "/" + review.getDatePosted() + "/" + review.getReviewId();
+    }
+
+    /**
+     * Starts watching in a daemon thread.
+     *
+     * @return The started thread.
+     * @throws IOException If the directory tree can not be registered.
+     */
+    public Thread start() throws IOException {
+        watchService = FileSystems.getDefault().newWatchService();
+        registerTree(reviewsDir);
+        Thread thread = new Thread(this, "review-directory-watcher");
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    /**
+     * Stops watching.
+     */
+    public void stop() {
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            System.out.println(e);
+        }
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                Path dir = watchedDirs.get(key);
+                // Create and modify events of the same file often arrive together, apply each file once
+                Set<Path> changedFiles = new LinkedHashSet<>();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == OVERFLOW) {
+                        System.out.println("Missed file events, rescanning " + dir);
+                        collectFiles(dir, changedFiles);
+                        continue;
+                    }
+                    Path path = dir.resolve((Path) event.context());
+                    if (event.kind() == ENTRY_CREATE && Files.isDirectory(path)) {
+                        registerTree(path);
+                        collectFiles(path, changedFiles);
+                    } else if (path.toString().endsWith(".json")) {
+                        changedFiles.add(path);
+                    } else if (event.kind() == ENTRY_DELETE) {
+                        // A deleted directory does not report its files, retract every file below it
+                        Path deleted = path.toAbsolutePath().normalize();
+                        for (Path file : reviewFiles.keySet()) {
+                            if (file.startsWith(deleted)) {
+                                changedFiles.add(file);
+                            }
+                        }
+                    }
+                }
+                if (!key.reset()) {
+                    watchedDirs.remove(key);
+                }
+                for (Path file : changedFiles) {
+                    applyFile(file);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            // stopped
+        } catch (IOException e) {
+            System.out.println("Stopped watching " + reviewsDir + ": " + e);
+        }
+    }
+
+    /**
+     * Applies the current content of a review file: the reviews previously read from it are
+     * retracted and the reviews it holds now are added. A deleted file only retracts.
+     * Reviews that another tracked file still holds are not retracted.
+     * A file that can not be read or parsed is left as it was.
+     *
+     * @param file The review file.
+     */
+    public synchronized void applyFile(Path file) {
+        file = file.toAbsolutePath().normalize();
+        List<Review> newReviews = Collections.emptyList();
+        if (Files.isRegularFile(file)) {
+            try {
+                newReviews = JsonProcessor.parseSingleReviewFileStreaming(file.toString());
+            } catch (IOException e) {
+                // Often a file caught halfway through being written; its next modify event applies it
+                System.out.println("Keeping the previous reviews of " + file + ": " + e);
+                return;
+            }
+        }
+        List<Review> oldReviews = reviewFiles.getOrDefault(file, Collections.emptyList());
+        List<Review> retracted = new ArrayList<>();
+        for (Review review : oldReviews) {
+            String key = reviewKey(review);
+            int count = reviewRefCounts.merge(key, -1, Integer::sum);
+            if (count <= 0) {
+                reviewRefCounts.remove(key);
+                retracted.add(review);
+            }
+        }
+        for (Review review : newReviews) {
+            reviewRefCounts.merge(reviewKey(review), 1, Integer::sum);
+        }
+        data.replaceReviews(retracted, newReviews);
+        if (newReviews.isEmpty()) {
+            reviewFiles.remove(file);
+        } else {
+            reviewFiles.put(file, newReviews);
+        }
+        System.out.println("Reloaded " + file + ": -" + oldReviews.size() + " +" + newReviews.size() + " reviews");
+    }
+
+    /**
+     * Registers a directory and all its subdirectories with the watch service.
+     *
+     * @param dir The directory to register.
+     * @throws IOException If a directory can not be registered.
+     */
+    private void registerTree(Path dir) throws IOException {
+        WatchKey key = dir.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+        watchedDirs.put(key, dir);
+        try (DirectoryStream<Path> filesList = Files.newDirectoryStream(dir)) {
+            for (Path path : filesList) {
+                if (Files.isDirectory(path)) {
+                    registerTree(path);
+                }
+            }
+        }
+    }
+
+    /**
+     * Collects the review files of a directory and its subdirectories.
+     *
+     * @param dir   The directory to scan.
+     * @param files The set the review files are added to.
+     */
+    private void collectFiles(Path dir, Set<Path> files) {
+        try (DirectoryStream<Path> filesList = Files.newDirectoryStream(dir)) {
+            for (Path path : filesList) {
+                if (Files.isDirectory(path)) {
+                    collectFiles(path, files);
+                } else if (path.toString().endsWith(".json")) {
+                    files.add(path);
+                }
+            }
+        } catch (IOException e) {
+            System.out.println(e);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package hotelapp;
+
+import java.io.IOException;
+import java.lang.ref.Reference;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Command line report comparing the heap retained by the reviews of a directory in the compact
+ * Review layout with the heap the same reviews take as plain objects of seven String and number
+ * fields, the layout Review had before (one String per id, title, text, nickname and date).
+ * Each side is measured as the growth of the used heap after a full collection.
+ *
+ * Usage: ReviewFootprintReport -reviews &lt;dir&gt;
+ */
+public class ReviewFootprintReport {
+
+    public static void main(String[] args) throws Exception {
+        SearchHelper searchHelper = new SearchHelper();
+        searchHelper.processArgs(args);
+        String reviewsFilePath = searchHelper.getArgValue("-reviews");
+        if (reviewsFilePath == null) {
+            System.out.println("Please configure: ReviewFootprintReport -reviews <reviews_dir>");
+            return;
+        }
+        List<Path> files;
+        try (Stream<Path> paths = Files.walk(Paths.get(reviewsFilePath))) {
+            files = paths.filter(path -> path.toString().endsWith(".json")).collect(Collectors.toList());
+        }
+
+        List<Review> parsed = new ArrayList<>();
+        for (Path file : files) {
+            try {
+                parsed.addAll(JsonProcessor.parseSingleReviewFileStreaming(file.toString()));
+            } catch (IOException e) {
+                System.out.println("Skipping review file " + file + ": " + e);
+            }
+        }
+
+        // Both sides are built the same way from the parsed reviews, so parser buffers are not counted;
+        // the texts are copied so neither side shares them with the parsed reviews
+        long before = usedHeap();
+        List<Review> compact = new ArrayList<>(parsed.size());
+        for (Review review : parsed) {
+            compact.add(new Review(review.getHotelId(), review.getReviewId(), review.getRatingOverall(), copy(review.getTitle()),
+                    copy(review.getReviewText()), copy(review.getUserNickname()), review.getDatePosted()));
+        }
+        long compactBytes = usedHeap() - before;
+
+        before = usedHeap();
+        List<StringFieldReview> plain = new ArrayList<>(parsed.size());
+        for (Review review : parsed) {
+            plain.add(new StringFieldReview(review));
+        }
+        long plainBytes = usedHeap() - before;
+
+        int reviews = parsed.size();
+        System.out.printf("%-14s %10s %14s %14s%n", "layout", "reviews", "heap MB", "bytes/review");
+        System.out.printf("%-14s %10d %14.1f %14.1f%n", "string fields", reviews, plainBytes / 1048576.0, plainBytes / (double) reviews);
+        System.out.printf("%-14s %10d %14.1f %14.1f%n", "compact", reviews, compactBytes / 1048576.0, compactBytes / (double) reviews);
+        System.out.printf("compact / string fields: %.2f%n", compactBytes / (double) plainBytes);
+        // keep both lists reachable until both were measured
+        Reference.reachabilityFence(compact);
+        Reference.reachabilityFence(plain);
+    }
+
+    private static String copy(String s) {
+        // new String(s) would share the characters of s
+        return s == null ? null : new String(s.toCharArray());
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * A review in the previous layout, with its own String instance for every text field.
+     */
+    private static class StringFieldReview {
+        private final int hotelId;
+        private final String reviewId;
+        private final double ratingOverall;
+        private final String title;
+        private final String reviewText;
+        private final String userNickname;
+        private final String datePosted;
+
+        public StringFieldReview(Review review) {
+            this.hotelId = review.getHotelId();
+            this.reviewId = review.getReviewId();
+            this.ratingOverall = review.getRatingOverall();
+            this.title = copy(review.getTitle());
+            this.reviewText = copy(review.getReviewText());
+            this.userNickname = copy(review.getUserNickname());
+            this.datePosted = review.getDatePosted();
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package hotelapp;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A boolean query over the word index: every clause must match, a clause matches a review that contains
+ * at least one of its terms, and a review containing an excluded term never matches.
+ * Terms written next to each other are ANDed, OR joins the terms on both sides into one clause,
+ * and NOT or a leading '-' excludes the following term. "quiet clean OR tidy NOT noisy" is
+ * quiet AND (clean OR tidy) AND NOT noisy. Terms are tokenized like review text,
+ * so they are lowercased, stripped of non-letters, and stop words are dropped.
+ *
+ * The clauses are evaluated from the one with the fewest postings: its reviews are the candidates,
+ * and every further clause only narrows them, with a galloping search of each of its lists in ordinal order.
+ * A long list keeps its ordinal order once it was needed, see PostingList.byOrdinal(), so a rare word
+ * ANDed with a common one costs a few searches of the common list, not a decode and sort of it.
+ */
+public class ReviewQuery {
+    private final List<List<String>> clauses = new ArrayList<>();
+    private final List<String> excluded = new ArrayList<>();
+
+    private ReviewQuery() {
+    }
+
+    /**
+     * Parses a query.
+     *
+     * @param query The query text.
+     * @return The parsed query, without clauses if the text has no terms.
+     */
+    public static ReviewQuery parse(String query) {
+        ReviewQuery parsed = new ReviewQuery();
+        boolean or = false;
+        boolean not = false;
+        ReviewTokenizer tokenizer = new ReviewTokenizer();
+        for (String token : query.trim().split("\\s+")) {
+            if ("AND".equals(token)) {
+                continue;
+            } else if ("OR".equals(token)) {
+                or = !parsed.clauses.isEmpty();
+                continue;
+            } else if ("NOT".equals(token)) {
+                not = true;
+                continue;
+            }
+            if (token.startsWith("-")) {
+                not = true;
+            }
+            // A stop word is not indexed, so it neither requires nor excludes anything
+            String term = normalize(tokenizer, token);
+            if (term != null) {
+                if (not) {
+                    parsed.excluded.add(term);
+                } else if (or) {
+                    parsed.clauses.get(parsed.clauses.size() - 1).add(term);
+                } else {
+                    List<String> clause = new ArrayList<>(2);
+                    clause.add(term);
+                    parsed.clauses.add(clause);
+                }
+            }
+            or = false;
+            not = false;
+        }
+        return parsed;
+    }
+
+    /**
+     * Turns a query token into an index word the way review text is tokenized.
+     *
+     * @return The word, or null if nothing is left of it or it is a stop word.
+     */
+    static String normalize(ReviewTokenizer tokenizer, String token) {
+        final String[] word = new String[1];
+        tokenizer.tokenize(token, new ReviewTokenizer.TokenHandler() {
+            @Override
+            public void token(char[] chars, int length) {
+                word[0] = new String(chars, 0, length);
+            }
+        });
+        return word[0];
+    }
+
+    /**
+     * @return The clauses, each a list of alternative terms.
+     */
+    public List<List<String>> getClauses() {
+        return Collections.unmodifiableList(clauses);
+    }
+
+    /**
+     * @return The excluded terms.
+     */
+    public List<String> getExcluded() {
+        return Collections.unmodifiableList(excluded);
+    }
+
+    /**
+     * Finds the reviews matching the query.
+     *
+     * @param wordMap The word index.
+     * @return The matching reviews in ascending ordinal order, each packed as ordinal &lt;&lt; 32 | score,
+     *         where the score is the sum of the frequencies of the matched terms.
+     */
+    long[] evaluate(Map<String, PostingList> wordMap) {
+        List<List<PostingList>> resolved = new ArrayList<>(clauses.size());
+        for (List<String> clause : clauses) {
+            List<PostingList> lists = new ArrayList<>(clause.size());
+            for (String term : clause) {
+                PostingList postings = wordMap.get(term);
+                if (postings != null) {
+                    lists.add(postings);
+                }
+            }
+            if (lists.isEmpty()) {
+                return new long[0];
+            }
+            resolved.add(lists);
+        }
+        if (resolved.isEmpty()) {
+            return new long[0];
+        }
+        // Start from the rarest clause, the candidates only shrink from there
+        resolved.sort(new Comparator<List<PostingList>>() {
+            @Override
+            public int compare(List<PostingList> c1, List<PostingList> c2) {
+                return Long.compare(postingCount(c1), postingCount(c2));
+            }
+        });
+
+        long[] candidates = union(resolved.get(0));
+        int count = candidates.length;
+        boolean[] matched = new boolean[count];
+        for (int c = 1; c < resolved.size() && count > 0; c++) {
+            Arrays.fill(matched, 0, count, false);
+            for (PostingList postings : resolved.get(c)) {
+                addMatches(candidates, count, matched, postings.byOrdinal());
+            }
+            count = compact(candidates, count, matched, true);
+        }
+        for (String term : excluded) {
+            PostingList postings = wordMap.get(term);
+            if (postings == null || count == 0) {
+                continue;
+            }
+            Arrays.fill(matched, 0, count, false);
+            long[] excludedPostings = postings.byOrdinal();
+            int from = 0;
+            for (int i = 0; i < count && from < excludedPostings.length; i++) {
+                int found = gallop(excludedPostings, from, ordinal(candidates[i]));
+                matched[i] = found >= 0;
+                from = found >= 0 ? found + 1 : -found - 1;
+            }
+            count = compact(candidates, count, matched, false);
+        }
+        return Arrays.copyOf(candidates, count);
+    }
+
+    private static long postingCount(List<PostingList> clause) {
+        long count = 0;
+        for (PostingList postings : clause) {
+            count += postings.size();
+        }
+        return count;
+    }
+
+    private static int ordinal(long posting) {
+        return (int) (posting >>> 32);
+    }
+
+    /**
+     * Unions the lists of a clause, adding up the frequencies of a review found in several lists.
+     */
+    private static long[] union(List<PostingList> clause) {
+        if (clause.size() == 1) {
+            // The scores are added to the candidates, so the list's own order is not changed
+            return clause.get(0).byOrdinal().clone();
+        }
+        long[] all = new long[(int) postingCount(clause)];
+        int length = 0;
+        for (PostingList postings : clause) {
+            long[] sorted = postings.byOrdinal();
+            System.arraycopy(sorted, 0, all, length, sorted.length);
+            length += sorted.length;
+        }
+        Arrays.sort(all);
+        int count = 0;
+        for (int i = 0; i < length; i++) {
+            if (count > 0 && ordinal(all[count - 1]) == ordinal(all[i])) {
+                all[count - 1] += (int) all[i];
+            } else {
+                all[count++] = all[i];
+            }
+        }
+        return Arrays.copyOf(all, count);
+    }
+
+    /**
+     * Marks the candidates found in the postings and adds their frequency to the candidate's score.
+     * Both arrays are in ascending ordinal order, so each search continues where the last one stopped.
+     */
+    private static void addMatches(long[] candidates, int count, boolean[] matched, long[] postings) {
+        int from = 0;
+        for (int i = 0; i < count && from < postings.length; i++) {
+            int found = gallop(postings, from, ordinal(candidates[i]));
+            if (found >= 0) {
+                matched[i] = true;
+                candidates[i] += (int) postings[found];
+                from = found + 1;
+            } else {
+                from = -found - 1;
+            }
+        }
+    }
+
+    /**
+     * Galloping search: probes from, from + 1, from + 2, from + 4, ... until it reaches the ordinal,
+     * then binary searches the last step. Costs O(log d) for a match d positions ahead.
+     *
+     * @return The index of the posting with the ordinal, or -(insertion point) - 1.
+     */
+    private static int gallop(long[] postings, int from, int ordinal) {
+        int low = from;
+        int step = 1;
+        int high = from;
+        while (high < postings.length && ordinal(postings[high]) < ordinal) {
+            low = high + 1;
+            high = from + step;
+            step <<= 1;
+        }
+        high = Math.min(high, postings.length - 1);
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int midOrdinal = ordinal(postings[mid]);
+            if (midOrdinal < ordinal) {
+                low = mid + 1;
+            } else if (midOrdinal > ordinal) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -low - 1;
+    }
+
+    /**
+     * Moves the candidates whose mark equals keep to the front.
+     *
+     * @return The number of candidates left.
+     */
+    private static int compact(long[] candidates, int count, boolean[] matched, boolean keep) {
+        int kept = 0;
+        for (int i = 0; i < count; i++) {
+            if (matched[i] == keep) {
+                candidates[kept++] = candidates[i];
+            }
+        }
+        return kept;
+    }
+}
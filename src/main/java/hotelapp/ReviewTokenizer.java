@@ -0,0 +1,265 @@
+package hotelapp;
+
+import java.util.Arrays;
+
+/**
+ * Splits review text into index words in a single pass over its characters.
+ * Words are separated by whitespace (space, tab, line feed, vertical tab, form feed, carriage return);
+ * within a word, letters are lowercased and every other character is dropped, and stop words are skipped.
+ * This gives the same words as splitting on \s+, lowercasing and removing [^a-zA-Z],
+ * without a String for every word.
+ *
+ * A tokenizer reuses its buffers and is meant to be used by one thread at a time.
+ */
+public class ReviewTokenizer {
+    private static final String[] STOP_WORDS = {"a", "the", "is", "are", "were", "and"};
+    private static final int MAX_STOP_WORD_LENGTH = 4;
+    // Perfect hash set of the stop words: STOP_TABLE[hash(word)] is the only slot a stop word can be in
+    private static final int STOP_TABLE_BITS = 3;
+    private static final char[][] STOP_TABLE = new char[1 << STOP_TABLE_BITS][];
+    private static final int STOP_SEED;
+
+    static {
+        int seed = 1;
+        while (!fillStopTable(seed)) {
+            seed++;
+        }
+        STOP_SEED = seed;
+    }
+
+    /**
+     * Receives the words of a text. The chars array is reused for the next word,
+     * so it must be copied if the word is kept.
+     */
+    public interface TokenHandler {
+        void token(char[] chars, int length);
+    }
+
+    private char[] word = new char[64];
+
+    // Distinct words of the last counted text: their chars in one arena, and an open addressing table
+    private char[] arena = new char[1024];
+    private int arenaSize;
+    private int[] termStart = new int[64];
+    private int[] termLength = new int[64];
+    private int[] termFrequency = new int[64];
+    private int[] termSlot = new int[64];
+    private int termCount;
+    private int[] slots = new int[128]; // term index + 1, 0 for an empty slot
+    private final TokenHandler counter = new TokenHandler() {
+        @Override
+        public void token(char[] chars, int length) {
+            addTerm(chars, length);
+        }
+    };
+    // Target of countTerms, set for the duration of a call
+    private TermDictionary dictionary;
+    private TermCounter termCounter;
+    private final TokenHandler idCounter = new TokenHandler() {
+        @Override
+        public void token(char[] chars, int length) {
+            termCounter.increment(dictionary.add(chars, 0, length));
+        }
+    };
+
+    private static boolean fillStopTable(int seed) {
+        Arrays.fill(STOP_TABLE, null);
+        for (String stopWord : STOP_WORDS) {
+            char[] chars = stopWord.toCharArray();
+            int slot = stopHash(chars, chars.length, seed);
+            if (STOP_TABLE[slot] != null) {
+                return false;
+            }
+            STOP_TABLE[slot] = chars;
+        }
+        return true;
+    }
+
+    private static int stopHash(char[] chars, int length, int seed) {
+        int h = length;
+        for (int i = 0; i < length; i++) {
+            h = h * 31 + chars[i];
+        }
+        return (h * seed * 0x9E3779B1) >>> (32 - STOP_TABLE_BITS);
+    }
+
+    private static boolean isStopWord(char[] chars, int length) {
+        if (length > MAX_STOP_WORD_LENGTH) {
+            return false;
+        }
+        char[] candidate = STOP_TABLE[stopHash(chars, length, STOP_SEED)];
+        if (candidate == null || candidate.length != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (candidate[i] != chars[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isSeparator(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    /**
+     * Returns the lowercase ASCII letter a character turns into, or 0 if it is dropped.
+     * Besides A-Z, a few other letters lowercase to ASCII (the dotted capital I and the Kelvin sign).
+     */
+    private static char toLowerLetter(char c) {
+        if (c >= 'a' && c <= 'z') {
+            return c;
+        }
+        if (c >= 'A' && c <= 'Z') {
+            return (char) (c + ('a' - 'A'));
+        }
+        if (c < 128) {
+            return 0;
+        }
+        char lower = Character.toLowerCase(c);
+        return lower >= 'a' && lower <= 'z' ? lower : 0;
+    }
+
+    /**
+     * Passes every word of the text that is not a stop word to the handler.
+     *
+     * @param text    The text to split, may be null.
+     * @param handler Receives the words.
+     */
+    public void tokenize(CharSequence text, TokenHandler handler) {
+        if (text == null) {
+            return;
+        }
+        int length = 0;
+        int n = text.length();
+        for (int i = 0; i <= n; i++) {
+            char c = i < n ? text.charAt(i) : ' ';
+            if (isSeparator(c)) {
+                if (length > 0 && !isStopWord(word, length)) {
+                    handler.token(word, length);
+                }
+                length = 0;
+            } else {
+                char letter = toLowerLetter(c);
+                if (letter != 0) {
+                    if (length == word.length) {
+                        word = Arrays.copyOf(word, length * 2);
+                    }
+                    word[length++] = letter;
+                }
+            }
+        }
+    }
+
+    /**
+     * Counts the words of the text. Afterwards termCount(), term(i) and frequency(i)
+     * describe the distinct words, until the next call.
+     *
+     * @param text The text to count the words of, may be null.
+     */
+    public void count(CharSequence text) {
+        for (int i = 0; i < termCount; i++) {
+            slots[termSlot[i]] = 0;
+        }
+        termCount = 0;
+        arenaSize = 0;
+        tokenize(text, counter);
+    }
+
+    /**
+     * Counts the words of the text by term ID, adding words the dictionary does not have yet.
+     * The counter is cleared first and afterwards holds the ID and frequency of each distinct word.
+     *
+     * @param text       The text to count the words of, may be null.
+     * @param dictionary The dictionary the term IDs come from.
+     * @param counts     The counter to count into.
+     */
+    public void countTerms(CharSequence text, TermDictionary dictionary, TermCounter counts) {
+        counts.clear();
+        this.dictionary = dictionary;
+        this.termCounter = counts;
+        try {
+            tokenize(text, idCounter);
+        } finally {
+            this.dictionary = null;
+            this.termCounter = null;
+        }
+    }
+
+    /**
+     * @return The number of distinct words of the last counted text.
+     */
+    public int termCount() {
+        return termCount;
+    }
+
+    /**
+     * @param i The index of a distinct word, from 0 to termCount() - 1.
+     * @return The word.
+     */
+    public String term(int i) {
+        return new String(arena, termStart[i], termLength[i]);
+    }
+
+    /**
+     * @param i The index of a distinct word, from 0 to termCount() - 1.
+     * @return The number of times the word occurs in the last counted text.
+     */
+    public int frequency(int i) {
+        return termFrequency[i];
+    }
+
+    private void addTerm(char[] chars, int length) {
+        int mask = slots.length - 1;
+        int slot = hash(chars, 0, length) & mask;
+        while (slots[slot] != 0) {
+            int term = slots[slot] - 1;
+            if (termLength[term] == length && Arrays.equals(arena, termStart[term], termStart[term] + length, chars, 0, length)) {
+                termFrequency[term]++;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        if (arenaSize + length > arena.length) {
+            arena = Arrays.copyOf(arena, Math.max(arena.length * 2, arenaSize + length));
+        }
+        System.arraycopy(chars, 0, arena, arenaSize, length);
+        if (termCount == termStart.length) {
+            termStart = Arrays.copyOf(termStart, termCount * 2);
+            termLength = Arrays.copyOf(termLength, termCount * 2);
+            termFrequency = Arrays.copyOf(termFrequency, termCount * 2);
+            termSlot = Arrays.copyOf(termSlot, termCount * 2);
+        }
+        termStart[termCount] = arenaSize;
+        termLength[termCount] = length;
+        termFrequency[termCount] = 1;
+        termSlot[termCount] = slot;
+        arenaSize += length;
+        slots[slot] = ++termCount;
+        if (termCount * 2 > slots.length) {
+            rehash();
+        }
+    }
+
+    private void rehash() {
+        slots = new int[slots.length * 2];
+        int mask = slots.length - 1;
+        for (int term = 0; term < termCount; term++) {
+            int slot = hash(arena, termStart[term], termLength[term]) & mask;
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = term + 1;
+            termSlot[term] = slot;
+        }
+    }
+
+    private static int hash(char[] chars, int start, int length) {
+        int h = 0;
+        for (int i = start; i < start + length; i++) {
+            h = h * 31 + chars[i];
+        }
+        return h ^ (h >>> 16);
+    }
+}
@@ -3,10 +3,13 @@ package hotelapp;
 import java.io.BufferedWriter;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Scanner;
-import java.util.TreeSet;
+import java.util.function.Supplier;
 
 public class SearchHelper {
     private HashMap<String, String> argMap = new HashMap<>();
@@ -31,6 +34,16 @@ public class SearchHelper {
                 argMap.put("-reviews", args[i + 1]);
             } else if ("-threads".equals(args[i]) && i + 1 < args.length) {
                 argMap.put("-threads", args[i + 1]);
+            } else if ("-ingest".equals(args[i]) && i + 1 < args.length) {
+                argMap.put("-ingest", args[i + 1]);
+            } else if ("-snapshot".equals(args[i]) && i + 1 < args.length) {
+                argMap.put("-snapshot", args[i + 1]);
+            } else if ("-watch".equals(args[i])) {
+                argMap.put("-watch", "true");
+            } else if ("-stages".equals(args[i]) && i + 1 < args.length) {
+                argMap.put("-stages", args[i + 1]);
+            } else if ("-reads".equals(args[i]) && i + 1 < args.length) {
+                argMap.put("-reads", args[i + 1]);
             }
         }
 
@@ -49,6 +62,75 @@ public class SearchHelper {
         return argMap.get(argName);
     }
 
+    /**
+     * Loads the hotel and review data as configured by the arguments:
+     * -ingest selects the fixed pool with a shared lock (default), "partial" per-worker review maps,
+     * "striped" per-hotel lock stripes, or "pipeline" the staged pipeline with -stages thread counts; -threads is a thread count or "virtual";
+     * -snapshot restores the data from a snapshot file when the sources are unchanged;
+     * -watch keeps applying changed review files after the load, and builds the word map first;
+     * -reads "copyonwrite" serves the loaded data to lock-free readers from immutable versions.
+     *
+     * @return The loaded data.
+     */
+    public HotelData loadData() {
+        String hotelsFilePath = getArgValue("-hotels");
+        String reviewsFilePath = getArgValue("-reviews");
+        String snapshotFilePath = getArgValue("-snapshot");
+        String ingest = getArgValue("-ingest");
+        String threads = getArgValue("-threads");
+        boolean watch = getArgValue("-watch") != null && reviewsFilePath != null;
+        if (watch) {
+            // The watcher needs to know which reviews came from which file, the snapshot does not keep that
+            snapshotFilePath = null;
+        }
+
+        Supplier<HotelReviewData> loader;
+        Supplier<Map<Path, List<Review>>> reviewFiles;
+        if ("pipeline".equals(ingest)) {
+            int parseThreads = "virtual".equals(threads) ? Runtime.getRuntime().availableProcessors() : Integer.parseInt(threads);
+            IngestionPipeline pipeline = IngestionPipeline.create(getArgValue("-stages"), parseThreads);
+            if (watch) {
+                pipeline.trackReviewFiles();
+            }
+            loader = () -> pipeline.loadData(hotelsFilePath, reviewsFilePath);
+            reviewFiles = pipeline::getReviewFiles;
+        } else {
+            MultithreadedDirectoryTraverser traverser = MultithreadedDirectoryTraverser.create(threads, "partial".equals(ingest));
+            if ("striped".equals(ingest)) {
+                traverser.useStripedLocking();
+            }
+            if (watch) {
+                traverser.trackReviewFiles();
+            }
+            loader = () -> traverser.loadData(hotelsFilePath, reviewsFilePath);
+            reviewFiles = traverser::getReviewFiles;
+        }
+
+        HotelReviewData loaded;
+        if (snapshotFilePath != null) {
+            // Restored into the same kind of data the loader fills, -reads copyonwrite wraps it below like loaded data
+            HotelReviewData target = "striped".equals(ingest) ? new StripedHotelData() : new ThreadSafeHotelData();
+            loaded = HotelDataSnapshot.loadOrParse(snapshotFilePath, hotelsFilePath, reviewsFilePath, target, loader);
+        } else {
+            loaded = loader.get();
+        }
+        if (watch) {
+            loaded.buildWordMap();
+        }
+        HotelData hotelReviewData = loaded;
+        if ("copyonwrite".equals(getArgValue("-reads"))) {
+            hotelReviewData = new CopyOnWriteHotelData(loaded);
+        }
+        if (watch) {
+            try {
+                new ReviewDirectoryWatcher(hotelReviewData, Paths.get(reviewsFilePath), reviewFiles.get()).start();
+            } catch (IOException e) {
+                System.out.println("Could not watch " + reviewsFilePath + ": " + e);
+            }
+        }
+        return hotelReviewData;
+    }
+
     /**
      * Write hotel and review data to an output file in a specific format.
      *
@@ -56,7 +138,7 @@ public class SearchHelper {
      * @param outputFilePath   The path to the output file.
      * @param reviewsFilePath  The path to the directory containing review files (may be null).
      */
-    public void writeFile (HotelReviewData hotelReviewData, String outputFilePath, String reviewsFilePath) {
+    public void writeFile (HotelData hotelReviewData, String outputFilePath, String reviewsFilePath) {
         try (BufferedWriter writer = new BufferedWriter(new FileWriter(outputFilePath))) {
             for (Map.Entry<String, Hotel> entry : hotelReviewData.getHotelMap().entrySet()) {
                 String hotelId = entry.getKey();
@@ -67,12 +149,12 @@ public class SearchHelper {
                 writer.write(hotel.getCityAndState() + "\n");
                 if (!(reviewsFilePath == null)) {
                     if (hotelReviewData.getReviewMap().containsKey(Integer.parseInt(hotelId))) {
-                        TreeSet<Review> reviewList = hotelReviewData.getReviewMap().get(Integer.parseInt(hotelId));
+                        SortedReviews reviewList = hotelReviewData.getReviewMap().get(Integer.parseInt(hotelId));
                         for (Review review : reviewList) {
                             if (review != null) {
                                 writer.write("--------------------\n");
                                 String reviewDate= review.getDatePosted();
-                                String onlyDate = reviewDate.substring(0, reviewDate.indexOf("T"));
+                                String onlyDate = reviewDate == null ? "unknown date" : reviewDate.substring(0, reviewDate.indexOf("T"));
                                 String userNickname = review.getUserNickname();
                                 if (userNickname.equals("")) {
                                     userNickname = "Anonymous";
@@ -95,12 +177,15 @@ public class SearchHelper {
     }
 
     /**
-     * Handle user input commands and interact with HotelReviewData.
+     * Handle user input commands and interact with the HotelData.
      *
      * @param hotelReviewData The data structure containing hotel and review information.
      */
-    public void handleUserInput(HotelReviewData hotelReviewData) {
-        hotelReviewData.buildWordMap();
+    public void handleUserInput(HotelData hotelReviewData) {
+        // Data restored from a snapshot already has its word map
+        if (hotelReviewData.getWordMap().isEmpty()) {
+            hotelReviewData.buildWordMap();
+        }
         Scanner scanner = new Scanner(System.in);
         while (true) {
             String userInput = scanner.nextLine();
@@ -118,17 +203,33 @@ public class SearchHelper {
             } else if (userInput.matches("^findReviews\\s+\\d+$")) {
                 String[] parts = userInput.split("\\s+");
                 int targetHotelId = Integer.parseInt(parts[1]);
-                String result = hotelReviewData.findReviewInfo(targetHotelId);
-                if (result != null) {
-                    System.out.println(result);
+                try {
+                    hotelReviewData.findReviewInfo(targetHotelId, 0, Integer.MAX_VALUE, System.out);
+                } catch (IOException e) {
+                    System.out.println(e);
                 }
+                System.out.println();
+            } else if (userInput.matches("^findWordFuzzy\\s+\\w+$")) {
+                // Also finds the reviews of close words, e.g. findWordFuzzy breakfest
+                String targetWord = userInput.split("\\s+")[1];
+                System.out.println(hotelReviewData.findWordFuzzy(targetWord));
             } else if (userInput.matches("^findWord\\s+\\w+$")) {
                 String targetWord = userInput.split("\\s+")[1];
-                String result = hotelReviewData.findWord(targetWord);
+                // Written as the reviews are formatted, frequent words match thousands of them
+                try {
+                    hotelReviewData.findWord(targetWord, 0, Integer.MAX_VALUE, System.out);
+                } catch (IOException e) {
+                    System.out.println(e);
+                }
+                System.out.println();
+
+            } else if (userInput.matches("^findWord\\s+\\S.*$")) {
+                // Several words: a boolean query, e.g. findWord quiet clean OR tidy NOT noisy
+                String query = userInput.trim().split("\\s+", 2)[1];
+                String result = hotelReviewData.findQuery(query);
                 if (result != null) {
                     System.out.println(result);
                 }
-
             } else {
                 System.out.println("Please enter valid command.");
             }
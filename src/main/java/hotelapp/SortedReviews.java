@@ -0,0 +1,270 @@
+package hotelapp;
+
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * The reviews of one hotel, kept in a sorted array: newest first by the precomputed epoch day,
+ * then by reviewId. Reviews that compare equal are stored once, the first one added is kept.
+ * A batch of reviews is sorted on its own and merged into the array in one pass, so bulk loading
+ * a hotel does not go through a comparator-driven tree; single reviews are placed by binary search.
+ * For finding a review by its ID alone, a second array orders the same reviews by ID; it is only
+ * built on the first such lookup, and kept up to date by single changes after that.
+ *
+ * Not thread-safe; ThreadSafeHotelData guards it with its lock, StripedHotelData with the stripe of its hotel,
+ * CopyOnWriteHotelData changes copies only.
+ * A HotelReviewData only changes the reviews it owns, and copies the ones it shares with a copy of itself first.
+ */
+public class SortedReviews extends AbstractCollection<Review> {
+    /** Newest first, then by reviewId. Reviews without a date sort last. */
+    public static final Comparator<Review> NEWEST_FIRST = new Comparator<Review>() {
+        @Override
+        public int compare(Review r1, Review r2) {
+            int dateComparison = Integer.compare(r2.getEpochDay(), r1.getEpochDay());
+            if (dateComparison != 0) {
+                return dateComparison;
+            }
+            return r1.compareTo(r2);
+        }
+    };
+    // By reviewId, then newest first, so reviews with the same ID are told apart as in the main order
+    private static final Comparator<Review> BY_ID = new Comparator<Review>() {
+        @Override
+        public int compare(Review r1, Review r2) {
+            int idComparison = r1.compareTo(r2);
+            if (idComparison != 0) {
+                return idComparison;
+            }
+            return Integer.compare(r2.getEpochDay(), r1.getEpochDay());
+        }
+    };
+    private static final Review[] EMPTY = new Review[0];
+
+    private Review[] reviews = EMPTY;
+    private int size;
+    // The same reviews ordered by BY_ID; null until findById() first needs it
+    private Review[] byId;
+    // The token of the HotelReviewData that may change these reviews in place
+    private Object owner;
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return A copy holding the same reviews, which can be changed independently.
+     */
+    public SortedReviews copy() {
+        SortedReviews copy = new SortedReviews();
+        copy.reviews = Arrays.copyOf(reviews, size);
+        copy.size = size;
+        copy.byId = byId == null ? null : byId.clone();
+        return copy;
+    }
+
+    /**
+     * @param owner The token of a HotelReviewData.
+     * @return Whether that data may change these reviews in place.
+     */
+    boolean isOwnedBy(Object owner) {
+        return this.owner == owner;
+    }
+
+    /**
+     * Lets a HotelReviewData change these reviews in place; any other data sharing them copies them first.
+     *
+     * @param owner The token of the data.
+     */
+    void setOwner(Object owner) {
+        this.owner = owner;
+    }
+
+    /**
+     * Returns the review at the given position of the order.
+     *
+     * @param index The position, from 0 to size() - 1.
+     * @return The review at that position.
+     */
+    public Review get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+        }
+        return reviews[index];
+    }
+
+    /**
+     * Iterates over the reviews in order. The reviews must not be modified while iterating.
+     */
+    @Override
+    public Iterator<Review> iterator() {
+        final Review[] array = reviews;
+        final int end = size;
+        return new Iterator<Review>() {
+            private int next = 0;
+
+            @Override
+            public boolean hasNext() {
+                return next < end;
+            }
+
+            @Override
+            public Review next() {
+                if (next >= end) {
+                    throw new NoSuchElementException();
+                }
+                return array[next++];
+            }
+        };
+    }
+
+    /**
+     * Finds the review with an ID, with a binary search of the reviews ordered by ID, which are sorted
+     * on the first call. Changes the array kept for that, so it is called by writers, not by concurrent readers.
+     *
+     * @param reviewId The ID of the review.
+     * @return The review, the newest one if several have the ID, or null if there is none.
+     */
+    public Review findById(String reviewId) {
+        if (reviewId == null) {
+            return null;
+        }
+        if (byId == null) {
+            byId = Arrays.copyOf(reviews, size);
+            Arrays.sort(byId, BY_ID);
+        }
+        int low = 0;
+        int high = byId.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (byId[mid].compareIdTo(reviewId) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low < byId.length && byId[low].compareIdTo(reviewId) == 0 ? byId[low] : null;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof Review && Arrays.binarySearch(reviews, 0, size, (Review) o, NEWEST_FIRST) >= 0;
+    }
+
+    /**
+     * Adds a review at its position in the order.
+     *
+     * @param review The review to add.
+     * @return true if it was added, false if an equal review is already present.
+     */
+    @Override
+    public boolean add(Review review) {
+        int index = Arrays.binarySearch(reviews, 0, size, review, NEWEST_FIRST);
+        if (index >= 0) {
+            return false;
+        }
+        index = -index - 1;
+        if (size == reviews.length) {
+            reviews = Arrays.copyOf(reviews, Math.max(8, size + (size >> 1)));
+        }
+        System.arraycopy(reviews, index, reviews, index + 1, size - index);
+        reviews[index] = review;
+        size++;
+        if (byId != null) {
+            int idIndex = -Arrays.binarySearch(byId, review, BY_ID) - 1;
+            Review[] added = new Review[byId.length + 1];
+            System.arraycopy(byId, 0, added, 0, idIndex);
+            added[idIndex] = review;
+            System.arraycopy(byId, idIndex, added, idIndex + 1, byId.length - idIndex);
+            byId = added;
+        }
+        return true;
+    }
+
+    /**
+     * Adds a batch of reviews: the batch is sorted and merged with the stored reviews in one pass.
+     *
+     * @param batch The reviews to add.
+     * @return true if at least one review was added.
+     */
+    @Override
+    public boolean addAll(Collection<? extends Review> batch) {
+        if (batch.isEmpty()) {
+            return false;
+        }
+        Review[] added = batch.toArray(EMPTY);
+        // Stable, so of equal reviews in the batch the first one is kept
+        Arrays.sort(added, NEWEST_FIRST);
+        Review[] merged = new Review[size + added.length];
+        int i = 0;
+        int j = 0;
+        int n = 0;
+        while (i < size || j < added.length) {
+            Review next;
+            if (j == added.length || (i < size && NEWEST_FIRST.compare(reviews[i], added[j]) <= 0)) {
+                next = reviews[i++];
+            } else {
+                next = added[j++];
+            }
+            if (n > 0 && NEWEST_FIRST.compare(merged[n - 1], next) == 0) {
+                continue;
+            }
+            merged[n++] = next;
+        }
+        boolean changed = n != size;
+        reviews = merged;
+        size = n;
+        if (changed) {
+            // Sorted again by the next findById(), once instead of per review of the batch
+            byId = null;
+        }
+        return changed;
+    }
+
+    /**
+     * Removes the review equal in the order to the given one.
+     *
+     * @param o The review to remove.
+     * @return true if a review was removed.
+     */
+    @Override
+    public boolean remove(Object o) {
+        return o instanceof Review && removeStored((Review) o) != null;
+    }
+
+    /**
+     * Removes the review equal in the order to the given one and returns the instance that was stored,
+     * which is not necessarily the given object.
+     *
+     * @param review The review to remove.
+     * @return The removed review, or null if no equal review was present.
+     */
+    public Review removeStored(Review review) {
+        int index = Arrays.binarySearch(reviews, 0, size, review, NEWEST_FIRST);
+        if (index < 0) {
+            return null;
+        }
+        Review stored = reviews[index];
+        System.arraycopy(reviews, index + 1, reviews, index, size - index - 1);
+        reviews[--size] = null;
+        if (byId != null) {
+            int idIndex = Arrays.binarySearch(byId, stored, BY_ID);
+            Review[] removed = new Review[byId.length - 1];
+            System.arraycopy(byId, 0, removed, 0, idIndex);
+            System.arraycopy(byId, idIndex + 1, removed, idIndex, byId.length - idIndex - 1);
+            byId = removed;
+        }
+        return stored;
+    }
+
+    @Override
+    public void clear() {
+        reviews = EMPTY;
+        size = 0;
+        byId = null;
+    }
+}
@@ -0,0 +1,485 @@
+package hotelapp;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Hotel data locked per hotel instead of as a whole. The reviews of the hotels are kept in a
+ * ConcurrentHashMap, and the reviews of each hotel are guarded by one of a fixed number of read-write
+ * lock stripes chosen by the hotel ID, so writers adding the reviews of different hotels mostly run in
+ * parallel, and reading the reviews of one hotel does not wait for writes to another.
+ * The hotels have a lock of their own, and the word index has one too; there is no lock over the whole
+ * data as in ThreadSafeHotelData. Locks are always taken in the same order: the index lock, the hotels
+ * lock, then stripes in stripe order. A change of the index takes the index lock and the stripes of the
+ * hotels it touches.
+ */
+public class StripedHotelData extends HotelReviewData {
+    private static final int STRIPES = 64;
+
+    private final ReentrantReadWriteLock[] stripes = new ReentrantReadWriteLock[STRIPES];
+    private final ReentrantReadWriteLock hotelsLock = new ReentrantReadWriteLock();
+    private final ReentrantReadWriteLock indexLock = new ReentrantReadWriteLock();
+
+    /**
+     * Constructor for the StripedHotelData class.
+     */
+    public StripedHotelData() {
+        super(new ConcurrentHashMap<Integer, SortedReviews>());
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new ReentrantReadWriteLock();
+        }
+        buildSuggestionsInBackground();
+    }
+
+    /**
+     * Returns the index of the stripe guarding the reviews of a hotel.
+     */
+    private static int stripe(int hotelId) {
+        int hash = hotelId * 0x9E3779B1;
+        return (hash ^ (hash >>> 16)) & (STRIPES - 1);
+    }
+
+    /**
+     * Returns the write locks of the stripes of the given hotels, in stripe order.
+     */
+    private List<Lock> stripeWriteLocks(Iterable<Integer> hotelIds) {
+        TreeSet<Integer> indexes = new TreeSet<>();
+        for (int hotelId : hotelIds) {
+            indexes.add(stripe(hotelId));
+        }
+        List<Lock> locks = new ArrayList<>(indexes.size());
+        for (int index : indexes) {
+            locks.add(stripes[index].writeLock());
+        }
+        return locks;
+    }
+
+    /**
+     * Returns the read locks of all stripes, in stripe order.
+     */
+    private List<Lock> allStripeReadLocks() {
+        List<Lock> locks = new ArrayList<>(STRIPES);
+        for (ReentrantReadWriteLock stripe : stripes) {
+            locks.add(stripe.readLock());
+        }
+        return locks;
+    }
+
+    private static void lockAll(List<Lock> locks) {
+        for (Lock lock : locks) {
+            lock.lock();
+        }
+    }
+
+    private static void unlockAll(List<Lock> locks) {
+        for (int i = locks.size() - 1; i >= 0; i--) {
+            locks.get(i).unlock();
+        }
+    }
+
+    /**
+     * Add a list of hotels to the data while acquiring the write lock of the hotels.
+     *
+     * @param hotels The hotels to add.
+     */
+    @Override
+    public void addHotels(List<Hotel> hotels) {
+        try {
+            hotelsLock.writeLock().lock();
+            super.addHotels(hotels);
+        } finally {
+            hotelsLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Add the reviews of one hotel while acquiring the write lock of the hotel's stripe only.
+     *
+     * @param hotelReview The reviews, all of the same hotel.
+     */
+    @Override
+    public void addReviews(List<Review> hotelReview) {
+        if (hotelReview.isEmpty()) {
+            return;
+        }
+        Lock lock = stripes[stripe(hotelReview.get(0).getHotelId())].writeLock();
+        try {
+            lock.lock();
+            super.addReviews(hotelReview);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Merge the reviews of another HotelReviewData one hotel at a time, each while acquiring
+     * the write lock of the hotel's stripe.
+     *
+     * @param other The HotelReviewData whose reviews are merged into this one.
+     */
+    @Override
+    public void mergeReviews(HotelReviewData other) {
+        for (Map.Entry<Integer, SortedReviews> entry : other.getReviewMap().entrySet()) {
+            Lock lock = stripes[stripe(entry.getKey())].writeLock();
+            try {
+                lock.lock();
+                mergeHotelReviews(entry.getKey(), entry.getValue());
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Build the word map on the given pool while acquiring the index write lock and
+     * the read locks of all stripes, so no hotel changes during the build.
+     *
+     * @param pool The pool the index is built on.
+     */
+    @Override
+    public void buildWordMap(ForkJoinPool pool) {
+        List<Lock> locks = allStripeReadLocks();
+        try {
+            indexLock.writeLock().lock();
+            lockAll(locks);
+            super.buildWordMap(pool);
+        } finally {
+            unlockAll(locks);
+            indexLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Build the word map on the calling thread while acquiring the index write lock and
+     * the read locks of all stripes.
+     */
+    @Override
+    public void buildWordMapSequential() {
+        List<Lock> locks = allStripeReadLocks();
+        try {
+            indexLock.writeLock().lock();
+            lockAll(locks);
+            super.buildWordMapSequential();
+        } finally {
+            unlockAll(locks);
+            indexLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Replace reviews and their postings while acquiring the index write lock and
+     * the write locks of the stripes of the hotels involved.
+     *
+     * @param oldReviews The reviews to retract.
+     * @param newReviews The reviews to add.
+     */
+    @Override
+    public void replaceReviews(List<Review> oldReviews, List<Review> newReviews) {
+        List<Integer> hotelIds = new ArrayList<>();
+        for (Review review : oldReviews) {
+            hotelIds.add(review.getHotelId());
+        }
+        for (Review review : newReviews) {
+            hotelIds.add(review.getHotelId());
+        }
+        List<Lock> locks = stripeWriteLocks(hotelIds);
+        try {
+            indexLock.writeLock().lock();
+            lockAll(locks);
+            super.replaceReviews(oldReviews, newReviews);
+        } finally {
+            unlockAll(locks);
+            indexLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Add a review written through the web server while acquiring the index write lock
+     * and the write lock of the hotel's stripe.
+     *
+     * @param review The new review.
+     */
+    @Override
+    public void applyReviewAdded(Review review) {
+        List<Lock> locks = stripeWriteLocks(Collections.singletonList(review.getHotelId()));
+        try {
+            indexLock.writeLock().lock();
+            lockAll(locks);
+            super.applyReviewAdded(review);
+        } finally {
+            unlockAll(locks);
+            indexLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Replace a review by its edited version while acquiring the index write lock
+     * and the write lock of the hotel's stripe.
+     *
+     * @param review The edited review.
+     */
+    @Override
+    public void applyReviewEdited(Review review) {
+        List<Lock> locks = stripeWriteLocks(Collections.singletonList(review.getHotelId()));
+        try {
+            indexLock.writeLock().lock();
+            lockAll(locks);
+            super.applyReviewEdited(review);
+        } finally {
+            unlockAll(locks);
+            indexLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove a deleted review while acquiring the index write lock and the write lock of the hotel's stripe.
+     *
+     * @param hotelId  The ID of the hotel of the review.
+     * @param reviewId The ID of the review.
+     */
+    @Override
+    public void applyReviewDeleted(int hotelId, String reviewId) {
+        List<Lock> locks = stripeWriteLocks(Collections.singletonList(hotelId));
+        try {
+            indexLock.writeLock().lock();
+            lockAll(locks);
+            super.applyReviewDeleted(hotelId, reviewId);
+        } finally {
+            unlockAll(locks);
+            indexLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Add postings of a word while acquiring the index write lock and the read locks of all stripes,
+     * because postings of reviews without an ordinal make the index number all reviews.
+     *
+     * @param word     The word the postings belong to.
+     * @param postings The reviews containing the word and their frequencies.
+     */
+    @Override
+    public void addWordPostings(String word, List<Map.Entry<Review, Integer>> postings) {
+        List<Lock> locks = allStripeReadLocks();
+        try {
+            indexLock.writeLock().lock();
+            lockAll(locks);
+            super.addWordPostings(word, postings);
+        } finally {
+            unlockAll(locks);
+            indexLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Copy the data while acquiring the index write lock and the read locks of the hotels and all stripes.
+     * Copying marks the parts this data shares with the copy, so copies exclude each other on the index lock.
+     *
+     * @return The copy.
+     */
+    @Override
+    HotelReviewData copy() {
+        List<Lock> locks = allStripeReadLocks();
+        try {
+            indexLock.writeLock().lock();
+            hotelsLock.readLock().lock();
+            lockAll(locks);
+            return super.copy();
+        } finally {
+            unlockAll(locks);
+            hotelsLock.readLock().unlock();
+            indexLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Collect a page of the reviews containing a word while acquiring the index read lock.
+     *
+     * @param word   The word.
+     * @param offset The number of reviews to skip.
+     * @param limit  The maximum number of reviews to return.
+     * @return The page, or null if the word is not indexed.
+     */
+    @Override
+    public List<Review> getReviewPageByWord(String word, int offset, int limit) {
+        try {
+            indexLock.readLock().lock();
+            return super.getReviewPageByWord(word, offset, limit);
+        } finally {
+            indexLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Get the reviews matching a boolean query while acquiring the index read lock.
+     *
+     * @param query The query text.
+     * @return The matching reviews and their scores.
+     */
+    @Override
+    public List<Map.Entry<Review, Integer>> getReviewsByQuery(String query) {
+        try {
+            indexLock.readLock().lock();
+            return super.getReviewsByQuery(query);
+        } finally {
+            indexLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Get the k reviews ranked best for the query words while acquiring the index read lock.
+     *
+     * @param query The query words.
+     * @param k     The number of reviews to return.
+     * @return The best reviews and their scores.
+     */
+    @Override
+    public List<Map.Entry<Review, Double>> getTopReviewsByWords(String query, int k) {
+        try {
+            indexLock.readLock().lock();
+            return super.getTopReviewsByWords(query, k);
+        } finally {
+            indexLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Find the reviews matching a boolean query while acquiring the index read lock.
+     *
+     * @param query The query text.
+     * @return The formatted reviews.
+     */
+    @Override
+    public String findQuery(String query) {
+        try {
+            indexLock.readLock().lock();
+            return super.findQuery(query);
+        } finally {
+            indexLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Get the reviews containing words close to a word while acquiring the index read lock.
+     *
+     * @param word        The word, possibly misspelled.
+     * @param maxDistance The largest edit distance of a close word.
+     * @return The reviews and their scores.
+     */
+    @Override
+    public List<Map.Entry<Review, Double>> getReviewsByFuzzyWord(String word, int maxDistance) {
+        try {
+            indexLock.readLock().lock();
+            return super.getReviewsByFuzzyWord(word, maxDistance);
+        } finally {
+            indexLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Find the reviews containing a word or words close to it while acquiring the index read lock.
+     *
+     * @param word The word, possibly misspelled.
+     * @return The formatted reviews.
+     */
+    @Override
+    public String findWordFuzzy(String word) {
+        try {
+            indexLock.readLock().lock();
+            return super.findWordFuzzy(word);
+        } finally {
+            indexLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Find the hotels whose name contains a keyword while acquiring the read lock of the hotels.
+     *
+     * @param keyword The keyword.
+     * @return The matching hotels.
+     */
+    @Override
+    public List<Hotel> searchHotelsByName(String keyword) {
+        try {
+            hotelsLock.readLock().lock();
+            return super.searchHotelsByName(keyword);
+        } finally {
+            hotelsLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Build the completions again while acquiring the read locks of the index and the hotels; the review
+     * counts are read under one stripe at a time, see reviewCount. Runs on the background builder after
+     * writes, and on the first reader of suggestions, so suggestHotels and suggestWords take no lock themselves.
+     */
+    @Override
+    void refreshSuggestions() {
+        try {
+            indexLock.readLock().lock();
+            hotelsLock.readLock().lock();
+            super.refreshSuggestions();
+        } finally {
+            hotelsLock.readLock().unlock();
+            indexLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Count the reviews of a hotel while acquiring the read lock of the hotel's stripe only.
+     *
+     * @param hotelId The ID of the hotel.
+     * @return The number of reviews of the hotel.
+     */
+    @Override
+    int reviewCount(int hotelId) {
+        Lock lock = stripes[stripe(hotelId)].readLock();
+        try {
+            lock.lock();
+            return super.reviewCount(hotelId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Find hotel information by a specific ID while acquiring the read lock of the hotels.
+     *
+     * @param targetHotelId The ID of the hotel.
+     * @return The formatted hotel information.
+     */
+    @Override
+    public String findHotelInfo(String targetHotelId) {
+        try {
+            hotelsLock.readLock().lock();
+            return super.findHotelInfo(targetHotelId);
+        } finally {
+            hotelsLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Collect a page of the reviews of a hotel while acquiring the read lock of the hotel's stripe only.
+     *
+     * @param targetHotelId The ID of the hotel.
+     * @param offset        The number of reviews to skip.
+     * @param limit         The maximum number of reviews to return.
+     * @return The page, or null if the hotel has no reviews.
+     */
+    @Override
+    public List<Review> getReviewPageByHotelId(int targetHotelId, int offset, int limit) {
+        Lock lock = stripes[stripe(targetHotelId)].readLock();
+        try {
+            lock.lock();
+            return super.getReviewPageByHotelId(targetHotelId, offset, limit);
+        } finally {
+            lock.unlock();
+        }
+    }
+}
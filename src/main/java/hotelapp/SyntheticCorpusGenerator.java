@@ -0,0 +1,256 @@
+package hotelapp;
+
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Writes a synthetic hotels file and review directory tree in the same schema as the
+ * Expedia files under input/, so ingestion, indexing and search can be measured at sizes
+ * far beyond the bundled data. The output is determined by the parameters and the seed.
+ *
+ * The hotels are spread over a number of cities; each city is a directory of review files,
+ * and each hotel has its reviews in pages of reviewsPerFile reviews
+ * (review&lt;hotelId&gt;.json, review&lt;hotelId&gt;_2.json, ...).
+ * Review text is drawn from a fixed vocabulary with a Zipf-like word frequency,
+ * mixed with common stop words, so the word index grows the way it does with real text.
+ *
+ * Usage: SyntheticCorpusGenerator -output &lt;dir&gt; [-hotels 1000] [-reviews 100000]
+ *        [-reviewsPerFile 20] [-cities 20] [-seed 42]
+ */
+public class SyntheticCorpusGenerator {
+    private static final String[] STOP_WORDS = {
+            "the", "a", "and", "was", "to", "is", "in", "we", "of", "it", "for", "very", "with", "at", "our"
+    };
+    private static final String[] SYLLABLES = {
+            "ba", "ro", "ki", "ne", "lu", "ta", "mi", "so", "ve", "da", "pe", "ri", "co", "fa", "gu", "he",
+            "ja", "lo", "mo", "nu", "pi", "sa", "te", "vi", "zo", "bre", "cla", "dri", "fle", "gro"
+    };
+    private static final int VOCABULARY_SIZE = 50000;
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss'Z'");
+    private static final long FIRST_DATE = LocalDateTime.of(2008, 1, 1, 0, 0).toEpochSecond(ZoneOffset.UTC);
+    private static final long LAST_DATE = LocalDateTime.of(2017, 1, 1, 0, 0).toEpochSecond(ZoneOffset.UTC);
+
+    private final int hotels;
+    private final long reviews;
+    private final int reviewsPerFile;
+    private final int cities;
+    private final Random random;
+    private final String[] vocabulary = new String[VOCABULARY_SIZE];
+    // cumulative Zipf weights of the vocabulary, for sampling by binary search
+    private final double[] cumulativeWeights = new double[VOCABULARY_SIZE];
+
+    /**
+     * Constructor for the SyntheticCorpusGenerator class.
+     *
+     * @param hotels         The number of hotels.
+     * @param reviews        The total number of reviews, spread evenly over the hotels.
+     * @param reviewsPerFile The number of reviews in each review file.
+     * @param cities         The number of cities (review subdirectories).
+     * @param seed           The seed of the random generator.
+     */
+    public SyntheticCorpusGenerator(int hotels, long reviews, int reviewsPerFile, int cities, long seed) {
+        this.hotels = hotels;
+        this.reviews = reviews;
+        this.reviewsPerFile = Math.max(1, reviewsPerFile);
+        this.cities = Math.max(1, Math.min(cities, hotels));
+        this.random = new Random(seed);
+        double total = 0;
+        for (int i = 0; i < VOCABULARY_SIZE; i++) {
+            vocabulary[i] = makeWord(i);
+            total += 1.0 / (i + 1);
+            cumulativeWeights[i] = total;
+        }
+    }
+
+    /**
+     * Builds a distinct pronounceable word for every vocabulary index.
+     */
+    private static String makeWord(int index) {
+        StringBuilder sb = new StringBuilder();
+        int n = index;
+        do {
+            sb.append(SYLLABLES[n % SYLLABLES.length]);
+            n /= SYLLABLES.length;
+        } while (n > 0);
+        return sb.toString();
+    }
+
+    /**
+     * Writes hotels/hotels.json and the reviews/ tree below the output directory.
+     *
+     * @param output The output directory.
+     * @throws IOException If a file can not be written.
+     */
+    public void generate(Path output) throws IOException {
+        Path hotelsDir = output.resolve("hotels");
+        Files.createDirectories(hotelsDir);
+        try (JsonWriter writer = new JsonWriter(Files.newBufferedWriter(hotelsDir.resolve("hotels.json"), StandardCharsets.UTF_8))) {
+            writer.setIndent("  ");
+            writer.beginObject();
+            writer.name("q").value("Synthetic");
+            writer.name("rc").value("OK");
+            writer.name("sr").beginArray();
+            for (int i = 0; i < hotels; i++) {
+                writeHotel(writer, i);
+            }
+            writer.endArray();
+            writer.endObject();
+        }
+
+        long written = 0;
+        for (int i = 0; i < hotels; i++) {
+            long hotelReviews = reviews / hotels + (i < reviews % hotels ? 1 : 0);
+            Path cityDir = output.resolve("reviews").resolve(cityName(i));
+            Files.createDirectories(cityDir);
+            int page = 1;
+            for (long start = 0; start < hotelReviews; start += reviewsPerFile, page++) {
+                String fileName = page == 1 ? "review" + hotelId(i) + ".json" : "review" + hotelId(i) + "_" + page + ".json";
+                int count = (int) Math.min(reviewsPerFile, hotelReviews - start);
+                writeReviewFile(cityDir.resolve(fileName), i, count);
+                written += count;
+            }
+        }
+        System.out.println("Wrote " + hotels + " hotels and " + written + " reviews to " + output);
+    }
+
+    private static int hotelId(int index) {
+        return 100000 + index;
+    }
+
+    private String cityName(int index) {
+        return "City" + (index % cities);
+    }
+
+    private void writeHotel(JsonWriter writer, int index) throws IOException {
+        writer.beginObject();
+        writer.name("@type").value("hotelResult");
+        writer.name("i").value(Integer.toString(index));
+        writer.name("f").value("Hotel " + vocabulary[index % VOCABULARY_SIZE] + " " + index);
+        writer.name("id").value(Integer.toString(hotelId(index)));
+        writer.name("t").value("HOTEL");
+        writer.name("ll").beginObject();
+        writer.name("lat").value(String.format(Locale.ROOT, "%.6f", 37.0 + random.nextDouble()));
+        writer.name("lng").value(String.format(Locale.ROOT, "%.6f", -123.0 + random.nextDouble()));
+        writer.endObject();
+        writer.name("ad").value((1 + random.nextInt(999)) + " " + vocabulary[random.nextInt(1000)] + " St");
+        writer.name("ci").value(cityName(index));
+        writer.name("pr").value("CA");
+        writer.name("c").value("USA");
+        writer.endObject();
+    }
+
+    private void writeReviewFile(Path file, int hotelIndex, int count) throws IOException {
+        String hotelId = Integer.toString(hotelId(hotelIndex));
+        try (JsonWriter writer = new JsonWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8))) {
+            writer.beginObject();
+            writer.name("reviewDetails").beginObject();
+            writer.name("startIndex").value(0);
+            writer.name("numberOfReviewsInThisPage").value(count);
+            writer.name("reviewSummaryCollection").beginObject();
+            writer.name("reviewSummary").beginArray();
+            writer.beginObject();
+            writer.name("hotelId").value(hotelId);
+            writer.name("totalReviewCnt").value(count);
+            writer.endObject();
+            writer.endArray();
+            writer.endObject();
+            writer.name("reviewCollection").beginObject();
+            writer.name("review").beginArray();
+            for (int i = 0; i < count; i++) {
+                writer.beginObject();
+                writer.name("hotelId").value(hotelId);
+                writer.name("reviewId").value(String.format("%016x%08x", random.nextLong(), random.nextInt()));
+                writer.name("ratingOverall").value(1 + random.nextInt(5));
+                writer.name("userNickname").value(random.nextInt(4) == 0 ? "" : "user" + random.nextInt(100000));
+                writer.name("title").value(sentence(1 + random.nextInt(6)));
+                writer.name("reviewText").value(sentence(10 + random.nextInt(80)));
+                long seconds = FIRST_DATE + (long) (random.nextDouble() * (LAST_DATE - FIRST_DATE));
+                writer.name("reviewSubmissionTime").value(DATE_FORMAT.format(LocalDateTime.ofEpochSecond(seconds, 0, ZoneOffset.UTC)));
+                writer.name("isRecommended").value(random.nextBoolean() ? "YES" : "NO");
+                writer.endObject();
+            }
+            writer.endArray();
+            writer.endObject();
+            writer.endObject();
+            writer.endObject();
+        }
+    }
+
+    /**
+     * Builds a sentence of the given number of words, about a third of them stop words.
+     */
+    private String sentence(int words) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                sb.append(' ');
+            }
+            if (random.nextInt(3) == 0) {
+                sb.append(STOP_WORDS[random.nextInt(STOP_WORDS.length)]);
+            } else {
+                sb.append(vocabulary[sampleWord()]);
+            }
+        }
+        sb.append('.');
+        return sb.toString();
+    }
+
+    private int sampleWord() {
+        double target = random.nextDouble() * cumulativeWeights[VOCABULARY_SIZE - 1];
+        int low = 0;
+        int high = VOCABULARY_SIZE - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (cumulativeWeights[mid] < target) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    public static void main(String[] args) {
+        String output = null;
+        int hotels = 1000;
+        long reviews = 100000;
+        int reviewsPerFile = 20;
+        int cities = 20;
+        long seed = 42;
+        for (int i = 0; i + 1 < args.length; i++) {
+            if ("-output".equals(args[i])) {
+                output = args[i + 1];
+            } else if ("-hotels".equals(args[i])) {
+                hotels = Integer.parseInt(args[i + 1]);
+            } else if ("-reviews".equals(args[i])) {
+                reviews = Long.parseLong(args[i + 1]);
+            } else if ("-reviewsPerFile".equals(args[i])) {
+                reviewsPerFile = Integer.parseInt(args[i + 1]);
+            } else if ("-cities".equals(args[i])) {
+                cities = Integer.parseInt(args[i + 1]);
+            } else if ("-seed".equals(args[i])) {
+                seed = Long.parseLong(args[i + 1]);
+            }
+        }
+        if (output == null || hotels < 1) {
+            System.out.println("Please configure: SyntheticCorpusGenerator -output <dir> [-hotels n] [-reviews n] "
+                    + "[-reviewsPerFile n] [-cities n] [-seed n]");
+            return;
+        }
+        try {
+            new SyntheticCorpusGenerator(hotels, reviews, reviewsPerFile, cities, seed).generate(Paths.get(output));
+        } catch (IOException e) {
+            System.out.println("Could not write the corpus: " + e);
+        }
+    }
+}
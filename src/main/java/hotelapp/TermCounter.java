@@ -0,0 +1,96 @@
+package hotelapp;
+
+import java.util.Arrays;
+
+/**
+ * Counts term IDs in an open addressing table of primitive keys and counts, for counting the words
+ * of one review after another. The distinct IDs are also kept in the order they were first counted,
+ * which is how they are read back, and clearing only empties the slots that were used.
+ *
+ * Not thread-safe; each indexing thread has its own.
+ */
+public class TermCounter {
+    private int[] slots = new int[128]; // index into ids + 1, 0 for an empty slot
+    private int[] ids = new int[64];
+    private int[] counts = new int[64];
+    private int[] idSlots = new int[64];
+    private int size;
+
+    /**
+     * Adds one occurrence of a term.
+     *
+     * @param id The term ID.
+     */
+    public void increment(int id) {
+        int mask = slots.length - 1;
+        int h = id * 0x9E3779B1;
+        int slot = (h ^ (h >>> 16)) & mask;
+        while (slots[slot] != 0) {
+            int index = slots[slot] - 1;
+            if (ids[index] == id) {
+                counts[index]++;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, size * 2);
+            counts = Arrays.copyOf(counts, size * 2);
+            idSlots = Arrays.copyOf(idSlots, size * 2);
+        }
+        ids[size] = id;
+        counts[size] = 1;
+        idSlots[size] = slot;
+        slots[slot] = ++size;
+        if (size * 2 > slots.length) {
+            rehash();
+        }
+    }
+
+    /**
+     * @return The number of distinct terms counted since the last clear.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param i The index of a distinct term, from 0 to size() - 1.
+     * @return The term ID.
+     */
+    public int id(int i) {
+        return ids[i];
+    }
+
+    /**
+     * @param i The index of a distinct term, from 0 to size() - 1.
+     * @return The number of times the term was counted.
+     */
+    public int count(int i) {
+        return counts[i];
+    }
+
+    /**
+     * Forgets all counts.
+     */
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            slots[idSlots[i]] = 0;
+        }
+        size = 0;
+    }
+
+    private void rehash() {
+        slots = new int[slots.length * 2];
+        int mask = slots.length - 1;
+        for (int i = 0; i < size; i++) {
+            int h = ids[i] * 0x9E3779B1;
+            int slot = (h ^ (h >>> 16)) & mask;
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = i + 1;
+            idSlots[i] = slot;
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package hotelapp;
+
+import java.util.Arrays;
+
+/**
+ * Maps the words of the index to dense int term IDs, 0, 1, 2, ... in the order they were first added.
+ * The characters of all terms are kept in one arena and looked up through an open addressing table,
+ * so a word can be found or added straight from the tokenizer's char buffer without creating a String.
+ * Terms are never removed.
+ *
+ * One thread at a time may add terms while others read. A term is written into the arrays first and only
+ * counted by the volatile size after, and arrays that grow are published whole, so a reader sees every term
+ * below the size it read; the terms a reader sees added after that are skipped.
+ */
+public class TermDictionary {
+    // Changed in place for added terms, replaced when an array grows
+    private volatile Storage storage = new Storage(new char[4096], new int[256], new int[256], new int[256], new int[512]);
+    private int arenaSize;
+    private volatile int size;
+
+    /**
+     * @return The number of terms.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the ID of a term, adding the term if it is new.
+     *
+     * @param chars  The characters of the term.
+     * @param offset The position of the first character.
+     * @param length The number of characters.
+     * @return The term ID.
+     */
+    public int add(char[] chars, int offset, int length) {
+        Storage s = storage;
+        int hash = hash(chars, offset, length);
+        int mask = s.slots.length - 1;
+        int slot = hash & mask;
+        while (s.slots[slot] != 0) {
+            int id = s.slots[slot] - 1;
+            if (s.termHash[id] == hash && s.termLength[id] == length
+                    && Arrays.equals(s.arena, s.termStart[id], s.termStart[id] + length, chars, offset, offset + length)) {
+                return id;
+            }
+            slot = (slot + 1) & mask;
+        }
+        int id = size;
+        if (arenaSize + length > s.arena.length || id == s.termStart.length) {
+            s = grow(s, length);
+        }
+        System.arraycopy(chars, offset, s.arena, arenaSize, length);
+        s.termStart[id] = arenaSize;
+        s.termLength[id] = length;
+        s.termHash[id] = hash;
+        arenaSize += length;
+        s.slots[slot] = id + 1;
+        if ((id + 1) * 2 > s.slots.length) {
+            rehash(s, id + 1);
+        }
+        size = id + 1;
+        return id;
+    }
+
+    /**
+     * Returns the ID of a term, adding the term if it is new.
+     *
+     * @param term The term.
+     * @return The term ID.
+     */
+    public int add(String term) {
+        return add(term.toCharArray(), 0, term.length());
+    }
+
+    /**
+     * Finds the ID of a term without adding it.
+     *
+     * @param term The term.
+     * @return The term ID, or -1 if the dictionary does not have the term.
+     */
+    public int find(CharSequence term) {
+        int limit = size;
+        Storage s = storage;
+        int length = term.length();
+        int h = 0;
+        for (int i = 0; i < length; i++) {
+            h = h * 31 + term.charAt(i);
+        }
+        int hash = h ^ (h >>> 16);
+        int mask = s.slots.length - 1;
+        int slot = hash & mask;
+        while (s.slots[slot] != 0) {
+            int id = s.slots[slot] - 1;
+            if (id < limit && s.termHash[id] == hash && s.termLength[id] == length && matches(s, id, term)) {
+                return id;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private static boolean matches(Storage s, int id, CharSequence term) {
+        int start = s.termStart[id];
+        for (int i = 0; i < s.termLength[id]; i++) {
+            if (s.arena[start + i] != term.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param id A term ID.
+     * @return The term.
+     */
+    public String term(int id) {
+        Storage s = storage;
+        return new String(s.arena, s.termStart[id], s.termLength[id]);
+    }
+
+    /**
+     * @param id A term ID.
+     * @return The number of characters of the term.
+     */
+    public int length(int id) {
+        return storage.termLength[id];
+    }
+
+    /**
+     * @param id    A term ID.
+     * @param index The position of a character of the term.
+     * @return The character, without creating the term as a String.
+     */
+    public char charAt(int id, int index) {
+        Storage s = storage;
+        return s.arena[s.termStart[id] + index];
+    }
+
+    /**
+     * Publishes larger arrays for the next term and its characters.
+     */
+    private Storage grow(Storage s, int length) {
+        char[] arena = s.arena;
+        if (arenaSize + length > arena.length) {
+            arena = Arrays.copyOf(arena, Math.max(arena.length * 2, arenaSize + length));
+        }
+        int[] termStart = s.termStart;
+        int[] termLength = s.termLength;
+        int[] termHash = s.termHash;
+        if (size == termStart.length) {
+            termStart = Arrays.copyOf(termStart, size * 2);
+            termLength = Arrays.copyOf(termLength, size * 2);
+            termHash = Arrays.copyOf(termHash, size * 2);
+        }
+        s = new Storage(arena, termStart, termLength, termHash, s.slots);
+        storage = s;
+        return s;
+    }
+
+    /**
+     * Publishes a table twice the size holding the IDs of the first terms.
+     */
+    private void rehash(Storage s, int terms) {
+        int[] slots = new int[s.slots.length * 2];
+        int mask = slots.length - 1;
+        for (int id = 0; id < terms; id++) {
+            int slot = s.termHash[id] & mask;
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = id + 1;
+        }
+        storage = new Storage(s.arena, s.termStart, s.termLength, s.termHash, slots);
+    }
+
+    private static int hash(char[] chars, int offset, int length) {
+        int h = 0;
+        for (int i = offset; i < offset + length; i++) {
+            h = h * 31 + chars[i];
+        }
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * The arrays of the dictionary. A reader takes them once and finds every term below the size it read in them.
+     */
+    private static final class Storage {
+        private final char[] arena;
+        private final int[] termStart;
+        private final int[] termLength;
+        private final int[] termHash;
+        private final int[] slots; // term ID + 1, 0 for an empty slot
+
+        Storage(char[] arena, int[] termStart, int[] termLength, int[] termHash, int[] slots) {
+            this.arena = arena;
+            this.termStart = termStart;
+            this.termLength = termLength;
+            this.termHash = termHash;
+            this.slots = slots;
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package hotelapp;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 public class ThreadSafeHotelData extends HotelReviewData {
@@ -7,6 +9,12 @@ public class ThreadSafeHotelData extends HotelReviewData {
 
     public ThreadSafeHotelData() {
         super();
+        buildSuggestionsInBackground();
+    }
+
+    ThreadSafeHotelData(Map<Integer, SortedReviews> reviewMap) {
+        super(reviewMap);
+        buildSuggestionsInBackground();
     }
 
     /**
@@ -40,29 +48,270 @@ public class ThreadSafeHotelData extends HotelReviewData {
     }
 
     /**
-     * Build the word map while acquiring write lock.
+     * Merge the reviews of another HotelReviewData into the data while acquiring a write lock.
+     *
+     * @param other The HotelReviewData whose reviews are merged.
+     */
+    @Override
+    public void mergeReviews(HotelReviewData other) {
+        try {
+            lock.writeLock().lock();
+            super.mergeReviews(other);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Build the word map on the given pool while acquiring write lock.
+     *
+     * @param pool The pool the index is built on.
+     */
+    @Override
+    public void buildWordMap(ForkJoinPool pool) {
+        try {
+            lock.writeLock().lock();
+            super.buildWordMap(pool);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Build the word map on the calling thread while acquiring write lock.
+     */
+    @Override
+    public void buildWordMapSequential() {
+        try {
+            lock.writeLock().lock();
+            super.buildWordMapSequential();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Replace reviews and their postings while acquiring a write lock,
+     * so readers never see a file's old and new content at the same time.
+     *
+     * @param oldReviews The reviews to retract.
+     * @param newReviews The reviews to add.
+     */
+    @Override
+    public void replaceReviews(List<Review> oldReviews, List<Review> newReviews) {
+        try {
+            lock.writeLock().lock();
+            super.replaceReviews(oldReviews, newReviews);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Add a review written through the web server while acquiring a write lock.
+     *
+     * @param review The new review.
+     */
+    @Override
+    public void applyReviewAdded(Review review) {
+        try {
+            lock.writeLock().lock();
+            super.applyReviewAdded(review);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Replace a review by its edited version while acquiring a write lock,
+     * so the stored review is found and replaced in one step.
+     *
+     * @param review The edited review.
+     */
+    @Override
+    public void applyReviewEdited(Review review) {
+        try {
+            lock.writeLock().lock();
+            super.applyReviewEdited(review);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove a deleted review while acquiring a write lock.
+     *
+     * @param hotelId  The ID of the hotel of the review.
+     * @param reviewId The ID of the review.
+     */
+    @Override
+    public void applyReviewDeleted(int hotelId, String reviewId) {
+        try {
+            lock.writeLock().lock();
+            super.applyReviewDeleted(hotelId, reviewId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Copy the data while acquiring a write lock, since copying marks the parts this data shares
+     * with the copy, so that it copies them before changing them again.
+     *
+     * @return The copy.
+     */
+    @Override
+    HotelReviewData copy() {
+        try {
+            lock.writeLock().lock();
+            return super.copy();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Add postings of a word to the word map while acquiring a write lock.
+     *
+     * @param word     The word the postings belong to.
+     * @param postings The reviews containing the word and their frequencies.
      */
     @Override
-    public void buildWordMap() {
+    public void addWordPostings(String word, List<Map.Entry<Review, Integer>> postings) {
         try {
             lock.writeLock().lock();
-            super.buildWordMap();
+            super.addWordPostings(word, postings);
         } finally {
             lock.writeLock().unlock();
         }
     }
 
     /**
-     * Find a specific word in the data while acquiring a read lock.
+     * Collect a page of the reviews containing a word while acquiring a read lock.
+     * findWord formats the page after the lock is released.
+     *
+     * @param word   The word to search for.
+     * @param offset The number of matching reviews to skip.
+     * @param limit  The maximum number of reviews to return.
+     * @return The reviews of the page, or null if the word is not indexed.
+     */
+    @Override
+    public List<Review> getReviewPageByWord(String word, int offset, int limit) {
+        try {
+            lock.readLock().lock();
+            return super.getReviewPageByWord(word, offset, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Get the reviews matching a boolean query while acquiring a read lock.
+     *
+     * @param query The query.
+     * @return The matching reviews and their scores.
+     */
+    @Override
+    public List<Map.Entry<Review, Integer>> getReviewsByQuery(String query) {
+        try {
+            lock.readLock().lock();
+            return super.getReviewsByQuery(query);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Get the k reviews ranked best for the query words while acquiring a read lock.
      *
-     * @param word The word to search for.
-     * @return The information related to the word.
+     * @param query The query words.
+     * @param k     The number of reviews to return.
+     * @return The best reviews and their BM25 scores.
+     */
+    @Override
+    public List<Map.Entry<Review, Double>> getTopReviewsByWords(String query, int k) {
+        try {
+            lock.readLock().lock();
+            return super.getTopReviewsByWords(query, k);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Find the reviews matching a boolean query while acquiring a read lock.
+     *
+     * @param query The query.
+     * @return The information related to the matching reviews.
+     */
+    @Override
+    public String findQuery(String query) {
+        try {
+            lock.readLock().lock();
+            return super.findQuery(query);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Get the reviews containing words close to a word while acquiring a read lock.
+     *
+     * @param word        The word, possibly misspelled.
+     * @param maxDistance The largest edit distance of a close word.
+     * @return The reviews and their scores.
+     */
+    @Override
+    public List<Map.Entry<Review, Double>> getReviewsByFuzzyWord(String word, int maxDistance) {
+        try {
+            lock.readLock().lock();
+            return super.getReviewsByFuzzyWord(word, maxDistance);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Find the reviews containing a word or words close to it while acquiring a read lock.
+     *
+     * @param word The word, possibly misspelled.
+     * @return The information related to the reviews.
+     */
+    @Override
+    public String findWordFuzzy(String word) {
+        try {
+            lock.readLock().lock();
+            return super.findWordFuzzy(word);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Find the hotels whose name contains a keyword while acquiring a read lock.
+     *
+     * @param keyword The keyword.
+     * @return The matching hotels.
+     */
+    @Override
+    public List<Hotel> searchHotelsByName(String keyword) {
+        try {
+            lock.readLock().lock();
+            return super.searchHotelsByName(keyword);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Build the completions again while acquiring a read lock. Runs on the background builder after writes,
+     * and on the first reader of suggestions, so suggestHotels and suggestWords take no lock themselves.
      */
     @Override
-    public String findWord(String word) {
+    void refreshSuggestions() {
         try {
             lock.readLock().lock();
-            return super.findWord(word);
+            super.refreshSuggestions();
         } finally {
             lock.readLock().unlock();
         }
@@ -85,16 +334,19 @@ public class ThreadSafeHotelData extends HotelReviewData {
     }
 
     /**
-     * Find review information by a specific hotel ID while acquiring a read lock.
+     * Collect a page of the reviews of a hotel while acquiring a read lock.
+     * findReviewInfo formats the page after the lock is released.
      *
      * @param targetHotelId The ID of the hotel for which to find reviews.
-     * @return The information related to the reviews of the hotel.
+     * @param offset        The number of reviews to skip.
+     * @param limit         The maximum number of reviews to return.
+     * @return The reviews of the page, or null if the hotel has no reviews.
      */
     @Override
-    public String findReviewInfo(int targetHotelId) {
+    public List<Review> getReviewPageByHotelId(int targetHotelId, int offset, int limit) {
         try {
             lock.readLock().lock();
-            return super.findReviewInfo(targetHotelId);
+            return super.getReviewPageByHotelId(targetHotelId, offset, limit);
         } finally {
             lock.readLock().unlock();
         }
@@ -0,0 +1,115 @@
+package hotelapp;
+
+/**
+ * An array of references that a copy shares instead of copying, for data that CopyOnWriteHotelData
+ * publishes a new version of on every write. The elements are kept in a tree of nodes of 32 slots, an index
+ * being split into 5 bit digits from the root down. A fork takes the root only, and setting an element
+ * afterwards copies just the nodes on the path to it, each once: nodes the array made itself since its last
+ * fork are changed in place, so filling a new array costs no more than filling a plain one.
+ *
+ * Not thread-safe; an array that is no longer changed may be read from concurrent threads.
+ *
+ * @param <T> The type of the elements.
+ */
+class VersionedArray<T> {
+    private static final int BITS = 5;
+    private static final int WIDTH = 1 << BITS;
+    private static final int MASK = WIDTH - 1;
+
+    // Marks the nodes this array may change in place; replaced by fork()
+    private Object owner = new Object();
+    private Node root;
+    private int shift; // an index's slot in the root is index >>> shift & MASK; 0 when the root holds the elements
+    private int size;
+
+    /**
+     * @return One past the highest index that was set.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param index An index.
+     * @return The element at the index, null if it was never set.
+     */
+    @SuppressWarnings("unchecked")
+    public T get(int index) {
+        if (index < 0 || index >= size) {
+            return null;
+        }
+        Node node = root;
+        for (int level = shift; level > 0 && node != null; level -= BITS) {
+            node = (Node) node.slots[index >>> level & MASK];
+        }
+        return node == null ? null : (T) node.slots[index & MASK];
+    }
+
+    /**
+     * Sets the element at an index, growing the array if needed.
+     *
+     * @param index The index, at least 0.
+     * @param value The element.
+     */
+    public void set(int index, T value) {
+        while (index >>> shift >= WIDTH) {
+            if (root != null) {
+                Node grown = new Node(owner, new Object[WIDTH]);
+                grown.slots[0] = root;
+                root = grown;
+            }
+            shift += BITS;
+        }
+        root = editable(root);
+        Node node = root;
+        for (int level = shift; level > 0; level -= BITS) {
+            int slot = index >>> level & MASK;
+            Node child = editable((Node) node.slots[slot]);
+            node.slots[slot] = child;
+            node = child;
+        }
+        node.slots[index & MASK] = value;
+        if (index >= size) {
+            size = index + 1;
+        }
+    }
+
+    /**
+     * Returns a node this array may change: the node itself if the array made it since its last fork,
+     * otherwise a copy; a new node for null.
+     */
+    private Node editable(Node node) {
+        if (node == null) {
+            return new Node(owner, new Object[WIDTH]);
+        }
+        return node.owner == owner ? node : new Node(owner, node.slots.clone());
+    }
+
+    /**
+     * Returns a copy with the same elements, in constant time. The copy and this array share their nodes,
+     * and each copies the nodes it changes from then on.
+     *
+     * @return The copy.
+     */
+    public VersionedArray<T> fork() {
+        VersionedArray<T> copy = new VersionedArray<>();
+        copy.root = root;
+        copy.shift = shift;
+        copy.size = size;
+        owner = new Object();
+        return copy;
+    }
+
+    /**
+     * A node of the tree: its slots hold the child nodes, or the elements at the lowest level.
+     */
+    private static final class Node {
+        private final Object owner;
+        private final Object[] slots;
+
+        Node(Object owner, Object[] slots) {
+            this.owner = owner;
+            this.slots = slots;
+        }
+    }
+}
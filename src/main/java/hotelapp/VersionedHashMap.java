@@ -0,0 +1,218 @@
+package hotelapp;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A hash map that a copy shares instead of copying, for the maps of data that CopyOnWriteHotelData
+ * publishes a new version of on every write. The entries are kept in an open addressing table with linear
+ * probing, laid out in a VersionedArray, so a fork takes constant time and a change copies the few nodes of
+ * the slots it writes. Removing moves the following entries of the probe back, so no tombstones pile up.
+ * Keys are compared with equals; null keys and values are not allowed.
+ *
+ * Not thread-safe; a map that is no longer changed may be read from concurrent threads.
+ *
+ * @param <K> The type of the keys.
+ * @param <V> The type of the values.
+ */
+class VersionedHashMap<K, V> extends AbstractMap<K, V> {
+    private static final int MIN_BITS = 4;
+
+    // The key of slot i at 2 * i, its value at 2 * i + 1; no key is an empty slot
+    private VersionedArray<Object> table;
+    private int bits;
+    private int size;
+
+    /**
+     * Constructor for an empty VersionedHashMap.
+     */
+    public VersionedHashMap() {
+        this.table = new VersionedArray<>();
+        this.bits = MIN_BITS;
+    }
+
+    /**
+     * Constructor for a VersionedHashMap with the entries of a map.
+     *
+     * @param map The entries.
+     */
+    public VersionedHashMap(Map<? extends K, ? extends V> map) {
+        this();
+        while (map.size() * 2 > 1 << bits) {
+            bits++;
+        }
+        for (Map.Entry<? extends K, ? extends V> entry : map.entrySet()) {
+            put(entry.getKey(), entry.getValue());
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        int slot = find(key);
+        return slot < 0 ? null : (V) table.get(2 * slot + 1);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return find(key) >= 0;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V put(K key, V value) {
+        int mask = (1 << bits) - 1;
+        int slot = home(key);
+        Object existing;
+        while ((existing = table.get(2 * slot)) != null) {
+            if (existing.equals(key)) {
+                V previous = (V) table.get(2 * slot + 1);
+                table.set(2 * slot + 1, value);
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+        table.set(2 * slot, key);
+        table.set(2 * slot + 1, value);
+        size++;
+        if (size * 2 > mask + 1) {
+            resize();
+        }
+        return null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V remove(Object key) {
+        int slot = find(key);
+        if (slot < 0) {
+            return null;
+        }
+        V previous = (V) table.get(2 * slot + 1);
+        int mask = (1 << bits) - 1;
+        int empty = slot;
+        // Move back each following entry of the run whose home is not between the empty slot and itself
+        for (int next = (slot + 1) & mask; table.get(2 * next) != null; next = (next + 1) & mask) {
+            int home = home(table.get(2 * next));
+            boolean reachable = empty <= next ? (home <= empty || home > next) : (home <= empty && home > next);
+            if (reachable) {
+                table.set(2 * empty, table.get(2 * next));
+                table.set(2 * empty + 1, table.get(2 * next + 1));
+                empty = next;
+            }
+        }
+        table.set(2 * empty, null);
+        table.set(2 * empty + 1, null);
+        size--;
+        return previous;
+    }
+
+    /**
+     * Returns a copy with the same entries, in constant time. The copy and this map share their table,
+     * and each copies the parts it changes from then on.
+     *
+     * @return The copy.
+     */
+    public VersionedHashMap<K, V> fork() {
+        VersionedHashMap<K, V> copy = new VersionedHashMap<>();
+        copy.table = table.fork();
+        copy.bits = bits;
+        copy.size = size;
+        return copy;
+    }
+
+    /**
+     * Returns the slot of a key, or -1 if the map does not have it.
+     */
+    private int find(Object key) {
+        if (key == null) {
+            return -1;
+        }
+        int mask = (1 << bits) - 1;
+        int slot = home(key);
+        Object existing;
+        while ((existing = table.get(2 * slot)) != null) {
+            if (existing.equals(key)) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private int home(Object key) {
+        return (key.hashCode() * 0x9E3779B9) >>> (32 - bits);
+    }
+
+    /**
+     * Moves the entries into a new table of twice the slots.
+     */
+    private void resize() {
+        VersionedArray<Object> old = table;
+        int oldSlots = 1 << bits;
+        table = new VersionedArray<>();
+        bits++;
+        size = 0;
+        for (int slot = 0; slot < oldSlots; slot++) {
+            Object key = old.get(2 * slot);
+            if (key != null) {
+                @SuppressWarnings("unchecked")
+                K k = (K) key;
+                @SuppressWarnings("unchecked")
+                V v = (V) old.get(2 * slot + 1);
+                put(k, v);
+            }
+        }
+    }
+
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        return new AbstractSet<Map.Entry<K, V>>() {
+            @Override
+            public int size() {
+                return size;
+            }
+
+            @Override
+            public Iterator<Map.Entry<K, V>> iterator() {
+                return new Iterator<Map.Entry<K, V>>() {
+                    private final int slots = 1 << bits;
+                    private int next = advance(0);
+
+                    private int advance(int slot) {
+                        while (slot < slots && table.get(2 * slot) == null) {
+                            slot++;
+                        }
+                        return slot;
+                    }
+
+                    @Override
+                    public boolean hasNext() {
+                        return next < slots;
+                    }
+
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    public Map.Entry<K, V> next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        Map.Entry<K, V> entry = new AbstractMap.SimpleImmutableEntry<>(
+                                (K) table.get(2 * next), (V) table.get(2 * next + 1));
+                        next = advance(next + 1);
+                        return entry;
+                    }
+                };
+            }
+        };
+    }
+}
@@ -1,5 +1,7 @@
 package server;
 
+import hotelapp.Review;
+import hotelapp.HotelData;
 import org.apache.commons.text.StringEscapeUtils;
 import org.apache.velocity.Template;
 import org.apache.velocity.VelocityContext;
@@ -63,7 +65,12 @@ public class AddReviewServlet extends HttpServlet {
         String username = (String) session.getAttribute("username");
 
         DatabaseHandler dbHandler = DatabaseHandler.getInstance();
-        dbHandler.addReview(hotelId, rating, title, reviewText, username);
+        Review review = dbHandler.addReview(hotelId, rating, title, reviewText, username);
+        // Keep the in-memory index in step with the database when the server loaded one
+        HotelData data = (HotelData) getServletContext().getAttribute("data");
+        if (review != null && data != null) {
+            data.applyReviewAdded(review);
+        }
         response.sendRedirect("/hotelInfo?hotelId=" + hotelId);
     }
 
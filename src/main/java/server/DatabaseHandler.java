@@ -7,9 +7,11 @@ import java.io.IOException;
 import java.math.BigInteger;
 import java.security.MessageDigest;
 import java.sql.*;
+import java.time.Instant;
 import java.time.LocalDate;
 import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
 import java.util.*;
 
 public class DatabaseHandler {
@@ -18,6 +20,8 @@ public class DatabaseHandler {
     private Properties config; // a "map" of properties
     private String uri = null; // uri to connect to mysql using jdbc
     private Random random = new Random(); // used in password  generation
+    private int batchSize; // rows sent per executeBatch and committed together by the bulk inserts
+    public static final int DEFAULT_BATCH_SIZE = 1000;
 
     /**
      * DataBaseHandler is a singleton, we want to prevent other classes
@@ -25,7 +29,9 @@ public class DatabaseHandler {
      */
     private DatabaseHandler(String propertiesFile) {
         this.config = loadConfigFile(propertiesFile);
-        this.uri = "jdbc:mysql://"+ config.getProperty("hostname") + "/" + config.getProperty("database") + "?useUnicode=true&useJDBCCompliantTimezoneShift=true&useLegacyDatetimeCode=false&serverTimezone=UTC";
+        this.uri = "jdbc:mysql://"+ config.getProperty("hostname") + "/" + config.getProperty("database") + "?useUnicode=true&useJDBCCompliantTimezoneShift=true&useLegacyDatetimeCode=false&serverTimezone=UTC" +
+                "&rewriteBatchedStatements=true"; // lets the driver send a batch of inserts as multi-row INSERTs
+        this.batchSize = Integer.parseInt(config.getProperty("batchSize", Integer.toString(DEFAULT_BATCH_SIZE)));
     }
 
     /**
@@ -36,6 +42,25 @@ public class DatabaseHandler {
         return dbHandler;
     }
 
+    /**
+     * Opens a new connection to the database configured in database.properties.
+     *
+     * @return The new connection, to be closed by the caller.
+     * @throws SQLException If the connection can not be opened.
+     */
+    public Connection getConnection() throws SQLException {
+        return DriverManager.getConnection(uri, config.getProperty("username"), config.getProperty("password"));
+    }
+
+    /**
+     * Returns the number of rows the bulk inserts send and commit together.
+     *
+     * @return The configured batch size.
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
     // Load info from config file database.properties
     public Properties loadConfigFile(String propertyFile) {
         Properties config = new Properties();
@@ -265,17 +290,32 @@ public class DatabaseHandler {
     }
 
     /**
-     * Adds a list of hotels to the "hotels" table in the database.
+     * Adds a list of hotels to the "hotels" table in the database,
+     * in batches of the batchSize configured in database.properties.
      *
      * @param allHotels The list of Hotel objects to be added to the table.
      */
     public void addAllHotelsToTable(List<Hotel> allHotels) {
+        addAllHotelsToTable(allHotels, batchSize);
+    }
+
+    /**
+     * Adds a list of hotels to the "hotels" table in the database.
+     * Rows are sent with addBatch/executeBatch and each chunk of batchSize rows is committed
+     * as one transaction; if a chunk fails it is rolled back and the remaining hotels are not added.
+     *
+     * @param allHotels The list of Hotel objects to be added to the table.
+     * @param batchSize The number of rows sent and committed together.
+     */
+    public void addAllHotelsToTable(List<Hotel> allHotels, int batchSize) {
         if (allHotels == null || allHotels.isEmpty()) {
             System.out.println("The list of hotels is empty. No hotels to add.");
             return;
         }
         try (Connection connection = DriverManager.getConnection(uri, config.getProperty("username"), config.getProperty("password"))) {
+            connection.setAutoCommit(false);
             try (PreparedStatement statement = connection.prepareStatement(PreparedStatements.ADD_ALL_HOTELS_TO_TABLE)) {
+                int pending = 0;
                 for (Hotel hotel : allHotels) {
                     statement.setString(1, hotel.getHotelId());
                     statement.setString(2, hotel.getName());
@@ -285,9 +325,21 @@ public class DatabaseHandler {
                     statement.setString(6, hotel.getCity());
                     statement.setString(7, hotel.getState());
                     statement.setString(8, hotel.getCountry());
-                    statement.executeUpdate();
+                    statement.addBatch();
+                    if (++pending == batchSize) {
+                        statement.executeBatch();
+                        connection.commit();
+                        pending = 0;
+                    }
+                }
+                if (pending > 0) {
+                    statement.executeBatch();
+                    connection.commit();
                 }
                 System.out.println("Hotels added to the table successfully.");
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
             }
         } catch (SQLException e) {
             System.out.println("Error adding hotels to the table: " + e);
@@ -295,17 +347,32 @@ public class DatabaseHandler {
     }
 
     /**
-     * Adds a list of reviews to the "reviews" table in the database.
+     * Adds a list of reviews to the "reviews" table in the database,
+     * in batches of the batchSize configured in database.properties.
      *
      * @param allReviews The list of Review objects to be added to the table.
      */
     public void addAllReviewsToTable(List<Review> allReviews) {
+        addAllReviewsToTable(allReviews, batchSize);
+    }
+
+    /**
+     * Adds a list of reviews to the "reviews" table in the database.
+     * Rows are sent with addBatch/executeBatch and each chunk of batchSize rows is committed
+     * as one transaction; if a chunk fails it is rolled back and the remaining reviews are not added.
+     *
+     * @param allReviews The list of Review objects to be added to the table.
+     * @param batchSize  The number of rows sent and committed together.
+     */
+    public void addAllReviewsToTable(List<Review> allReviews, int batchSize) {
         if (allReviews == null || allReviews.isEmpty()) {
             System.out.println("The list of reviews is empty. No reviews to add.");
             return;
         }
         try (Connection connection = DriverManager.getConnection(uri, config.getProperty("username"), config.getProperty("password"))) {
+            connection.setAutoCommit(false);
             try (PreparedStatement statement = connection.prepareStatement(PreparedStatements.ADD_ALL_REVIEWS_TO_TABLE)) {
+                int pending = 0;
                 for (Review review : allReviews) {
                     statement.setString(1, review.getReviewId());
                     statement.setString(2, Integer.toString(review.getHotelId()));
@@ -314,9 +381,21 @@ public class DatabaseHandler {
                     statement.setString(5, review.getReviewText());
                     statement.setString(6, review.getUserNickname());
                     statement.setString(7, review.getDatePosted());
-                    statement.executeUpdate();
+                    statement.addBatch();
+                    if (++pending == batchSize) {
+                        statement.executeBatch();
+                        connection.commit();
+                        pending = 0;
+                    }
+                }
+                if (pending > 0) {
+                    statement.executeBatch();
+                    connection.commit();
                 }
                 System.out.println("reviews added to the table successfully.");
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
             }
         } catch (SQLException e) {
             System.out.println("Error adding reviews to the table: " + e);
@@ -468,7 +547,7 @@ public class DatabaseHandler {
      * @param reviewId The unique identifier of the review to be deleted.
      * @param username The username (userNickname) associated with the review.
      */
-    public void deleteReview(String hotelId, String reviewId, String username) {
+    public boolean deleteReview(String hotelId, String reviewId, String username) {
         try (Connection connection = DriverManager.getConnection(uri, config.getProperty("username"), config.getProperty("password"));
             PreparedStatement deleteStatement = connection.prepareStatement(PreparedStatements.DELETE_REVIEW)) {
 
@@ -480,6 +559,7 @@ public class DatabaseHandler {
 
             if (rowsAffected > 0) {
                 System.out.println("Review deleted successfully");
+                return true;
             } else {
                 System.out.println("Failed to delete review");
             }
@@ -487,6 +567,7 @@ public class DatabaseHandler {
         } catch (SQLException e) {
             e.printStackTrace();
         }
+        return false;
     }
 
     /**
@@ -497,9 +578,11 @@ public class DatabaseHandler {
      * @param title         The title of the review.
      * @param reviewText    The text content of the review.
      * @param username      The username of the user who is submitting the review.
+     * @return The added review, or null if it could not be added.
      */
-    public void addReview(String hotelId, String ratingOverall, String title, String reviewText, String username) {
+    public Review addReview(String hotelId, String ratingOverall, String title, String reviewText, String username) {
         String reviewId = getNewReviewId();
+        String datePosted = now();
         try (Connection connection = DriverManager.getConnection(uri, config.getProperty("username"), config.getProperty("password"))) {
             PreparedStatement statement = connection.prepareStatement(PreparedStatements.ADD_REVIEW);
             statement.setString(1, reviewId);
@@ -508,10 +591,13 @@ public class DatabaseHandler {
             statement.setString(4, title);
             statement.setString(5, reviewText);
             statement.setString(6, username);
+            statement.setString(7, datePosted);
             statement.executeUpdate();
+            return new Review(Integer.parseInt(hotelId), reviewId, Integer.parseInt(ratingOverall), title, reviewText, username, datePosted);
         } catch (SQLException e) {
             System.out.println(e);
         }
+        return null;
     }
 
     /**
@@ -523,21 +609,34 @@ public class DatabaseHandler {
      * @param reviewText The new text content for the review.
      * @param rating     The new rating for the review.
      * @param username   The username of the user editing the review.
+     * @return The edited review, or null if the user has no such review.
      */
-    public void editReview(String hotelId, String reviewId, String title, String reviewText, String rating, String username) {
+    public Review editReview(String hotelId, String reviewId, String title, String reviewText, String rating, String username) {
+        String datePosted = now();
         try (Connection connection = DriverManager.getConnection(uri, config.getProperty("username"), config.getProperty("password"));
             PreparedStatement statement = connection.prepareStatement(PreparedStatements.EDIT_REVIEW)) {
             statement.setString(1, title);
             statement.setString(2, reviewText);
             statement.setDouble(3, Double.parseDouble(rating));
-            statement.setString(4, hotelId);
-            statement.setString(5, reviewId);
-            statement.setString(6, username);
-            statement.executeUpdate();
+            statement.setString(4, datePosted);
+            statement.setString(5, hotelId);
+            statement.setString(6, reviewId);
+            statement.setString(7, username);
+            if (statement.executeUpdate() > 0) {
+                return new Review(Integer.parseInt(hotelId), reviewId, Double.parseDouble(rating), title, reviewText, username, datePosted);
+            }
         } catch (SQLException e) {
             e.printStackTrace();
         }
+        return null;
+    }
 
+    /**
+     * The submission date of a review written now, in the form of the review files.
+     * It is passed to the statement and to the in-memory review alike, so both keep the same date.
+     */
+    private String now() {
+        return Instant.now().truncatedTo(ChronoUnit.SECONDS).toString();
     }
 
     /**
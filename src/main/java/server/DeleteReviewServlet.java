@@ -1,6 +1,7 @@
 package server;
 
 import hotelapp.Review;
+import hotelapp.HotelData;
 import org.apache.commons.text.StringEscapeUtils;
 import org.apache.velocity.Template;
 import org.apache.velocity.VelocityContext;
@@ -77,7 +78,11 @@ public class DeleteReviewServlet extends HttpServlet {
         String username = (String) session.getAttribute("username");
 
         DatabaseHandler dbHandler = DatabaseHandler.getInstance();
-        dbHandler.deleteReview(hotelId, reviewId, username);
+        boolean deleted = dbHandler.deleteReview(hotelId, reviewId, username);
+        HotelData data = (HotelData) getServletContext().getAttribute("data");
+        if (deleted && data != null) {
+            data.applyReviewDeleted(Integer.parseInt(hotelId), reviewId);
+        }
         response.sendRedirect("/hotelInfo?hotelId=" + hotelId);
     }
 
@@ -1,5 +1,6 @@
 package server;
 
+import hotelapp.HotelData;
 import hotelapp.Review;
 import org.apache.commons.text.StringEscapeUtils;
 import org.apache.velocity.Template;
@@ -88,7 +89,11 @@ public class EditReviewServlet extends HttpServlet {
         String username = (String) session.getAttribute("username");
 
         DatabaseHandler dbHandler = DatabaseHandler.getInstance();
-        dbHandler.editReview(hotelId, reviewId, title, reviewText, rating, username);
+        Review review = dbHandler.editReview(hotelId, reviewId, title, reviewText, rating, username);
+        HotelData data = (HotelData) getServletContext().getAttribute("data");
+        if (review != null && data != null) {
+            data.applyReviewEdited(review);
+        }
         response.sendRedirect("/hotelInfo?hotelId=" + hotelId);
     }
 
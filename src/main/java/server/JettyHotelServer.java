@@ -1,5 +1,8 @@
 package server;
 
+import hotelapp.HotelData;
+import hotelapp.SearchHelper;
+import hotelapp.ThreadSafeHotelData;
 import org.eclipse.jetty.server.Server;
 import org.eclipse.jetty.servlet.ServletContextHandler;
 import org.apache.velocity.app.VelocityEngine;
@@ -9,11 +12,20 @@ import org.eclipse.jetty.server.handler.ResourceHandler;
 
 public class JettyHotelServer {
 	public static final int PORT = 8080;
-//	private Object data;
+	private HotelData data;
 
-//	public JettyHotelServer(Object data) {
-//		this.data = data;
-//	}
+	public JettyHotelServer() {
+	}
+
+	/**
+	 * Creates a server that shares the given in-memory hotel data with its servlets
+	 * through the "data" context attribute.
+	 *
+	 * @param data The loaded hotel and review data.
+	 */
+	public JettyHotelServer(HotelData data) {
+		this.data = data;
+	}
 
 	public void start() {
 //		DatabaseHandler dbhandler = DatabaseHandler.getInstance();
@@ -23,13 +35,19 @@ public class JettyHotelServer {
 
 		Server server = new Server(PORT);
 		ServletContextHandler handler = new ServletContextHandler(ServletContextHandler.SESSIONS);
-//		handler.setAttribute("data", data);
+		if (data == null) {
+			// Without loaded files the hotels come from the database, once, so that searching them does not query it
+			data = new ThreadSafeHotelData();
+			data.addHotels(DatabaseHandler.getInstance().getAllHotels());
+		}
+		handler.setAttribute("data", data);
 
 		handler.addServlet(LoginServlet.class, "/login");
 		handler.addServlet(LogoutServlet.class, "/logout");
 		handler.addServlet(RegisterServlet.class, "/register");
 		handler.addServlet(HomeServlet.class, "/home");
 		handler.addServlet(SearchHotelServlet.class, "/searchHotel");
+		handler.addServlet(SuggestServlet.class, "/suggest");
 		handler.addServlet(HotelInfoServlet.class, "/hotelInfo");
 		handler.addServlet(AddReviewServlet.class, "/addReview");
 		handler.addServlet(EditReviewServlet.class, "/editReview");
@@ -67,19 +85,17 @@ public class JettyHotelServer {
 
 	public static void main(String[] args)  {
 		// FILL IN CODE, and add more classes as needed
-//		ThreadSafeHotelData hotelData = new ThreadSafeHotelData();
-//		SearchHelper searchHelper = new SearchHelper();
-//		searchHelper.processArgs(args);
-//		String hotelsFilePath = searchHelper.getArgValue("-hotels");
-//		String reviewsFilePath = searchHelper.getArgValue("-reviews");
-//		int numOfThead = Integer.parseInt(searchHelper.getArgValue("-threads"));
-//		MultithreadedDirectoryTraverser traverser = new MultithreadedDirectoryTraverser(numOfThead);
-//
-//		ThreadSafeHotelData data = traverser.loadData(hotelsFilePath, reviewsFilePath);
-//		data.buildWordMap();
-
-//		JettyHotelServer jettyHotelServer= new JettyHotelServer(hotelData);
-		JettyHotelServer jettyHotelServer= new JettyHotelServer();
+		SearchHelper searchHelper = new SearchHelper();
+		searchHelper.processArgs(args);
+		HotelData data = null;
+		if (searchHelper.getArgValue("-hotels") != null || searchHelper.getArgValue("-reviews") != null) {
+			data = searchHelper.loadData();
+			if (data.getWordMap().isEmpty()) {
+				data.buildWordMap();
+			}
+		}
+
+		JettyHotelServer jettyHotelServer= new JettyHotelServer(data);
 		jettyHotelServer.start();
 
 	}
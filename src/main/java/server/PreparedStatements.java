@@ -54,17 +54,30 @@ public class PreparedStatements {
 
     /**
      * SQL query to add all hotels to the "hotels" table.
+     * No trailing semicolon, so the driver can rewrite a batch into one multi-row INSERT.
      */
     public static final String ADD_ALL_HOTELS_TO_TABLE =
             "INSERT INTO hotels (hotelID, name, latitude, longitude, street, city, state, country) " +
-            "VALUES (?, ?, ?, ?, ?, ?, ?, ?);";
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
 
     /**
      * SQL query to add all reviews to the "reviews" table.
+     * No trailing semicolon, so the driver can rewrite a batch into one multi-row INSERT.
      */
     public static final String ADD_ALL_REVIEWS_TO_TABLE =
             "INSERT INTO reviews (reviewId, hotelId, ratingOverall, title, reviewText, userNickname, reviewSubmissionDate) " +
-                    "VALUES (?, ?, ?, ?, ?, ?, ?);";
+                    "VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    /**
+     * SQL query to insert a review into the "reviews" table, or update it if a review with the
+     * same reviewId is already there, so loading the same file twice leaves the table unchanged.
+     */
+    public static final String UPSERT_REVIEW =
+            "INSERT INTO reviews (reviewId, hotelId, ratingOverall, title, reviewText, userNickname, reviewSubmissionDate) " +
+                    "VALUES (?, ?, ?, ?, ?, ?, ?) " +
+                    "ON DUPLICATE KEY UPDATE hotelId = VALUES(hotelId), ratingOverall = VALUES(ratingOverall), " +
+                    "title = VALUES(title), reviewText = VALUES(reviewText), userNickname = VALUES(userNickname), " +
+                    "reviewSubmissionDate = VALUES(reviewSubmissionDate)";
 
     /**
      * SQL query to retrieve all hotels from the "hotels" table.
@@ -99,16 +112,17 @@ public class PreparedStatements {
 
     /**
      * SQL query to edit a review in the "reviews" table based on hotel ID, review ID, and user nickname.
+     * The submission date is a parameter, so the row and the review kept in memory get the same one.
      */
     public static final String EDIT_REVIEW =
-            "UPDATE reviews SET title = ?, reviewText = ?, ratingOverall = ?, reviewSubmissionDate = CURRENT_TIMESTAMP " +
+            "UPDATE reviews SET title = ?, reviewText = ?, ratingOverall = ?, reviewSubmissionDate = ? " +
                     "WHERE hotelId = ? AND reviewId = ? AND userNickname = ?";
 
     /**
-     * SQL query to add a review to the "reviews" table.
+     * SQL query to add a review to the "reviews" table, with the submission date as a parameter.
      */
     public static final String ADD_REVIEW = "INSERT INTO reviews (reviewId, hotelId, ratingOverall, title, reviewText, userNickname, reviewSubmissionDate)" +
-        "VALUES (?, ?, ?, ?, ?, ?, CURRENT_TIMESTAMP);";
+        "VALUES (?, ?, ?, ?, ?, ?, ?);";
 
     public static final String GET_REVIEWS_WITH_FIXED_NUMBER = "select * from reviews where hotelId=? order by reviewSubmissionDate desc limit ? offset ?;";
 
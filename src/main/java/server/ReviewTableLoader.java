@@ -0,0 +1,256 @@
+package server;
+
+import hotelapp.JsonProcessor;
+import hotelapp.Review;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Loads the review files of a directory tree into the "reviews" table in parallel.
+ * The files are partitioned across a number of connections, each loading its share in its own thread.
+ * Reviews are upserted, so loading a file again does not fail or duplicate rows.
+ *
+ * Every committed transaction appends the files it completed to a checkpoint file.
+ * A load that was interrupted skips the files listed there when it is run again;
+ * delete the checkpoint file to load everything again, for example after a schema change.
+ */
+public class ReviewTableLoader {
+    private final DatabaseHandler dbHandler = DatabaseHandler.getInstance();
+    private final int connections;
+    private final Path checkpointFile;
+    private final int batchSize;
+    private BufferedWriter checkpoint;
+    private final AtomicInteger loadedFiles = new AtomicInteger();
+    private final AtomicInteger loadedReviews = new AtomicInteger();
+    private final AtomicInteger failedFiles = new AtomicInteger();
+
+    /**
+     * Constructor for the ReviewTableLoader class.
+     *
+     * @param connections    The number of connections (and threads) used to load the files.
+     * @param checkpointFile The file the completed review files are recorded in.
+     */
+    public ReviewTableLoader(int connections, Path checkpointFile) {
+        this.connections = Math.max(1, connections);
+        this.checkpointFile = checkpointFile;
+        this.batchSize = dbHandler.getBatchSize();
+    }
+
+    /**
+     * Loads every review file below the given directory that is not in the checkpoint yet.
+     *
+     * @param reviewsFilePath The root directory of the review files.
+     * @return true if every file was loaded, false if a partition stopped on an error or a file was skipped.
+     */
+    public boolean load(String reviewsFilePath) {
+        Path root = Paths.get(reviewsFilePath).toAbsolutePath().normalize();
+        List<Path> files;
+        try (Stream<Path> paths = Files.walk(root)) {
+            files = paths.filter(path -> path.toString().endsWith(".json") && Files.isRegularFile(path))
+                    .sorted()
+                    .collect(Collectors.toList());
+        } catch (IOException e) {
+            System.out.println("Could not list the review files: " + e);
+            return false;
+        }
+
+        Set<String> completed = readCheckpoint();
+        List<List<Path>> partitions = new ArrayList<>();
+        for (int i = 0; i < connections; i++) {
+            partitions.add(new ArrayList<>());
+        }
+        int remaining = 0;
+        for (Path file : files) {
+            if (!completed.contains(root.relativize(file).toString())) {
+                partitions.get(remaining++ % connections).add(file);
+            }
+        }
+        System.out.println("Loading " + remaining + " of " + files.size() + " review files over "
+                + connections + " connections");
+
+        AtomicInteger failedPartitions = new AtomicInteger();
+        try {
+            checkpoint = Files.newBufferedWriter(checkpointFile, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            System.out.println("Could not open the checkpoint file: " + e);
+            return false;
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(connections);
+        for (List<Path> partition : partitions) {
+            if (!partition.isEmpty()) {
+                executor.submit(() -> {
+                    if (!loadPartition(root, partition)) {
+                        failedPartitions.incrementAndGet();
+                    }
+                });
+            }
+        }
+        executor.shutdown();
+        try {
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failedPartitions.incrementAndGet();
+        }
+        try {
+            checkpoint.close();
+        } catch (IOException e) {
+            System.out.println(e);
+        }
+        System.out.println("Loaded " + loadedReviews.get() + " reviews from " + loadedFiles.get() + " files");
+        if (failedFiles.get() > 0) {
+            System.out.println("Skipped " + failedFiles.get() + " files that could not be read or parsed");
+        }
+        return failedPartitions.get() == 0;
+    }
+
+    /**
+     * Loads one partition of the files over its own connection. Rows are sent in batches and
+     * committed every batchSize rows, at a file boundary, after which the files of the
+     * transaction are recorded in the checkpoint. On a database error the open transaction is rolled
+     * back and the partition stops; its remaining files are loaded by the next run.
+     * A file that can not be read or parsed adds no rows and is not recorded, so the next run tries it again.
+     *
+     * @param root  The root directory of the review files.
+     * @param files The files of the partition.
+     * @return true if every file of the partition was loaded.
+     */
+    private boolean loadPartition(Path root, List<Path> files) {
+        try (Connection connection = dbHandler.getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement statement = connection.prepareStatement(PreparedStatements.UPSERT_REVIEW)) {
+                List<Path> pendingFiles = new ArrayList<>();
+                int pendingRows = 0;
+                boolean complete = true;
+                for (Path file : files) {
+                    List<Review> reviews;
+                    try {
+                        reviews = JsonProcessor.parseSingleReviewFileStreaming(file.toString());
+                    } catch (IOException e) {
+                        System.out.println("Skipping review file " + root.relativize(file) + ": " + e);
+                        failedFiles.incrementAndGet();
+                        complete = false;
+                        continue;
+                    }
+                    for (Review review : reviews) {
+                        statement.setString(1, review.getReviewId());
+                        statement.setString(2, Integer.toString(review.getHotelId()));
+                        statement.setDouble(3, review.getRatingOverall());
+                        statement.setString(4, review.getTitle());
+                        statement.setString(5, review.getReviewText());
+                        statement.setString(6, review.getUserNickname());
+                        statement.setString(7, review.getDatePosted());
+                        statement.addBatch();
+                    }
+                    pendingFiles.add(file);
+                    pendingRows += reviews.size();
+                    if (pendingRows >= batchSize) {
+                        commit(connection, statement, root, pendingFiles, pendingRows);
+                        pendingFiles.clear();
+                        pendingRows = 0;
+                    }
+                }
+                if (!pendingFiles.isEmpty()) {
+                    commit(connection, statement, root, pendingFiles, pendingRows);
+                }
+                return complete;
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            System.out.println("Error loading reviews into the table: " + e);
+        } catch (IOException e) {
+            System.out.println("Could not write the checkpoint file: " + e);
+        }
+        return false;
+    }
+
+    /**
+     * Sends the batched rows, commits them and records their files in the checkpoint.
+     */
+    private void commit(Connection connection, PreparedStatement statement, Path root,
+                        List<Path> files, int rows) throws SQLException, IOException {
+        if (rows > 0) {
+            statement.executeBatch();
+        }
+        connection.commit();
+        synchronized (checkpoint) {
+            for (Path file : files) {
+                checkpoint.write(root.relativize(file).toString());
+                checkpoint.newLine();
+            }
+            checkpoint.flush();
+        }
+        loadedFiles.addAndGet(files.size());
+        loadedReviews.addAndGet(rows);
+    }
+
+    /**
+     * Reads the files recorded in the checkpoint file. A line cut off by a crash matches
+     * no file, so that file is simply loaded again.
+     *
+     * @return The relative paths of the completed files.
+     */
+    private Set<String> readCheckpoint() {
+        Set<String> completed = new HashSet<>();
+        if (Files.isRegularFile(checkpointFile)) {
+            try {
+                completed.addAll(Files.readAllLines(checkpointFile, StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                System.out.println("Could not read the checkpoint file, loading every file: " + e);
+            }
+        }
+        return completed;
+    }
+
+    /**
+     * Loads the review files into the "reviews" table.
+     * Usage: ReviewTableLoader -reviews input/reviews [-connections 4] [-checkpoint reviews.checkpoint]
+     *
+     * @param args The command line arguments.
+     */
+    public static void main(String[] args) {
+        String reviews = null;
+        int connections = Runtime.getRuntime().availableProcessors();
+        String checkpointFile = "reviews.checkpoint";
+        for (int i = 0; i + 1 < args.length; i++) {
+            if ("-reviews".equals(args[i])) {
+                reviews = args[i + 1];
+            } else if ("-connections".equals(args[i])) {
+                connections = Integer.parseInt(args[i + 1]);
+            } else if ("-checkpoint".equals(args[i])) {
+                checkpointFile = args[i + 1];
+            }
+        }
+        if (reviews == null) {
+            System.out.println("Please configure: ReviewTableLoader -reviews <reviews_dir> [-connections n] [-checkpoint file]");
+            return;
+        }
+        DatabaseHandler.getInstance().createReviewsTable();
+        ReviewTableLoader loader = new ReviewTableLoader(connections, Paths.get(checkpointFile));
+        if (!loader.load(reviews)) {
+            System.out.println("The load did not complete, run it again to resume from " + checkpointFile);
+        }
+    }
+}
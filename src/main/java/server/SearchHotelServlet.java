@@ -1,6 +1,7 @@
 package server;
 
 import hotelapp.Hotel;
+import hotelapp.HotelData;
 import org.apache.commons.text.StringEscapeUtils;
 import org.apache.velocity.Template;
 import org.apache.velocity.VelocityContext;
@@ -12,7 +13,6 @@ import javax.servlet.http.HttpSession;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.StringWriter;
-import java.util.ArrayList;
 import java.util.List;
 
 public class SearchHotelServlet extends HttpServlet {
@@ -63,20 +63,19 @@ public class SearchHotelServlet extends HttpServlet {
         response.sendRedirect("/searchHotel");
     }
 
+    /**
+     * Finds the hotels whose name contains the keyword, ignoring case, in the trigram index
+     * of the in-memory hotel data, without querying the database.
+     *
+     * @param keyword The keyword; all hotels if it is empty.
+     * @return The matching hotels.
+     */
     private List<Hotel> performHotelSearch(String keyword) {
-        DatabaseHandler dbHandler = DatabaseHandler.getInstance();
-        List<Hotel> allHotels = dbHandler.getAllHotels();
+        HotelData data = (HotelData) getServletContext().getAttribute("data");
         if (keyword == null || keyword.trim().isEmpty()) {
-            return allHotels;
-        }
-
-        List<Hotel> matchingHotels = new ArrayList<>();
-        for (Hotel hotel : allHotels) {
-            if (hotel.getName().toLowerCase().contains(keyword.toLowerCase())) {
-                matchingHotels.add(hotel);
-            }
+            return data.searchHotelsByName(null);
         }
-        return matchingHotels;
+        return data.searchHotelsByName(keyword);
     }
 
 
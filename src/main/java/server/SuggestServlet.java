@@ -0,0 +1,91 @@
+package server;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import hotelapp.Hotel;
+import hotelapp.HotelData;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Map;
+
+public class SuggestServlet extends HttpServlet {
+    public static final int DEFAULT_LIMIT = 10;
+    public static final int MAX_LIMIT = 50;
+
+    /**
+     * Handles GET requests for completions of a typed prefix and sends them as a JSON response:
+     * the hotels whose name has a word starting with the prefix, most reviewed first, and the review
+     * words starting with it, most reviews first. Served from the in-memory data, without the database,
+     * so it can be called on every keystroke.
+     *
+     * @param request  The HttpServletRequest object, with the prefix in "q" and optionally the number of
+     *                 completions of each kind in "limit".
+     * @param response The HttpServletResponse object.
+     * @throws IOException If an I/O error occurs while handling the request.
+     */
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setContentType("application/json");
+        response.setCharacterEncoding("UTF-8");
+        response.setStatus(HttpServletResponse.SC_OK);
+
+        HttpSession session = request.getSession();
+        if (session.getAttribute("username") == null) {
+            response.sendRedirect("/login");
+            return;
+        }
+
+        String prefix = request.getParameter("q");
+        if (prefix == null) {
+            prefix = "";
+        }
+        int limit = parseLimit(request.getParameter("limit"));
+        HotelData data = (HotelData) getServletContext().getAttribute("data");
+
+        JsonObject jsonObject = new JsonObject();
+        jsonObject.addProperty("query", prefix);
+        JsonArray hotels = new JsonArray();
+        JsonArray words = new JsonArray();
+        // An empty prefix would complete to everything, which is not a suggestion
+        if (data != null && !prefix.trim().isEmpty()) {
+            for (Hotel hotel : data.suggestHotels(prefix, limit)) {
+                JsonObject jsonHotel = new JsonObject();
+                jsonHotel.addProperty("hotelId", hotel.getHotelId());
+                jsonHotel.addProperty("name", hotel.getName());
+                hotels.add(jsonHotel);
+            }
+            for (Map.Entry<String, Integer> word : data.suggestWords(prefix, limit)) {
+                JsonObject jsonWord = new JsonObject();
+                jsonWord.addProperty("word", word.getKey());
+                jsonWord.addProperty("reviews", word.getValue());
+                words.add(jsonWord);
+            }
+        }
+        jsonObject.add("hotels", hotels);
+        jsonObject.add("words", words);
+
+        PrintWriter out = response.getWriter();
+        out.println(jsonObject);
+    }
+
+    /**
+     * Parse the number of completions asked for, keeping it between 1 and MAX_LIMIT.
+     *
+     * @param limit The "limit" parameter, may be null.
+     * @return The number of completions of each kind.
+     */
+    private int parseLimit(String limit) {
+        if (limit == null) {
+            return DEFAULT_LIMIT;
+        }
+        try {
+            return Math.max(1, Math.min(MAX_LIMIT, Integer.parseInt(limit)));
+        } catch (NumberFormatException e) {
+            return DEFAULT_LIMIT;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+async function showSuggestions(prefix) {
+    let list = document.getElementById("suggestions");
+    if (prefix.trim() == "") {
+        list.innerHTML = "";
+        return;
+    }
+    try {
+        let response = await fetch('/suggest?q=' + encodeURIComponent(prefix), { method: 'get' });
+        if (!response.ok) {
+            throw new Error('Network response was not ok');
+        }
+        let jsonData = await response.json();
+        // A slower response for an earlier keystroke must not replace the current suggestions
+        if (jsonData.query != document.getElementById("keywordInput").value) {
+            return;
+        }
+        list.innerHTML = "";
+        for (let hotel of jsonData.hotels) {
+            let option = document.createElement("option");
+            option.value = hotel.name;
+            list.appendChild(option);
+        }
+    } catch (error) {
+        console.error('Error fetching suggestions:', error);
+    }
+}